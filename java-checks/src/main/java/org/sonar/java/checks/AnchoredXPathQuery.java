@@ -0,0 +1,229 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.checks;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.xpath.api.AstNodeXPathQuery;
+import org.sonar.java.ast.api.JavaKeyword;
+import org.sonar.java.ast.api.JavaPunctuator;
+import org.sonar.java.ast.api.JavaTokenType;
+import org.sonar.java.ast.parser.JavaGrammar;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * XPath query of form {@code //NAME[predicates]/path}, which is evaluated relatively to each node of type NAME
+ * instead of over the whole tree, so that all such queries are evaluated during the single walk over the tree,
+ * where {@link com.sonar.sslr.impl.ast.AstWalker} dispatches each node only to queries anchored on its type.
+ * <p>
+ * Predicates of the first step must not depend on position of node among its siblings, because this position is lost
+ * by relative evaluation. Queries, which can't be evaluated relatively, are not anchored.
+ * </p>
+ */
+final class AnchoredXPathQuery {
+
+  private static final Pattern ANCHORED = Pattern.compile("//([A-Za-z_][A-Za-z0-9_]*+)(.*)", Pattern.DOTALL);
+  private static final Set<String> BOOLEAN_FUNCTIONS = ImmutableSet.of("not", "boolean", "true", "false", "contains", "starts-with", "lang",
+    "node", "text", "comment");
+  private static final Map<String, AstNodeType> NODE_TYPES = nodeTypes();
+
+  private final AstNodeType anchor;
+  private final AstNodeXPathQuery<Object> query;
+
+  private AnchoredXPathQuery(AstNodeType anchor, AstNodeXPathQuery<Object> query) {
+    this.anchor = anchor;
+    this.query = query;
+  }
+
+  private static Map<String, AstNodeType> nodeTypes() {
+    Map<String, AstNodeType> result = Maps.newHashMap();
+    for (JavaGrammar rule : JavaGrammar.values()) {
+      result.put(rule.toString(), rule);
+    }
+    for (JavaKeyword keyword : JavaKeyword.values()) {
+      result.put(keyword.getName(), keyword);
+    }
+    for (JavaPunctuator punctuator : JavaPunctuator.values()) {
+      result.put(punctuator.getName(), punctuator);
+    }
+    for (JavaTokenType tokenType : JavaTokenType.values()) {
+      result.put(tokenType.getName(), tokenType);
+    }
+    return result;
+  }
+
+  /**
+   * @return null if given query can't be anchored
+   */
+  @Nullable
+  static AnchoredXPathQuery create(String xpath) {
+    Matcher matcher = ANCHORED.matcher(xpath.trim());
+    if (!matcher.matches()) {
+      return null;
+    }
+    AstNodeType anchor = NODE_TYPES.get(matcher.group(1));
+    String rest = matcher.group(2);
+    if (anchor == null || !isRelative(rest)) {
+      return null;
+    }
+    AstNodeXPathQuery<Object> query;
+    try {
+      query = AstNodeXPathQuery.create("self::" + matcher.group(1) + rest);
+    } catch (RuntimeException e) {
+      // invalid query is reported by evaluation over the whole tree
+      return null;
+    }
+    return new AnchoredXPathQuery(anchor, query);
+  }
+
+  /**
+   * @return true if remainder of query after first step only contains predicates, which don't depend on position, and steps
+   */
+  static boolean isRelative(String rest) {
+    int i = 0;
+    while (i < rest.length() && rest.charAt(i) == '[') {
+      int end = skipGroup(rest, i);
+      if (end < 0 || !isPositionIndependent(rest.substring(i + 1, end - 1).trim())) {
+        return false;
+      }
+      i = end;
+    }
+    if (i < rest.length() && rest.charAt(i) != '/') {
+      return false;
+    }
+    while (i < rest.length()) {
+      char c = rest.charAt(i);
+      if (c == '[' || c == '(') {
+        i = skipGroup(rest, i);
+        if (i < 0) {
+          return false;
+        }
+      } else if (Character.isLetterOrDigit(c) || "_/:@*.-".indexOf(c) >= 0) {
+        i++;
+      } else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return index after the bracket, which closes the one at given index, or -1 if there is no such bracket
+   */
+  private static int skipGroup(String s, int start) {
+    int depth = 0;
+    char quote = 0;
+    for (int i = start; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+      } else if (c == '[' || c == '(') {
+        depth++;
+      } else if (c == ']' || c == ')') {
+        depth--;
+        if (depth == 0) {
+          return i + 1;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isPositionIndependent(String predicate) {
+    if (predicate.isEmpty() || predicate.contains("position(") || predicate.contains("last(")) {
+      return false;
+    }
+    String topLevel = removeGroups(predicate);
+    if (topLevel.contains("=") || topLevel.contains("<") || topLevel.contains(">")
+      || topLevel.contains(" and ") || topLevel.contains(" or ")) {
+      // comparison is never a number
+      return true;
+    }
+    if (topLevel.contains("+") || topLevel.contains(" - ") || topLevel.contains(" div ") || topLevel.contains(" mod ")) {
+      return false;
+    }
+    char first = predicate.charAt(0);
+    if (Character.isDigit(first) || first == '$' || first == '(' || first == '-' || first == '.' && predicate.length() > 1 && Character.isDigit(predicate.charAt(1))) {
+      return false;
+    }
+    int parenthesis = predicate.indexOf('(');
+    if (parenthesis > 0 && isName(predicate.substring(0, parenthesis).trim())) {
+      return BOOLEAN_FUNCTIONS.contains(predicate.substring(0, parenthesis).trim());
+    }
+    // location path, which is converted to boolean
+    return true;
+  }
+
+  private static boolean isName(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (!Character.isLetterOrDigit(c) && c != '-' && c != '_') {
+        return false;
+      }
+    }
+    return !s.isEmpty();
+  }
+
+  /**
+   * @return given expression, where content of brackets, parenthesis and literals is removed
+   */
+  private static String removeGroups(String s) {
+    StringBuilder sb = new StringBuilder();
+    int i = 0;
+    while (i < s.length()) {
+      char c = s.charAt(i);
+      if (c == '[' || c == '(') {
+        int end = skipGroup(s, i);
+        i = end < 0 ? s.length() : end;
+      } else if (c == '\'' || c == '"') {
+        int end = s.indexOf(c, i + 1);
+        i = end < 0 ? s.length() : end + 1;
+      } else {
+        sb.append(c);
+        i++;
+      }
+    }
+    return sb.toString();
+  }
+
+  AstNodeType getAnchor() {
+    return anchor;
+  }
+
+  /**
+   * @return results of query for given node of anchor type
+   */
+  List<Object> selectNodes(AstNode node) {
+    return query.selectNodes(node);
+  }
+
+}
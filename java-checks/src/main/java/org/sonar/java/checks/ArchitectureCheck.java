@@ -19,9 +19,9 @@
  */
 package org.sonar.java.checks;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang.StringUtils;
-import org.sonar.api.utils.WildcardPattern;
 import org.sonar.check.Cardinality;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
@@ -30,14 +30,16 @@ import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmEdge;
 import org.sonar.java.bytecode.asm.AsmMethod;
 import org.sonar.java.bytecode.visitor.BytecodeVisitor;
+import org.sonar.java.bytecode.visitor.GroupableVisitor;
 import org.sonar.squid.api.CheckMessage;
 import org.sonar.squid.api.SourceFile;
 import org.sonar.squid.api.SourceMethod;
 
+import java.util.List;
 import java.util.Map;
 
 @Rule(key = "ArchitecturalConstraint", cardinality = Cardinality.MULTIPLE, priority = Priority.MAJOR)
-public class ArchitectureCheck extends BytecodeVisitor {
+public class ArchitectureCheck extends BytecodeVisitor implements GroupableVisitor {
 
   @RuleProperty
   private String fromClasses = "";
@@ -45,8 +47,10 @@ public class ArchitectureCheck extends BytecodeVisitor {
   @RuleProperty
   private String toClasses = "";
 
-  private WildcardPattern[] fromPatterns;
-  private WildcardPattern[] toPatterns;
+  private ClassNamePatterns fromPatterns;
+  private ClassNamePatterns toPatterns;
+  // keyed by internal name in order to not retain classes after the end of bytecode scan
+  private final Map<String, Boolean> targetClasses = Maps.newHashMap();
   private AsmClass asmClass;
   private Map<String, CheckMessage> internalNames;
 
@@ -66,12 +70,22 @@ public class ArchitectureCheck extends BytecodeVisitor {
     this.toClasses = patterns;
   }
 
+  /**
+   * All instances share a single pass over edges.
+   */
+  @Override
+  public BytecodeVisitor group(List<BytecodeVisitor> visitors) {
+    List<ArchitectureCheck> checks = Lists.newArrayListWithCapacity(visitors.size());
+    for (BytecodeVisitor visitor : visitors) {
+      checks.add((ArchitectureCheck) visitor);
+    }
+    return new ArchitectureChecks(checks);
+  }
+
   @Override
   public void visitClass(AsmClass asmClass) {
-    String nameAsmClass = asmClass.getInternalName();
-    if (WildcardPattern.match(getFromPatterns(), nameAsmClass)) {
-      this.asmClass = asmClass;
-      this.internalNames = Maps.newHashMap();
+    if (isFrom(asmClass)) {
+      startClass(asmClass);
     } else {
       this.asmClass = null;
     }
@@ -80,29 +94,57 @@ public class ArchitectureCheck extends BytecodeVisitor {
   @Override
   public void leaveClass(AsmClass asmClass) {
     if (this.asmClass != null) {
-      for (CheckMessage message : internalNames.values()) {
-        SourceFile sourceFile = getSourceFile(asmClass);
-        sourceFile.log(message);
-      }
+      finishClass(asmClass);
     }
   }
 
   @Override
   public void visitEdge(AsmEdge edge) {
     if (asmClass != null && edge != null) {
-      String internalNameTargetClass = edge.getTargetAsmClass().getInternalName();
-      if ( !internalNames.containsKey(internalNameTargetClass)) {
-        if (WildcardPattern.match(getToPatterns(), internalNameTargetClass)) {
-          int sourceLineNumber = getSourceLineNumber(edge);
-          logMessage(asmClass.getInternalName(), internalNameTargetClass, sourceLineNumber);
-        }
-      } else {
-        int sourceLineNumber = getSourceLineNumber(edge);
-        // we log only first occurrence with non-zero line number if exists
-        if (internalNames.get(internalNameTargetClass).getLine() == 0 && sourceLineNumber != 0) {
-          logMessage(asmClass.getInternalName(), internalNameTargetClass, sourceLineNumber);
-        }
+      String targetName = edge.getTargetAsmClass().getInternalName();
+      Boolean target = targetClasses.get(targetName);
+      if (target == null) {
+        target = isTo(edge.getTargetAsmClass());
+        targetClasses.put(targetName, target);
       }
+      if (target) {
+        visitEdgeToTarget(edge);
+      }
+    }
+  }
+
+  boolean isFrom(AsmClass asmClass) {
+    return getFromPatterns().matches(asmClass.getInternalName());
+  }
+
+  boolean isTo(AsmClass asmClass) {
+    return getToPatterns().matches(asmClass.getInternalName());
+  }
+
+  void startClass(AsmClass asmClass) {
+    this.asmClass = asmClass;
+    this.internalNames = Maps.newHashMap();
+  }
+
+  void finishClass(AsmClass asmClass) {
+    for (CheckMessage message : internalNames.values()) {
+      SourceFile sourceFile = getSourceFile(asmClass);
+      sourceFile.log(message);
+    }
+    this.asmClass = null;
+    this.internalNames = null;
+  }
+
+  /**
+   * Called for edges of class, which matches {@link #fromClasses}, to classes, which match {@link #toClasses}.
+   */
+  void visitEdgeToTarget(AsmEdge edge) {
+    String internalNameTargetClass = edge.getTargetAsmClass().getInternalName();
+    CheckMessage message = internalNames.get(internalNameTargetClass);
+    int sourceLineNumber = getSourceLineNumber(edge);
+    // we log only first occurrence with non-zero line number if exists
+    if (message == null || message.getLine() == 0 && sourceLineNumber != 0) {
+      logMessage(asmClass.getInternalName(), internalNameTargetClass, sourceLineNumber);
     }
   }
 
@@ -122,16 +164,16 @@ public class ArchitectureCheck extends BytecodeVisitor {
     internalNames.put(toClass, message);
   }
 
-  private WildcardPattern[] getFromPatterns() {
+  private ClassNamePatterns getFromPatterns() {
     if (fromPatterns == null) {
-      fromPatterns = PatternUtils.createPatterns(StringUtils.defaultIfEmpty(fromClasses, "**"));
+      fromPatterns = new ClassNamePatterns(StringUtils.defaultIfEmpty(fromClasses, "**"));
     }
     return fromPatterns;
   }
 
-  private WildcardPattern[] getToPatterns() {
+  private ClassNamePatterns getToPatterns() {
     if (toPatterns == null) {
-      toPatterns = PatternUtils.createPatterns(toClasses);
+      toPatterns = new ClassNamePatterns(toClasses);
     }
     return toPatterns;
   }
@@ -0,0 +1,92 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.checks;
+
+import com.google.common.collect.Maps;
+import org.sonar.java.bytecode.asm.AsmClass;
+import org.sonar.java.bytecode.asm.AsmEdge;
+import org.sonar.java.bytecode.visitor.BytecodeVisitor;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notifies all instances of {@link ArchitectureCheck} during a single pass over edges:
+ * each edge is passed only to checks, for which both source and target classes match, and matches of target classes are memoized.
+ */
+final class ArchitectureChecks extends BytecodeVisitor {
+
+  private final ArchitectureCheck[] checks;
+  // keyed by internal name in order to not retain classes after the end of bytecode scan
+  private final Map<String, BitSet> targetClasses = Maps.newHashMap();
+  private final BitSet activeChecks = new BitSet();
+  private final BitSet notifiedChecks = new BitSet();
+
+  ArchitectureChecks(List<ArchitectureCheck> checks) {
+    this.checks = checks.toArray(new ArchitectureCheck[checks.size()]);
+  }
+
+  @Override
+  public void visitClass(AsmClass asmClass) {
+    activeChecks.clear();
+    for (int i = 0; i < checks.length; i++) {
+      if (checks[i].isFrom(asmClass)) {
+        activeChecks.set(i);
+        checks[i].startClass(asmClass);
+      }
+    }
+  }
+
+  @Override
+  public void visitEdge(AsmEdge edge) {
+    if (edge == null || activeChecks.isEmpty()) {
+      return;
+    }
+    notifiedChecks.clear();
+    notifiedChecks.or(activeChecks);
+    notifiedChecks.and(getChecksForTarget(edge.getTargetAsmClass()));
+    for (int i = notifiedChecks.nextSetBit(0); i >= 0; i = notifiedChecks.nextSetBit(i + 1)) {
+      checks[i].visitEdgeToTarget(edge);
+    }
+  }
+
+  private BitSet getChecksForTarget(AsmClass targetClass) {
+    BitSet result = targetClasses.get(targetClass.getInternalName());
+    if (result == null) {
+      result = new BitSet(checks.length);
+      for (int i = 0; i < checks.length; i++) {
+        if (checks[i].isTo(targetClass)) {
+          result.set(i);
+        }
+      }
+      targetClasses.put(targetClass.getInternalName(), result);
+    }
+    return result;
+  }
+
+  @Override
+  public void leaveClass(AsmClass asmClass) {
+    for (int i = activeChecks.nextSetBit(0); i >= 0; i = activeChecks.nextSetBit(i + 1)) {
+      checks[i].finishClass(asmClass);
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.checks;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.utils.WildcardPattern;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Patterns of internal names of classes, which are indexed in a trie by their leading segments without wildcards,
+ * so that a name is tested only against patterns, which start with the same segments.
+ */
+final class ClassNamePatterns {
+
+  private final Node root = new Node();
+
+  ClassNamePatterns(String patterns) {
+    for (String pattern : StringUtils.split(patterns, ',')) {
+      add(StringUtils.trim(StringUtils.replace(pattern, ".", "/")));
+    }
+  }
+
+  private void add(String pattern) {
+    Node node = root;
+    if (pattern.indexOf('\\') < 0) {
+      String[] segments = StringUtils.removeStart(pattern, "/").split("/", -1);
+      // last segment is always tested by pattern
+      for (int i = 0; i < segments.length - 1 && isLiteral(segments[i]); i++) {
+        node = node.child(segments[i]);
+      }
+    }
+    node.patterns.add(WildcardPattern.create(pattern));
+  }
+
+  private static boolean isLiteral(String segment) {
+    return !segment.isEmpty() && segment.indexOf('*') < 0 && segment.indexOf('?') < 0;
+  }
+
+  boolean matches(String internalName) {
+    Node node = root;
+    int start = 0;
+    while (node != null) {
+      if (node.matches(internalName)) {
+        return true;
+      }
+      int end = internalName.indexOf('/', start);
+      if (end < 0) {
+        return false;
+      }
+      node = node.children.get(internalName.substring(start, end));
+      start = end + 1;
+    }
+    return false;
+  }
+
+  private static final class Node {
+
+    private final Map<String, Node> children = Maps.newHashMap();
+    private final List<WildcardPattern> patterns = Lists.newArrayList();
+
+    private Node child(String segment) {
+      Node child = children.get(segment);
+      if (child == null) {
+        child = new Node();
+        children.put(segment, child);
+      }
+      return child;
+    }
+
+    private boolean matches(String internalName) {
+      for (WildcardPattern pattern : patterns) {
+        if (pattern.match(internalName)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+  }
+
+}
@@ -19,10 +19,9 @@
  */
 package org.sonar.java.checks;
 
-import com.sonar.sslr.api.Token;
-import com.sonar.sslr.api.Trivia;
 import com.sonar.sslr.squid.checks.SquidCheck;
-import org.apache.commons.lang.StringUtils;
+import org.sonar.java.ast.visitors.CommentIndex;
+import org.sonar.java.ast.visitors.VisitorContext;
 
 public class CommentContainsPatternChecker {
 
@@ -36,18 +35,18 @@ public class CommentContainsPatternChecker {
     this.message = message;
   }
 
-  public void visitToken(Token token) {
-    for (Trivia trivia : token.getTrivia()) {
-      String comment = trivia.getToken().getOriginalValue();
-      if (StringUtils.containsIgnoreCase(comment, pattern)) {
-        String[] lines = comment.split("\r\n?|\n");
-        for (int i = 0; i < lines.length; i++) {
-          if (StringUtils.containsIgnoreCase(lines[i], pattern)) {
-            check.getContext().createLineViolation(check, message, trivia.getToken().getLine() + i);
-          }
-        }
-      }
+  public void init() {
+    getContext().registerCommentPattern(pattern);
+  }
+
+  public void visitFile() {
+    for (CommentIndex.CommentLine line : getContext().getCommentIndex().getLinesContaining(pattern)) {
+      check.getContext().createLineViolation(check, message, line.getLine());
     }
   }
 
+  private VisitorContext getContext() {
+    return VisitorContext.of(check.getContext());
+  }
+
 }
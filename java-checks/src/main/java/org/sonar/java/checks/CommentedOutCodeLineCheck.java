@@ -20,53 +20,51 @@
 package org.sonar.java.checks;
 
 import com.google.common.collect.Lists;
-import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Token;
-import com.sonar.sslr.api.Trivia;
 import com.sonar.sslr.squid.checks.SquidCheck;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.squid.recognizer.CodeRecognizer;
+import org.sonar.java.ast.visitors.CommentIndex;
+import org.sonar.java.ast.visitors.VisitorContext;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Rule(key = "CommentedOutCodeLine", priority = Priority.MAJOR)
 @BelongsToProfile(title = "Sonar way", priority = Priority.MAJOR)
-public class CommentedOutCodeLineCheck extends SquidCheck<LexerlessGrammar> implements AstAndTokenVisitor {
+public class CommentedOutCodeLineCheck extends SquidCheck<LexerlessGrammar> {
 
   private static final double THRESHOLD = 0.9;
 
-  private final CodeRecognizer codeRecognizer;
+  /**
+   * Maximal number of comments, for which results of recognition are kept, so that same comment in different files is recognized once.
+   */
+  private static final int MAX_RECOGNIZED_COMMENTS = 1000;
 
-  private List<Token> comments;
+  private final JavaCodeRecognizer codeRecognizer;
 
-  public CommentedOutCodeLineCheck() {
-    codeRecognizer = new CodeRecognizer(THRESHOLD, new JavaFootprint());
-  }
+  private final Map<String, Integer> firstLinesOfCode = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+      return size() > MAX_RECOGNIZED_COMMENTS;
+    }
+  };
 
-  @Override
-  public void visitFile(AstNode astNode) {
-    comments = Lists.newArrayList();
+  public CommentedOutCodeLineCheck() {
+    codeRecognizer = new JavaCodeRecognizer(THRESHOLD);
   }
 
   /**
-   * Creates candidates for commented-out code - all comment blocks.
+   * Candidates for commented-out code - all comment blocks, except header, Javadoc and JSNI.
    */
-  @Override
-  public void visitToken(Token token) {
-    for (Trivia trivia : token.getTrivia()) {
-      if (trivia.isComment()) {
-        Token comment = trivia.getToken();
-        if (!isHeader(comment) && !isJavadoc(comment.getOriginalValue()) && !isJSNI(comment.getOriginalValue())) {
-          comments.add(trivia.getToken());
-        }
-      }
-    }
+  private static boolean isCandidate(Token comment) {
+    return !isHeader(comment) && !isJavadoc(comment.getOriginalValue()) && !isJSNI(comment.getOriginalValue());
   }
 
   /**
@@ -79,21 +77,19 @@ public class CommentedOutCodeLineCheck extends SquidCheck<LexerlessGrammar> impl
   }
 
   /**
-   * Detects commented-out code in remaining candidates.
+   * Detects commented-out code in candidates.
    */
   @Override
   public void leaveFile(AstNode astNode) {
     List<Integer> commentedOutCodeLines = Lists.newArrayList();
-    for (Token comment : comments) {
-      String[] lines = getContext().getCommentAnalyser().getContents(comment.getOriginalValue()).split("(\r)?\n|\r", -1);
-      for (int i = 0; i < lines.length; i++) {
-        if (codeRecognizer.isLineOfCode(lines[i])) {
-          // Mark all remaining lines from this comment as a commented out lines of code
-          for (int j = i; j < lines.length; j++) {
-            commentedOutCodeLines.add(comment.getLine() + j);
-          }
-          break;
-        }
+    for (CommentIndex.Comment comment : VisitorContext.of(getContext()).getCommentIndex().getComments()) {
+      if (!isCandidate(comment.getToken())) {
+        continue;
+      }
+      int firstLineOfCode = getFirstLineOfCode(comment);
+      // Mark all remaining lines from this comment as a commented out lines of code
+      for (int i = firstLineOfCode; i >= 0 && i < comment.getLines().length; i++) {
+        commentedOutCodeLines.add(comment.getLine() + i);
       }
     }
 
@@ -107,8 +103,26 @@ public class CommentedOutCodeLineCheck extends SquidCheck<LexerlessGrammar> impl
       }
       prev = current;
     }
+  }
 
-    comments = null;
+  /**
+   * @return index of first line of given comment, which is recognized as code, or -1 if there is no such line
+   */
+  private int getFirstLineOfCode(CommentIndex.Comment comment) {
+    String value = comment.getToken().getOriginalValue();
+    Integer result = firstLinesOfCode.get(value);
+    if (result == null) {
+      result = -1;
+      String[] lines = comment.getContentLines();
+      for (int i = 0; i < lines.length; i++) {
+        if (codeRecognizer.isLineOfCode(lines[i])) {
+          result = i;
+          break;
+        }
+      }
+      firstLinesOfCode.put(value, result);
+    }
+    return result;
   }
 
   /**
@@ -117,7 +131,7 @@ public class CommentedOutCodeLineCheck extends SquidCheck<LexerlessGrammar> impl
    * Documentation comments should be recognized only when placed
    * immediately before class, interface, constructor, method, or field declarations.
    */
-  private boolean isJavadoc(String comment) {
+  private static boolean isJavadoc(String comment) {
     return StringUtils.startsWith(comment, "/**");
   }
 
@@ -128,7 +142,7 @@ public class CommentedOutCodeLineCheck extends SquidCheck<LexerlessGrammar> impl
    * between the end of the parameter list and the trailing semicolon.
    * A JSNI comment block begins with the exact token {@link #START_JSNI} and ends with the exact token {@link #END_JSNI}.
    */
-  private boolean isJSNI(String comment) {
+  private static boolean isJSNI(String comment) {
     return StringUtils.startsWith(comment, START_JSNI) && StringUtils.endsWith(comment, END_JSNI);
   }
 
@@ -19,8 +19,7 @@
  */
 package org.sonar.java.checks;
 
-import com.sonar.sslr.api.AstAndTokenVisitor;
-import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.squid.checks.SquidCheck;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
@@ -31,7 +30,7 @@ import org.sonar.sslr.parser.LexerlessGrammar;
   key = "S1134",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = "Sonar way", priority = Priority.MAJOR)
-public class FixmeTagPresenceCheck extends SquidCheck<LexerlessGrammar> implements AstAndTokenVisitor {
+public class FixmeTagPresenceCheck extends SquidCheck<LexerlessGrammar> {
 
   private static final String PATTERN = "FIXME";
   private static final String MESSAGE = "Take the required action to fix the issue indicated by this comment.";
@@ -39,8 +38,13 @@ public class FixmeTagPresenceCheck extends SquidCheck<LexerlessGrammar> implemen
   private final CommentContainsPatternChecker checker = new CommentContainsPatternChecker(this, PATTERN, MESSAGE);
 
   @Override
-  public void visitToken(Token token) {
-    checker.visitToken(token);
+  public void init() {
+    checker.init();
+  }
+
+  @Override
+  public void visitFile(AstNode astNode) {
+    checker.visitFile();
   }
 
 }
@@ -0,0 +1,117 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.checks;
+
+import com.google.common.collect.ImmutableSet;
+import org.sonar.squid.recognizer.CodeRecognizer;
+
+import java.util.Set;
+
+/**
+ * {@link CodeRecognizer} with {@link JavaFootprint}, which rejects lines without any sign of code before running detectors.
+ * <p>
+ * Line without characters {@code ; { } | & + (} and without camel case can be recognized only by keywords,
+ * so it is rejected when it does not contain enough keywords to reach the threshold.
+ * </p>
+ */
+public final class JavaCodeRecognizer {
+
+  private static final Set<String> KEYWORDS = ImmutableSet.copyOf(JavaFootprint.KEYWORDS);
+  private static final int MIN_KEYWORD_LENGTH;
+  private static final int MAX_KEYWORD_LENGTH;
+
+  static {
+    int min = Integer.MAX_VALUE;
+    int max = 0;
+    for (String keyword : KEYWORDS) {
+      min = Math.min(min, keyword.length());
+      max = Math.max(max, keyword.length());
+    }
+    MIN_KEYWORD_LENGTH = min;
+    MAX_KEYWORD_LENGTH = max;
+  }
+
+  private final CodeRecognizer codeRecognizer;
+  private final int minKeywords;
+
+  public JavaCodeRecognizer(double threshold) {
+    this.codeRecognizer = new CodeRecognizer(threshold, new JavaFootprint());
+    int count = 0;
+    double probability = 0;
+    while (probability < threshold) {
+      probability = 1 - (1 - probability) * (1 - JavaFootprint.KEYWORDS_PROBABILITY);
+      count++;
+    }
+    this.minKeywords = count;
+  }
+
+  public boolean isLineOfCode(String line) {
+    return mayBeLineOfCode(line) && codeRecognizer.isLineOfCode(line);
+  }
+
+  /**
+   * @return false if line certainly can't be recognized as code
+   */
+  boolean mayBeLineOfCode(String line) {
+    int keywords = 0;
+    int wordStart = -1;
+    char previous = ' ';
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (isSignOfCode(c) || Character.isLowerCase(previous) && Character.isUpperCase(c)) {
+        return true;
+      }
+      if (c == ' ' || c == '\t' || c == ')' || c == ',') {
+        if (isKeyword(line, wordStart, i)) {
+          keywords++;
+        }
+        wordStart = -1;
+      } else if (wordStart < 0) {
+        wordStart = i;
+      }
+      previous = c;
+    }
+    if (isKeyword(line, wordStart, line.length())) {
+      keywords++;
+    }
+    return keywords >= minKeywords;
+  }
+
+  private static boolean isSignOfCode(char c) {
+    switch (c) {
+      case ';':
+      case '{':
+      case '}':
+      case '|':
+      case '&':
+      case '+':
+      case '(':
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isKeyword(String line, int start, int end) {
+    int length = end - start;
+    return start >= 0 && length >= MIN_KEYWORD_LENGTH && length <= MAX_KEYWORD_LENGTH && KEYWORDS.contains(line.substring(start, end));
+  }
+
+}
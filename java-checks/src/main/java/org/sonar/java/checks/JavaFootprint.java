@@ -19,27 +19,30 @@
  */
 package org.sonar.java.checks;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableSet;
 import org.sonar.squid.recognizer.*;
 
 import java.util.Set;
 
 public final class JavaFootprint implements LanguageFootprint {
 
-  private final Set<Detector> detectors = Sets.newHashSet();
+  static final double KEYWORDS_PROBABILITY = 0.3;
+  static final String[] KEYWORDS = {"public", "abstract", "class", "implements", "extends", "return", "throw",
+    "private", "protected", "enum", "continue", "assert", "package", "synchronized", "boolean", "this", "double", "instanceof",
+    "final", "interface", "static", "void", "long", "int", "float", "super", "true", "case:"};
 
-  public JavaFootprint() {
-    detectors.add(new EndWithDetector(0.95, '}', ';', '{'));
-    detectors.add(new KeywordsDetector(0.7, "||", "&&"));
-    detectors.add(new KeywordsDetector(0.3, "public", "abstract", "class", "implements", "extends", "return", "throw",
-        "private", "protected", "enum", "continue", "assert", "package", "synchronized", "boolean", "this", "double", "instanceof",
-        "final", "interface", "static", "void", "long", "int", "float", "super", "true", "case:"));
-    detectors.add(new ContainsDetector(0.95, "++", "for(", "if(", "while(", "catch(", "switch(", "try{", "else{"));
-    detectors.add(new CamelCaseDetector(0.5));
-  }
+  /**
+   * Detectors are stateless, so they are created once and shared by all instances.
+   */
+  private static final Set<Detector> DETECTORS = ImmutableSet.<Detector>of(
+      new EndWithDetector(0.95, '}', ';', '{'),
+      new KeywordsDetector(0.7, "||", "&&"),
+      new KeywordsDetector(KEYWORDS_PROBABILITY, KEYWORDS),
+      new ContainsDetector(0.95, "++", "for(", "if(", "while(", "catch(", "switch(", "try{", "else{"),
+      new CamelCaseDetector(0.5));
 
   public Set<Detector> getDetectors() {
-    return detectors;
+    return DETECTORS;
   }
 
 }
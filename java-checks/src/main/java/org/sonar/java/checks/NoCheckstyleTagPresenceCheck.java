@@ -19,8 +19,7 @@
  */
 package org.sonar.java.checks;
 
-import com.sonar.sslr.api.AstAndTokenVisitor;
-import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.squid.checks.SquidCheck;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
@@ -29,7 +28,7 @@ import org.sonar.sslr.parser.LexerlessGrammar;
 @Rule(
   key = "S1315",
   priority = Priority.MINOR)
-public class NoCheckstyleTagPresenceCheck extends SquidCheck<LexerlessGrammar> implements AstAndTokenVisitor {
+public class NoCheckstyleTagPresenceCheck extends SquidCheck<LexerlessGrammar> {
 
   private static final String PATTERN = "CHECKSTYLE:OFF";
   private static final String MESSAGE = "Remove usage of this \"CHECKSTYLE:OFF\" suppression comment filter.";
@@ -37,8 +36,13 @@ public class NoCheckstyleTagPresenceCheck extends SquidCheck<LexerlessGrammar> i
   private final CommentContainsPatternChecker checker = new CommentContainsPatternChecker(this, PATTERN, MESSAGE);
 
   @Override
-  public void visitToken(Token token) {
-    checker.visitToken(token);
+  public void init() {
+    checker.init();
+  }
+
+  @Override
+  public void visitFile(AstNode astNode) {
+    checker.visitFile();
   }
 
 }
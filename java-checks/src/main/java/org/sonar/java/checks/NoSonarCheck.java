@@ -19,12 +19,12 @@
  */
 package org.sonar.java.checks;
 
-import com.sonar.sslr.api.AstAndTokenVisitor;
-import com.sonar.sslr.api.Token;
-import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.squid.checks.SquidCheck;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.java.ast.visitors.CommentIndex;
+import org.sonar.java.ast.visitors.VisitorContext;
 import org.sonar.squid.api.CheckMessage;
 import org.sonar.squid.api.SourceFile;
 import org.sonar.sslr.parser.LexerlessGrammar;
@@ -33,31 +33,34 @@ import org.sonar.sslr.parser.LexerlessGrammar;
  * Note that {@link com.sonar.sslr.squid.checks.AbstractNoSonarCheck} can't be used because of bug SSLRSQBR-16.
  */
 @Rule(key = "NoSonar", priority = Priority.INFO)
-public class NoSonarCheck extends SquidCheck<LexerlessGrammar> implements AstAndTokenVisitor {
+public class NoSonarCheck extends SquidCheck<LexerlessGrammar> {
 
-  @Override
-  public void visitToken(Token token) {
-    SourceFile sourceFile = getSourceFile();
+  private static final String PATTERN = "NOSONAR";
 
-    for (Trivia trivia : token.getTrivia()) {
-      if (trivia.isComment()) {
-        String[] commentLines = getContext().getCommentAnalyser().getContents(trivia.getToken().getOriginalValue()).split("(\r)?\n|\r", -1);
-        int line = trivia.getToken().getLine();
+  @Override
+  public void init() {
+    getVisitorContext().registerCommentPattern(PATTERN);
+  }
 
-        for (String commentLine : commentLines) {
-          if (commentLine.contains("NOSONAR")) {
-            CheckMessage checkMessage = new CheckMessage(this, "Is //NOSONAR used to exclude false-positive or to hide real quality flaw ?");
-            checkMessage.setBypassExclusion(true);
-            checkMessage.setLine(line);
-            sourceFile.log(checkMessage);
-          }
+  @Override
+  public void visitFile(AstNode astNode) {
+    SourceFile sourceFile = getSourceFile();
 
-          line++;
-        }
+    for (CommentIndex.CommentLine commentLine : getVisitorContext().getCommentIndex().getLinesContaining(PATTERN)) {
+      // index ignores case
+      if (commentLine.getText().contains(PATTERN)) {
+        CheckMessage checkMessage = new CheckMessage(this, "Is //NOSONAR used to exclude false-positive or to hide real quality flaw ?");
+        checkMessage.setBypassExclusion(true);
+        checkMessage.setLine(commentLine.getLine());
+        sourceFile.log(checkMessage);
       }
     }
   }
 
+  private VisitorContext getVisitorContext() {
+    return VisitorContext.of(getContext());
+  }
+
   private SourceFile getSourceFile() {
     if (getContext().peekSourceCode() instanceof SourceFile) {
       return (SourceFile) getContext().peekSourceCode();
@@ -19,40 +19,25 @@
  */
 package org.sonar.java.checks;
 
-import com.google.common.io.Files;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.squid.checks.SquidCheck;
-import org.sonar.api.utils.SonarException;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.java.CharsetAwareVisitor;
+import org.sonar.java.ast.visitors.VisitorContext;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.List;
 
 @Rule(
   key = "S00105",
   priority = Priority.MINOR)
 @BelongsToProfile(title = "Sonar way", priority = Priority.MINOR)
-public class TabCharacter_S00105_Check extends SquidCheck<LexerlessGrammar> implements CharsetAwareVisitor {
-
-  private Charset charset;
-
-  public void setCharset(Charset charset) {
-    this.charset = charset;
-  }
+public class TabCharacter_S00105_Check extends SquidCheck<LexerlessGrammar> {
 
   @Override
   public void visitFile(AstNode astNode) {
-    List<String> lines;
-    try {
-      lines = Files.readLines(getContext().getFile(), charset);
-    } catch (IOException e) {
-      throw new SonarException(e);
-    }
+    List<String> lines = VisitorContext.of(getContext()).getFileContent().getLines();
     for (String line : lines) {
       if (line.contains("\t")) {
         getContext().createFileViolation(this, "Replace all tab characters in this file by sequences of white-spaces.");
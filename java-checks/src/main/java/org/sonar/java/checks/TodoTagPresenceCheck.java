@@ -19,8 +19,7 @@
  */
 package org.sonar.java.checks;
 
-import com.sonar.sslr.api.AstAndTokenVisitor;
-import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.squid.checks.SquidCheck;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
@@ -31,7 +30,7 @@ import org.sonar.sslr.parser.LexerlessGrammar;
   key = "S1135",
   priority = Priority.INFO)
 @BelongsToProfile(title = "Sonar way", priority = Priority.INFO)
-public class TodoTagPresenceCheck extends SquidCheck<LexerlessGrammar> implements AstAndTokenVisitor {
+public class TodoTagPresenceCheck extends SquidCheck<LexerlessGrammar> {
 
   private static final String PATTERN = "TODO";
   private static final String MESSAGE = "Complete the task associated to this TODO comment.";
@@ -39,8 +38,13 @@ public class TodoTagPresenceCheck extends SquidCheck<LexerlessGrammar> implement
   private final CommentContainsPatternChecker checker = new CommentContainsPatternChecker(this, PATTERN, MESSAGE);
 
   @Override
-  public void visitToken(Token token) {
-    checker.visitToken(token);
+  public void init() {
+    checker.init();
+  }
+
+  @Override
+  public void visitFile(AstNode astNode) {
+    checker.visitFile();
   }
 
 }
@@ -19,14 +19,19 @@
  */
 package org.sonar.java.checks;
 
+import com.google.common.collect.Sets;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.squid.checks.AbstractXPathCheck;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.check.Cardinality;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import java.util.IdentityHashMap;
+import java.util.Set;
+
 @Rule(
   key = "XPath",
   priority = Priority.MAJOR,
@@ -57,11 +62,43 @@ public class XPathCheck extends AbstractXPathCheck<LexerlessGrammar> {
     return message;
   }
 
+  private AnchoredXPathQuery anchoredQuery;
+  private final Set<AstNode> reportedNodes = Sets.newSetFromMap(new IdentityHashMap<AstNode, Boolean>());
+
+  /**
+   * Query, which can be anchored, is evaluated on nodes of its anchor type during the walk shared with other checks,
+   * otherwise it is evaluated over the whole tree of each file.
+   */
+  @Override
+  public void init() {
+    anchoredQuery = StringUtils.isBlank(xpathQuery) ? null : AnchoredXPathQuery.create(xpathQuery);
+    if (anchoredQuery == null) {
+      super.init();
+    } else {
+      subscribeTo(anchoredQuery.getAnchor());
+    }
+  }
+
   @Override
   public void visitFile(AstNode fileNode) {
-    if (fileNode != null) {
+    if (fileNode != null && anchoredQuery == null) {
       super.visitFile(fileNode);
     }
   }
 
+  @Override
+  public void visitNode(AstNode astNode) {
+    for (Object object : anchoredQuery.selectNodes(astNode)) {
+      // same node can be selected from different anchors
+      if (object instanceof AstNode && reportedNodes.add((AstNode) object)) {
+        getContext().createLineViolation(this, getMessage(), ((AstNode) object).getTokenLine());
+      }
+    }
+  }
+
+  @Override
+  public void leaveFile(AstNode fileNode) {
+    reportedNodes.clear();
+  }
+
 }
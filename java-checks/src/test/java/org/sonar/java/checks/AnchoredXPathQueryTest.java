@@ -0,0 +1,65 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.checks;
+
+import org.junit.Test;
+import org.sonar.java.ast.api.JavaKeyword;
+import org.sonar.java.ast.api.JavaTokenType;
+import org.sonar.java.ast.parser.JavaGrammar;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AnchoredXPathQueryTest {
+
+  @Test
+  public void should_anchor_on_first_step() {
+    assertThat(AnchoredXPathQuery.create("//classDeclaration").getAnchor()).isSameAs(JavaGrammar.CLASS_DECLARATION);
+    assertThat(AnchoredXPathQuery.create(" //PUBLIC ").getAnchor()).isSameAs(JavaKeyword.PUBLIC);
+    assertThat(AnchoredXPathQuery.create("//IDENTIFIER[string-length(@tokenValue) >= 10]").getAnchor()).isSameAs(JavaTokenType.IDENTIFIER);
+    assertThat(AnchoredXPathQuery.create("//classDeclaration//IDENTIFIER")).isNotNull();
+    assertThat(AnchoredXPathQuery.create("//classDeclaration[not(typeParameters)]/classBody")).isNotNull();
+  }
+
+  @Test
+  public void should_not_anchor_on_unknown_node() {
+    assertThat(AnchoredXPathQuery.create("//*")).isNull();
+    assertThat(AnchoredXPathQuery.create("//unknown")).isNull();
+    assertThat(AnchoredXPathQuery.create("/compilationUnit")).isNull();
+  }
+
+  @Test
+  public void should_not_anchor_query_depending_on_position() {
+    assertThat(AnchoredXPathQuery.isRelative("[1]")).isFalse();
+    assertThat(AnchoredXPathQuery.isRelative("[position() = 1]")).isFalse();
+    assertThat(AnchoredXPathQuery.isRelative("[last()]")).isFalse();
+    assertThat(AnchoredXPathQuery.isRelative("[count(IDENTIFIER)]")).isFalse();
+    assertThat(AnchoredXPathQuery.isRelative("[$n]")).isFalse();
+    assertThat(AnchoredXPathQuery.isRelative("[@tokenValue]/IDENTIFIER[1]")).isTrue();
+  }
+
+  @Test
+  public void should_not_anchor_expression_which_is_not_path() {
+    assertThat(AnchoredXPathQuery.isRelative(" | //PRIVATE")).isFalse();
+    assertThat(AnchoredXPathQuery.isRelative(" = 'foo'")).isFalse();
+    assertThat(AnchoredXPathQuery.isRelative("[@tokenValue = 'a'")).isFalse();
+    assertThat(AnchoredXPathQuery.isRelative("")).isTrue();
+  }
+
+}
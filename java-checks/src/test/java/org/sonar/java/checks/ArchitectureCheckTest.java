@@ -45,4 +45,16 @@ public class ArchitectureCheckTest {
         .noMore();
   }
 
+  @Test
+  public void checks_should_share_pass_over_edges() {
+    check.setToClasses("java.**.Pattern");
+    ArchitectureCheck otherCheck = new ArchitectureCheck();
+    otherCheck.setFromClasses("com.**");
+    otherCheck.setToClasses("java.**.Pattern");
+    SourceFile file = BytecodeFixture.scan("ArchitectureConstraint", check, otherCheck);
+    CheckMessagesVerifier.verify(file.getCheckMessages())
+        .next().atLine(27).withMessage("org/sonar/java/checks/targets/ArchitectureConstraint must not use java/util/regex/Pattern")
+        .noMore();
+  }
+
 }
@@ -38,7 +38,7 @@ public class BytecodeFixture {
   private BytecodeFixture() {
   }
 
-  public static SourceFile scan(String target, CodeVisitor visitor) {
+  public static SourceFile scan(String target, CodeVisitor... visitors) {
     File baseDir = new File("src/test/java/");
     InputFile sourceFile = InputFileUtils.create(baseDir, new File(baseDir, "org/sonar/java/checks/targets/" + target + ".java"));
     File bytecodeFile = new File("target/test-classes/");
@@ -47,7 +47,7 @@ public class BytecodeFixture {
       throw new IllegalArgumentException("File '" + sourceFile + "' not found.");
     }
 
-    JavaSquid javaSquid = new JavaSquid(new JavaConfiguration(Charset.forName("UTF-8")), visitor);
+    JavaSquid javaSquid = new JavaSquid(new JavaConfiguration(Charset.forName("UTF-8")), visitors);
     javaSquid.scan(Collections.singleton(sourceFile), Collections.singleton(bytecodeFile));
 
     Collection<SourceCode> sources = javaSquid.getIndex().search(new QueryByType(SourceFile.class));
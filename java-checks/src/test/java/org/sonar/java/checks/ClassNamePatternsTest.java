@@ -0,0 +1,50 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.checks;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ClassNamePatternsTest {
+
+  @Test
+  public void should_match_like_wildcard_patterns() {
+    ClassNamePatterns patterns = new ClassNamePatterns("java.**.Pattern, org.sonar.*.Foo, /com/Bar, *.Baz, ?rg.Qux");
+
+    assertThat(patterns.matches("java/util/regex/Pattern")).isTrue();
+    assertThat(patterns.matches("java/util/Patterns")).isFalse();
+    assertThat(patterns.matches("javax/Pattern")).isFalse();
+    assertThat(patterns.matches("org/sonar/api/Foo")).isTrue();
+    assertThat(patterns.matches("org/sonar/api/internal/Foo")).isFalse();
+    assertThat(patterns.matches("com/Bar")).isTrue();
+    assertThat(patterns.matches("net/Baz")).isTrue();
+    assertThat(patterns.matches("org/Qux")).isTrue();
+    assertThat(patterns.matches("Pattern")).isFalse();
+  }
+
+  @Test
+  public void should_match_any_class() {
+    assertThat(new ClassNamePatterns("**").matches("Foo")).isTrue();
+    assertThat(new ClassNamePatterns("**").matches("org/Foo")).isTrue();
+    assertThat(new ClassNamePatterns("").matches("Foo")).isFalse();
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.checks;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Test;
+import org.sonar.squid.recognizer.CodeRecognizer;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JavaCodeRecognizerTest {
+
+  private final JavaCodeRecognizer recognizer = new JavaCodeRecognizer(0.9);
+
+  @Test
+  public void should_reject_prose() {
+    assertThat(recognizer.mayBeLineOfCode("Licensed under the Apache License, Version 2.0")).isFalse();
+    assertThat(recognizer.mayBeLineOfCode("")).isFalse();
+  }
+
+  @Test
+  public void should_not_reject_possible_code() {
+    assertThat(recognizer.mayBeLineOfCode("foo();")).isTrue();
+    assertThat(recognizer.mayBeLineOfCode("a || b")).isTrue();
+    assertThat(recognizer.mayBeLineOfCode("i++")).isTrue();
+    assertThat(recognizer.mayBeLineOfCode("see getValue")).isTrue();
+    assertThat(recognizer.mayBeLineOfCode("public static final int this super true")).isTrue();
+    assertThat(recognizer.mayBeLineOfCode("public static final int this super")).isFalse();
+  }
+
+  @Test
+  public void should_recognize_same_lines_as_detectors() throws IOException {
+    CodeRecognizer codeRecognizer = new CodeRecognizer(0.9, new JavaFootprint());
+    for (String line : Files.readLines(new File("src/test/files/checks/CommentedCode.java"), Charsets.UTF_8)) {
+      assertThat(recognizer.isLineOfCode(line)).as(line).isEqualTo(codeRecognizer.isLineOfCode(line));
+    }
+  }
+
+}
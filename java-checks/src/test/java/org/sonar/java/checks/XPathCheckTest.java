@@ -71,6 +71,26 @@ public class XPathCheckTest {
         .noMore();
   }
 
+  @Test
+  public void node_selected_from_several_anchors_should_be_reported_once() {
+    check.xpathQuery = "//classDeclaration//IDENTIFIER";
+
+    SourceFile file = JavaAstScanner.scanSingleFile(new File("src/test/files/checks/XPath.java"), check);
+    CheckMessagesVerifier.verify(file.getCheckMessages())
+        .next().atLine(1)
+        .noMore();
+  }
+
+  @Test
+  public void query_depending_on_position() {
+    check.xpathQuery = "//IDENTIFIER[1]";
+
+    SourceFile file = JavaAstScanner.scanSingleFile(new File("src/test/files/checks/XPath.java"), check);
+    CheckMessagesVerifier.verify(file.getCheckMessages())
+        .next().atLine(1)
+        .noMore();
+  }
+
   @Test
   public void parseError() {
     check.xpathQuery = "//IDENTIFIER";
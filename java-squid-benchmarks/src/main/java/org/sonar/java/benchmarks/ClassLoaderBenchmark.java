@@ -0,0 +1,109 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Lookups of resources by {@link SquidClassLoader} on a synthetic classpath of {@link #jars} JAR files,
+ * one operation being a lookup of each class of the classpath and of as many classes, which are absent from it.
+ * Creation of the class loader, which reads entries of all JAR files, is measured separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ClassLoaderBenchmark {
+
+  private static final int CLASSES_PER_JAR = 200;
+
+  @Param({"400"})
+  public int jars;
+
+  private File directory;
+  private List<File> classpath;
+  private String[] lookups;
+  private SquidClassLoader classLoader;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDir();
+    classpath = Lists.newArrayList();
+    lookups = new String[2 * jars * CLASSES_PER_JAR];
+    int count = 0;
+    for (int i = 0; i < jars; i++) {
+      File jar = new File(directory, "library" + i + ".jar");
+      JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+      try {
+        for (int j = 0; j < CLASSES_PER_JAR; j++) {
+          String name = "org/library" + i + "/Class" + j + ".class";
+          out.putNextEntry(new JarEntry(name));
+          out.closeEntry();
+          lookups[count++] = name;
+          lookups[count++] = "org/missing" + i + "/Class" + j + ".class";
+        }
+      } finally {
+        IOUtils.closeQuietly(out);
+      }
+      classpath.add(jar);
+    }
+    classLoader = new SquidClassLoader(classpath);
+  }
+
+  @TearDown
+  public void tearDown() {
+    classLoader.close();
+    FileUtils.deleteQuietly(directory);
+  }
+
+  @Benchmark
+  public void findResource(Blackhole blackhole) {
+    for (String name : lookups) {
+      blackhole.consume(classLoader.findResource(name));
+    }
+  }
+
+  @Benchmark
+  public void createClassLoader() {
+    new SquidClassLoader(classpath).close();
+  }
+
+}
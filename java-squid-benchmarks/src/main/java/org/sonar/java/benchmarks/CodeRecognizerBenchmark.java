@@ -0,0 +1,101 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.java.ast.parser.JavaGrammar;
+import org.sonar.java.checks.JavaCodeRecognizer;
+import org.sonar.java.checks.JavaFootprint;
+import org.sonar.squid.recognizer.CodeRecognizer;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recognition of code in all lines of comments of a corpus, as done by rule "CommentedOutCodeLine".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CodeRecognizerBenchmark {
+
+  private static final double THRESHOLD = 0.9;
+
+  @Param({"commons-collections-3.2.1", "struts-core-1.3.9"})
+  public String project;
+
+  private List<String> lines;
+
+  @Setup
+  public void collectCommentLines() throws IOException {
+    Parser<LexerlessGrammar> parser = new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, JavaGrammar.createGrammar());
+    lines = Lists.newArrayList();
+    for (String source : Corpus.load(project).getSources()) {
+      for (Token token : parser.parse(source).getTokens()) {
+        for (Trivia trivia : token.getTrivia()) {
+          if (trivia.isComment()) {
+            Collections.addAll(lines, trivia.getToken().getOriginalValue().split("(\r)?\n|\r", -1));
+          }
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public int detectors() {
+    CodeRecognizer codeRecognizer = new CodeRecognizer(THRESHOLD, new JavaFootprint());
+    int linesOfCode = 0;
+    for (String line : lines) {
+      if (codeRecognizer.isLineOfCode(line)) {
+        linesOfCode++;
+      }
+    }
+    return linesOfCode;
+  }
+
+  @Benchmark
+  public int prefiltered() {
+    JavaCodeRecognizer codeRecognizer = new JavaCodeRecognizer(THRESHOLD);
+    int linesOfCode = 0;
+    for (String line : lines) {
+      if (codeRecognizer.isLineOfCode(line)) {
+        linesOfCode++;
+      }
+    }
+    return linesOfCode;
+  }
+
+}
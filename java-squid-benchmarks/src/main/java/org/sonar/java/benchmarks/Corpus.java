@@ -0,0 +1,81 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Source files of a project, which are loaded into memory before measurements.
+ */
+public final class Corpus {
+
+  /**
+   * Directory containing projects, which are unpacked by the build of this module.
+   */
+  public static final String DIRECTORY_PROPERTY = "sonar.java.benchmarks.corpora";
+  private static final String DEFAULT_DIRECTORY = "target/test-projects";
+
+  private final List<String> sources;
+  private final long size;
+
+  private Corpus(List<String> sources, long size) {
+    this.sources = sources;
+    this.size = size;
+  }
+
+  public static Corpus load(String project) throws IOException {
+    File directory = getDirectory(project);
+    if (!directory.isDirectory()) {
+      throw new IllegalStateException("Corpus not found: " + directory.getAbsolutePath() + ", run \"mvn package -Pbenchmarks\" first");
+    }
+    Collection<File> files = FileUtils.listFiles(directory, new String[] {"java"}, true);
+    ImmutableList.Builder<String> sources = ImmutableList.builder();
+    long size = 0;
+    for (File file : files) {
+      sources.add(Files.toString(file, Charsets.UTF_8));
+      size += file.length();
+    }
+    return new Corpus(sources.build(), size);
+  }
+
+  public static File getDirectory(String project) {
+    return new File(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY), project);
+  }
+
+  public List<String> getSources() {
+    return sources;
+  }
+
+  /**
+   * @return size of all source files in bytes
+   */
+  public long getSize() {
+    return size;
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Runs benchmarks with allocation profiling and writes results in JSON:
+ * <ul>
+ *   <li>raw results of JMH into {@code jmh-result.json}</li>
+ *   <li>throughput in megabytes of source code per second and allocated bytes per kilobyte of source code into {@code jmh-summary.json}</li>
+ * </ul>
+ * Arguments are the ones of JMH, so for example a subset of benchmarks can be selected by a regular expression.
+ */
+public final class JavaSquidBenchmarks {
+
+  private static final String ALLOCATION_RATE = "\u00b7gc.alloc.rate.norm";
+  private static final double MB = 1024.0 * 1024.0;
+
+  private JavaSquidBenchmarks() {
+  }
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+    File outputDirectory = new File(System.getProperty("sonar.java.benchmarks.output", "target"));
+    Options options = new OptionsBuilder()
+      .parent(new CommandLineOptions(args))
+      .include(JavaSquidBenchmarks.class.getPackage().getName() + ".*Benchmark")
+      .addProfiler(GCProfiler.class)
+      .resultFormat(ResultFormatType.JSON)
+      .result(new File(outputDirectory, "jmh-result.json").getPath())
+      .build();
+    Collection<RunResult> results = new Runner(options).run();
+    Files.write(summarize(results), new File(outputDirectory, "jmh-summary.json"), Charsets.UTF_8);
+  }
+
+  static String summarize(Collection<RunResult> results) throws IOException {
+    Map<String, Long> corpusSizes = Maps.newHashMap();
+    StringBuilder sb = new StringBuilder();
+    sb.append('[');
+    for (RunResult result : results) {
+      String benchmark = result.getParams().getBenchmark();
+      String project = result.getParams().getParam("project");
+      if (sb.length() > 1) {
+        sb.append(',');
+      }
+      sb.append("\n  {\"benchmark\":\"").append(benchmark).append('"');
+      sb.append(",\"project\":\"").append(project).append('"');
+      sb.append(",\"opsPerSecond\":").append(result.getPrimaryResult().getScore());
+      if (project != null && !benchmark.endsWith(".createGrammar")) {
+        Long corpusSize = corpusSizes.get(project);
+        if (corpusSize == null) {
+          corpusSize = Corpus.load(project).getSize();
+          corpusSizes.put(project, corpusSize);
+        }
+        sb.append(",\"megabytesPerSecond\":").append(result.getPrimaryResult().getScore() * corpusSize / MB);
+        Result allocation = result.getSecondaryResults().get(ALLOCATION_RATE);
+        if (allocation != null) {
+          sb.append(",\"allocatedBytesPerKilobyte\":").append(allocation.getScore() * 1024 / corpusSize);
+        }
+      }
+      sb.append('}');
+    }
+    sb.append("\n]\n");
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.java.bytecode.asm.AsmClass;
+import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.visitor.LCOM4Visitor;
+import org.sonar.squid.api.SourceClass;
+import org.sonar.squid.indexer.SquidIndex;
+import org.sonar.squid.measures.Metric;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computation of LCOM4 for a synthetic class with 1000 members (500 fields and 500 methods) and 10000 calls between them,
+ * with and without materialization of blocks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Lcom4Benchmark {
+
+  private static final String CLASS_NAME = "org/sonar/Synthetic";
+
+  private AsmClass asmClass;
+  private SourceClass sourceClass;
+  private LCOM4Visitor visitor;
+
+  @Setup
+  public void setUp() {
+    asmClass = SyntheticClasses.create(CLASS_NAME, 500, 500, 10000, 42);
+    // accessors are computed lazily and then memoized
+    for (AsmMethod method : asmClass.getMethods()) {
+      method.isAccessor();
+    }
+    SquidIndex index = new SquidIndex();
+    sourceClass = new SourceClass(CLASS_NAME);
+    index.index(sourceClass);
+    visitor = new LCOM4Visitor(ImmutableSet.<String>of());
+    visitor.setSquidIndex(index);
+  }
+
+  @Benchmark
+  public int lcom4() {
+    visit();
+    return sourceClass.getInt(Metric.LCOM4);
+  }
+
+  @Benchmark
+  public int lcom4WithBlocks() {
+    visit();
+    List<?> blocks = (List<?>) sourceClass.getData(Metric.LCOM4_BLOCKS);
+    return blocks.isEmpty() ? 0 : blocks.get(0).hashCode();
+  }
+
+  private void visit() {
+    // visitor adds to the measure
+    sourceClass.setMeasure(Metric.LCOM4, 0);
+    visitor.visitClass(asmClass);
+    for (AsmMethod method : asmClass.getMethods()) {
+      visitor.visitMethod(method);
+    }
+    visitor.leaveClass(asmClass);
+  }
+
+}
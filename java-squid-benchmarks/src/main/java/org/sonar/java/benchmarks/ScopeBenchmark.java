@@ -0,0 +1,123 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.collect.ArrayListMultimap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.resolve.Symbol;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entering of symbols into nested scopes and lookup of their names (hits in both scopes and misses),
+ * for {@link org.sonar.java.resolve.Scope} and for the previous implementation based on a multimap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScopeBenchmark {
+
+  @Param({"4", "16", "128"})
+  public int size;
+
+  private Symbol owner;
+  private String[] names;
+  private Symbol[] symbols;
+  private String[] lookups;
+
+  @Setup
+  public void setUp() {
+    owner = new Symbol(Symbol.TYP, 0, "Owner", null);
+    names = new String[size];
+    symbols = new Symbol[size];
+    for (int i = 0; i < size; i++) {
+      names[i] = "name" + i;
+      symbols[i] = new Symbol(Symbol.VAR, 0, names[i], owner);
+    }
+    // names from source code are not interned, so lookups are done with distinct instances
+    lookups = new String[size * 2];
+    for (int i = 0; i < size; i++) {
+      lookups[i] = new String(names[i]);
+      lookups[size + i] = "missing" + i;
+    }
+  }
+
+  @Benchmark
+  public void scope(Blackhole blackhole) {
+    org.sonar.java.resolve.Scope outer = new org.sonar.java.resolve.Scope(owner);
+    org.sonar.java.resolve.Scope inner = new org.sonar.java.resolve.Scope(outer);
+    for (int i = 0; i < size; i++) {
+      (i % 2 == 0 ? outer : inner).enter(symbols[i]);
+    }
+    for (String name : lookups) {
+      blackhole.consume(inner.lookup(name));
+    }
+  }
+
+  @Benchmark
+  public void multimapScope(Blackhole blackhole) {
+    MultimapScope outer = new MultimapScope(null);
+    MultimapScope inner = new MultimapScope(outer);
+    for (int i = 0; i < size; i++) {
+      (i % 2 == 0 ? outer : inner).enter(names[i], symbols[i]);
+    }
+    for (String name : lookups) {
+      blackhole.consume(inner.lookup(name));
+    }
+  }
+
+  /**
+   * Previous implementation of {@link org.sonar.java.resolve.Scope}.
+   */
+  private static final class MultimapScope {
+
+    private final MultimapScope next;
+    private final ArrayListMultimap<String, Symbol> symbols = ArrayListMultimap.create();
+
+    private MultimapScope(MultimapScope next) {
+      this.next = next;
+    }
+
+    private void enter(String name, Symbol symbol) {
+      symbols.put(name, symbol);
+    }
+
+    private List<Symbol> lookup(String name) {
+      List<Symbol> result = symbols.get(name);
+      MultimapScope scope = this;
+      while (result.isEmpty() && scope.next != null) {
+        scope = scope.next;
+        result = scope.symbols.get(name);
+      }
+      return result;
+    }
+
+  }
+
+}
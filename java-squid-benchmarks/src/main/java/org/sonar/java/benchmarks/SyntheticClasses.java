@@ -0,0 +1,110 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.sonar.java.bytecode.asm.AsmClass;
+import org.sonar.java.bytecode.asm.AsmClassProvider;
+import org.sonar.java.bytecode.asm.AsmClassProviderImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * Generates bytecode of classes with many members and calls between them, and loads it as {@link AsmClass}.
+ */
+public final class SyntheticClasses {
+
+  private SyntheticClasses() {
+  }
+
+  /**
+   * Creates class with given numbers of fields and methods, and calls from methods to random members.
+   * Each method reads two distinct fields, so that it is not an accessor.
+   */
+  public static AsmClass create(String internalName, int nbFields, int nbMethods, int nbEdges, long seed) {
+    byte[] bytecode = generate(internalName, nbFields, nbMethods, nbEdges, seed);
+    return new AsmClassProviderImpl(new SingleClassLoader(internalName + ".class", bytecode))
+        .getClass(internalName, AsmClassProvider.DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+  }
+
+  private static byte[] generate(String internalName, int nbFields, int nbMethods, int nbEdges, long seed) {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, internalName, null, "java/lang/Object", null);
+    for (int i = 0; i < nbFields; i++) {
+      cw.visitField(Opcodes.ACC_PRIVATE, "field" + i, "I", null, null).visitEnd();
+    }
+    MethodVisitor[] methods = new MethodVisitor[nbMethods];
+    for (int i = 0; i < nbMethods; i++) {
+      methods[i] = cw.visitMethod(Opcodes.ACC_PUBLIC, "method" + i, "()V", null, null);
+      methods[i].visitCode();
+    }
+    Random random = new Random(seed);
+    for (int i = 0; i < nbEdges; i++) {
+      MethodVisitor from = methods[i % nbMethods];
+      Label label = new Label();
+      from.visitLabel(label);
+      from.visitLineNumber(i + 1, label);
+      from.visitVarInsn(Opcodes.ALOAD, 0);
+      if (i < 2 * nbMethods) {
+        readField(from, internalName, (i / nbMethods + 2 * (i % nbMethods)) % nbFields);
+      } else if (random.nextBoolean()) {
+        readField(from, internalName, random.nextInt(nbFields));
+      } else {
+        from.visitMethodInsn(Opcodes.INVOKEVIRTUAL, internalName, "method" + random.nextInt(nbMethods), "()V");
+      }
+    }
+    for (MethodVisitor method : methods) {
+      method.visitInsn(Opcodes.RETURN);
+      method.visitMaxs(0, 0);
+      method.visitEnd();
+    }
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private static void readField(MethodVisitor method, String owner, int field) {
+    method.visitFieldInsn(Opcodes.GETFIELD, owner, "field" + field, "I");
+    method.visitInsn(Opcodes.POP);
+  }
+
+  private static class SingleClassLoader extends ClassLoader {
+
+    private final String resourceName;
+    private final byte[] bytecode;
+
+    SingleClassLoader(String resourceName, byte[] bytecode) {
+      super(SyntheticClasses.class.getClassLoader());
+      this.resourceName = resourceName;
+      this.bytecode = bytecode;
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String name) {
+      return resourceName.equals(name) ? new ByteArrayInputStream(bytecode) : super.getResourceAsStream(name);
+    }
+
+  }
+
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.java;
 
+import com.google.common.base.Supplier;
 import com.sonar.sslr.api.CommentAnalyser;
 import com.sonar.sslr.impl.Parser;
 import com.sonar.sslr.squid.SquidAstVisitor;
@@ -81,10 +82,20 @@ public final class JavaAstScanner {
     return (SourceFile) sources.iterator().next();
   }
 
-  public static AstScanner create(JavaConfiguration conf, SquidAstVisitor<LexerlessGrammar>... visitors) {
-    final Parser<LexerlessGrammar> parser = new ParserAdapter<LexerlessGrammar>(conf.getCharset(), JavaGrammar.createGrammar());
-
-    AstScanner builder = new AstScanner(parser);
+  public static AstScanner create(final JavaConfiguration conf, SquidAstVisitor<LexerlessGrammar>... visitors) {
+    final Parser<LexerlessGrammar> parser = createParser(conf);
+
+    AstScanner builder = new AstScanner(parser, conf.getCharset());
+    if (conf.getAnalysisThreads() > 1 || conf.getFileTimeBudget() > 0) {
+      builder.setParallelism(conf.getAnalysisThreads(), new Supplier<Parser<LexerlessGrammar>>() {
+        @Override
+        public Parser<LexerlessGrammar> get() {
+          return createParser(conf);
+        }
+      });
+    }
+    builder.setFileTimeBudget(conf.getFileTimeBudget());
+    builder.setCheckTimeBudget(conf.getCheckTimeBudget(), conf.getCheckMaxOverruns());
 
     /* Packages */
     builder.withSquidAstVisitor(new PackageVisitor());
@@ -129,7 +140,7 @@ public final class JavaAstScanner {
 
     /* Metrics */
 
-    builder.withSquidAstVisitor(new LinesVisitor(conf.getCharset()));
+    builder.withSquidAstVisitor(new LinesVisitor());
 
     builder.withSquidAstVisitor(new LinesOfCodeVisitor());
     builder.withSquidAstVisitor(new CommentLinesVisitor());
@@ -171,4 +182,8 @@ public final class JavaAstScanner {
     return builder;
   }
 
+  private static Parser<LexerlessGrammar> createParser(JavaConfiguration conf) {
+    return new ParserAdapter<LexerlessGrammar>(conf.getCharset(), JavaGrammar.createGrammar());
+  }
+
 }
@@ -21,6 +21,8 @@ package org.sonar.java;
 
 import com.google.common.collect.Sets;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.nio.charset.Charset;
 import java.util.Set;
 
@@ -29,6 +31,14 @@ public class JavaConfiguration {
   private final Charset charset;
   private final Set<String> fieldsToExcludeFromLcom4Calculation = Sets.newHashSet();
   private boolean analyzePropertyAccessors = true;
+  private int analysisThreads = 1;
+  private long fileTimeBudget = 0;
+  private long checkTimeBudget = 0;
+  private int checkMaxOverruns = 0;
+  private File cacheDirectory;
+  private boolean streamingMode = false;
+  private int memoryCeiling = 0;
+  private File profilingReport;
 
   public JavaConfiguration(Charset charset) {
     this.charset = charset;
@@ -54,4 +64,91 @@ public class JavaConfiguration {
     this.analyzePropertyAccessors = analyzePropertyAccessors;
   }
 
+  public int getAnalysisThreads() {
+    return analysisThreads;
+  }
+
+  public void setAnalysisThreads(int analysisThreads) {
+    this.analysisThreads = analysisThreads;
+  }
+
+  /**
+   * @return maximal time of parsing of a file in milliseconds, or zero if there is no limit
+   */
+  public long getFileTimeBudget() {
+    return fileTimeBudget;
+  }
+
+  public void setFileTimeBudget(long fileTimeBudget) {
+    this.fileTimeBudget = fileTimeBudget;
+  }
+
+  /**
+   * @return maximal CPU time of a check on a file in milliseconds, or zero if there is no limit
+   */
+  public long getCheckTimeBudget() {
+    return checkTimeBudget;
+  }
+
+  public void setCheckTimeBudget(long checkTimeBudget) {
+    this.checkTimeBudget = checkTimeBudget;
+  }
+
+  /**
+   * @return number of files, on which a check can exceed its time budget before it is disabled, or zero if checks are never disabled
+   */
+  public int getCheckMaxOverruns() {
+    return checkMaxOverruns;
+  }
+
+  public void setCheckMaxOverruns(int checkMaxOverruns) {
+    this.checkMaxOverruns = checkMaxOverruns;
+  }
+
+  /**
+   * @return directory to store results of analysis of files between analyses, or null if such cache is disabled
+   */
+  @Nullable
+  public File getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  public void setCacheDirectory(@Nullable File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  /**
+   * In streaming mode results are released from memory as soon as they are saved.
+   */
+  public boolean isStreamingMode() {
+    return streamingMode;
+  }
+
+  public void setStreamingMode(boolean streamingMode) {
+    this.streamingMode = streamingMode;
+  }
+
+  /**
+   * @return maximal amount of heap in megabytes, which can be used by analysis, or zero if there is no limit
+   */
+  public int getMemoryCeiling() {
+    return memoryCeiling;
+  }
+
+  public void setMemoryCeiling(int memoryCeiling) {
+    this.memoryCeiling = memoryCeiling;
+  }
+
+  /**
+   * @return file to write time spent in each visitor in JSON, or null if such measurement is disabled
+   */
+  @Nullable
+  public File getProfilingReport() {
+    return profilingReport;
+  }
+
+  public void setProfilingReport(@Nullable File profilingReport) {
+    this.profilingReport = profilingReport;
+  }
+
 }
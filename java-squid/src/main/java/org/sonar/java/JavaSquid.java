@@ -22,22 +22,27 @@ package org.sonar.java;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.resources.InputFile;
 import org.sonar.api.resources.InputFileUtils;
 import org.sonar.api.utils.TimeProfiler;
 import org.sonar.graph.DirectedGraph;
 import org.sonar.graph.DirectedGraphAccessor;
 import org.sonar.java.ast.AstScanner;
+import org.sonar.java.ast.cache.AnalysisCache;
 import org.sonar.java.ast.visitors.FileLinesVisitor;
 import org.sonar.java.ast.visitors.SymbolTableVisitor;
 import org.sonar.java.ast.visitors.SyntaxHighlighterVisitor;
 import org.sonar.java.bytecode.BytecodeScanner;
+import org.sonar.java.bytecode.asm.BytecodeSummaryCache;
 import org.sonar.java.bytecode.visitor.DITVisitor;
 import org.sonar.java.bytecode.visitor.DependenciesVisitor;
 import org.sonar.java.bytecode.visitor.LCOM4Visitor;
 import org.sonar.java.bytecode.visitor.NOCVisitor;
 import org.sonar.java.bytecode.visitor.RFCVisitor;
 import org.sonar.java.model.VisitorsBridge;
+import org.sonar.java.profiling.VisitorsProfiler;
 import org.sonar.squid.api.CodeVisitor;
 import org.sonar.squid.api.Query;
 import org.sonar.squid.api.SourceCode;
@@ -48,6 +53,7 @@ import org.sonar.squid.indexer.SquidIndex;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -55,10 +61,16 @@ import java.util.Set;
 
 public class JavaSquid implements DirectedGraphAccessor<SourceCode, SourceCodeEdge>, SourceCodeSearchEngine {
 
+  private static final Logger LOG = LoggerFactory.getLogger(JavaSquid.class);
+
   private final SquidIndex squidIndex;
   private final AstScanner astScanner;
   private final BytecodeScanner bytecodeScanner;
   private final DirectedGraph<SourceCode, SourceCodeEdge> graph = new DirectedGraph<SourceCode, SourceCodeEdge>();
+  private final MemoryMonitor memoryMonitor;
+  private final boolean streamingMode;
+  private final VisitorsProfiler profiler;
+  private final File profilingReport;
 
   private boolean bytecodeScanned = false;
 
@@ -68,19 +80,38 @@ public class JavaSquid implements DirectedGraphAccessor<SourceCode, SourceCodeEd
   }
 
   public JavaSquid(JavaConfiguration conf, @Nullable SonarComponents sonarComponents, CodeVisitor... visitors) {
+    profilingReport = conf.getProfilingReport();
+    profiler = profilingReport == null ? null : new VisitorsProfiler();
+
     astScanner = JavaAstScanner.create(conf);
+    astScanner.setProfiler(profiler);
     if (sonarComponents != null) {
-      astScanner.accept(new FileLinesVisitor(sonarComponents.getFileLinesContextFactory(), conf.getCharset()));
-      astScanner.accept(new SyntaxHighlighterVisitor(sonarComponents.getResourcePerspectives(), conf.getCharset()));
+      astScanner.accept(new FileLinesVisitor(sonarComponents.getFileLinesContextFactory()));
+      astScanner.accept(new SyntaxHighlighterVisitor(sonarComponents.getResourcePerspectives()));
       astScanner.accept(new SymbolTableVisitor(sonarComponents.getResourcePerspectives()));
 
-      astScanner.accept(new VisitorsBridge(sonarComponents.getResourcePerspectives(), Arrays.asList(visitors)));
+      VisitorsBridge visitorsBridge = new VisitorsBridge(sonarComponents.getResourcePerspectives(), Arrays.asList(visitors));
+      visitorsBridge.setProfiler(profiler);
+      astScanner.accept(visitorsBridge);
+    }
+
+    if (conf.getCacheDirectory() != null) {
+      astScanner.setCache(new AnalysisCache(conf.getCacheDirectory(), AnalysisCache.fingerprint(conf, sonarComponents != null, Arrays.asList(visitors))));
     }
 
+    memoryMonitor = new MemoryMonitor(conf.getMemoryCeiling());
+    astScanner.setMemoryMonitor(memoryMonitor);
+    streamingMode = conf.isStreamingMode();
+
     // TODO unchecked cast
     squidIndex = (SquidIndex) astScanner.getIndex();
 
     bytecodeScanner = new BytecodeScanner(squidIndex);
+    bytecodeScanner.setProfiler(profiler);
+    bytecodeScanner.setParallelism(conf.getAnalysisThreads());
+    if (conf.getCacheDirectory() != null) {
+      bytecodeScanner.setSummaryCache(new BytecodeSummaryCache(new File(conf.getCacheDirectory(), "bytecode")));
+    }
     bytecodeScanner.accept(new DITVisitor());
     bytecodeScanner.accept(new RFCVisitor());
     bytecodeScanner.accept(new NOCVisitor());
@@ -109,12 +140,26 @@ public class JavaSquid implements DirectedGraphAccessor<SourceCode, SourceCodeEd
   public void scan(Collection<InputFile> sourceFiles, Collection<File> bytecodeFilesOrDirectories) {
     scanSources(sourceFiles);
     scanBytecode(bytecodeFilesOrDirectories);
+    if (profiler != null) {
+      reportProfiling();
+    }
+  }
+
+  private void reportProfiling() {
+    LOG.info(profiler.report());
+    try {
+      profiler.writeJson(profilingReport);
+      LOG.info("Time spent in visitors of Java analysis written to " + profilingReport.getAbsolutePath());
+    } catch (IOException e) {
+      LOG.warn("Unable to write time spent in visitors of Java analysis to " + profilingReport.getAbsolutePath(), e);
+    }
   }
 
   private void scanSources(Collection<InputFile> sourceFiles) {
     TimeProfiler profiler = new TimeProfiler(getClass()).start("Java AST scan");
     astScanner.scan(sourceFiles);
     profiler.stop();
+    memoryMonitor.check("decorating results of Java AST scan");
   }
 
   private void scanBytecode(Collection<File> bytecodeFilesOrDirectories) {
@@ -124,6 +169,7 @@ public class JavaSquid implements DirectedGraphAccessor<SourceCode, SourceCodeEd
       bytecodeScanner.scan(bytecodeFilesOrDirectories);
       bytecodeScanned = true;
       profiler.stop();
+      memoryMonitor.check("finishing Java bytecode scan");
     } else {
       bytecodeScanned = false;
     }
@@ -147,6 +193,17 @@ public class JavaSquid implements DirectedGraphAccessor<SourceCode, SourceCodeEd
     return bytecodeScanned;
   }
 
+  public MemoryMonitor getMemoryMonitor() {
+    return memoryMonitor;
+  }
+
+  /**
+   * @see JavaConfiguration#isStreamingMode()
+   */
+  public boolean isStreamingMode() {
+    return streamingMode;
+  }
+
   public SquidIndex getIndex() {
     return squidIndex;
   }
@@ -0,0 +1,141 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.squid.api.AnalysisException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of peak usage of heap during analysis and enforces an optional ceiling on it.
+ * Usage is sampled on each call of {@link #check(String)}, i.e. after each analyzed file and after each stage of analysis.
+ */
+public class MemoryMonitor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MemoryMonitor.class);
+  private static final long MB = 1024L * 1024L;
+
+  private static final long MIN_GC_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final MemoryMXBean memoryBean;
+  private final List<MemoryPoolMXBean> heapPools;
+  private final long ceiling;
+  private long peak = 0;
+  private long lastGc;
+  private long usageAfterGc;
+
+  /**
+   * @param ceilingInMegabytes maximal amount of used heap, zero to only track peak usage
+   */
+  public MemoryMonitor(int ceilingInMegabytes) {
+    this(ManagementFactory.getMemoryMXBean(), ManagementFactory.getMemoryPoolMXBeans(), ceilingInMegabytes);
+  }
+
+  @VisibleForTesting
+  MemoryMonitor(MemoryMXBean memoryBean, List<MemoryPoolMXBean> pools, int ceilingInMegabytes) {
+    Preconditions.checkArgument(ceilingInMegabytes >= 0, "Memory ceiling must not be negative, but was " + ceilingInMegabytes);
+    this.memoryBean = memoryBean;
+    this.heapPools = Lists.newArrayList();
+    for (MemoryPoolMXBean pool : pools) {
+      if (pool.getType() == MemoryType.HEAP) {
+        heapPools.add(pool);
+      }
+    }
+    this.ceiling = ceilingInMegabytes * MB;
+  }
+
+  /**
+   * Records current usage of heap. When it is above the ceiling, usage after the last garbage collection is checked,
+   * and if it is also above the ceiling, then analysis fails instead of running out of memory later.
+   *
+   * @param stage description of current stage of analysis for the error message
+   */
+  public void check(String stage) {
+    long used = sample();
+    if (ceiling > 0 && used > ceiling) {
+      used = getUsageAfterCollection();
+      if (used > ceiling) {
+        throw new AnalysisException("Java analysis uses " + used / MB + " MB of heap, which exceeds the ceiling of " + ceiling / MB + " MB, " +
+          "while " + stage + ". Increase the ceiling or the maximal heap size of the JVM.");
+      }
+    }
+  }
+
+  /**
+   * Sums usages of heap pools after their last collection, so that no collection has to be requested.
+   * Only when the JVM doesn't provide them, a collection is requested, at most once per interval, and its result is reused in between.
+   */
+  private long getUsageAfterCollection() {
+    long result = 0;
+    boolean provided = false;
+    for (MemoryPoolMXBean pool : heapPools) {
+      MemoryUsage usage = pool.getCollectionUsage();
+      if (usage != null) {
+        provided = true;
+        result += usage.getUsed();
+      }
+    }
+    if (provided) {
+      return result;
+    }
+    long now = System.nanoTime();
+    if (lastGc == 0 || now - lastGc >= MIN_GC_INTERVAL_NANOS) {
+      lastGc = now;
+      memoryBean.gc();
+      usageAfterGc = sample();
+    }
+    return usageAfterGc;
+  }
+
+  private long sample() {
+    long used = memoryBean.getHeapMemoryUsage().getUsed();
+    if (used > peak) {
+      peak = used;
+    }
+    return used;
+  }
+
+  /**
+   * @return peak usage of heap in bytes among all samples
+   */
+  public long getPeakHeapUsage() {
+    return peak;
+  }
+
+  public long getPeakHeapUsageInMegabytes() {
+    return peak / MB;
+  }
+
+  public void logPeakHeapUsage() {
+    LOG.info("Peak heap usage during Java analysis: " + peak / MB + " MB" + (ceiling > 0 ? " (ceiling " + ceiling / MB + " MB)" : ""));
+  }
+
+}
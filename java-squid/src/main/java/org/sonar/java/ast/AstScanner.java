@@ -19,8 +19,13 @@
  */
 package org.sonar.java.ast;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstVisitor;
 import com.sonar.sslr.api.AuditListener;
 import com.sonar.sslr.api.CommentAnalyser;
 import com.sonar.sslr.api.Grammar;
@@ -31,21 +36,44 @@ import com.sonar.sslr.squid.SquidAstVisitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.resources.InputFile;
+import org.sonar.java.MemoryMonitor;
 import org.sonar.java.ProgressReport;
 import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.java.ast.cache.AnalysisCache;
+import org.sonar.java.ast.cache.CachedSourceFile;
+import org.sonar.java.ast.visitors.DegradedModeVisitor;
+import org.sonar.java.ast.visitors.SourceFileContent;
 import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.java.profiling.BudgetedAstVisitor;
+import org.sonar.java.profiling.ProfiledAstVisitor;
+import org.sonar.java.profiling.VisitorsProfiler;
 import org.sonar.squid.api.AnalysisException;
+import org.sonar.squid.api.CodeCheck;
 import org.sonar.squid.api.CodeVisitor;
 import org.sonar.squid.api.SourceCodeSearchEngine;
 import org.sonar.squid.api.SourceCodeTreeDecorator;
+import org.sonar.squid.api.SourceFile;
 import org.sonar.squid.api.SourceProject;
 import org.sonar.squid.indexer.SquidIndex;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Replacement for {@link com.sonar.sslr.squid.AstScanner<JavaGrammar>}.
@@ -57,11 +85,77 @@ public class AstScanner {
   private final SquidIndex index = new SquidIndex();
   private final List<SquidAstVisitor<LexerlessGrammar>> visitors = Lists.newArrayList();
   private final List<AuditListener> auditListeners = Lists.newArrayList();
+  private final List<BudgetedAstVisitor> budgetedChecks = Lists.newArrayList();
   private final Parser<LexerlessGrammar> parser;
+  private final Charset charset;
   private CommentAnalyser commentAnalyser;
+  private int nbThreads = 1;
+  private Supplier<Parser<LexerlessGrammar>> parserFactory;
+  private AnalysisCache cache;
+  private MemoryMonitor memoryMonitor;
+  private VisitorsProfiler profiler;
+  private long fileTimeBudget = 0;
+  private long checkTimeBudget = 0;
+  private int checkMaxOverruns = 0;
+  private int compensatedParses = 0;
 
-  public AstScanner(Parser<LexerlessGrammar> parser) {
+  public AstScanner(Parser<LexerlessGrammar> parser, Charset charset) {
     this.parser = parser;
+    this.charset = charset;
+  }
+
+  /**
+   * Enables parsing of files on a pool of {@code nbThreads} workers, each of them using its own parser created by {@code parserFactory}.
+   * Visitors share the same {@link VisitorContext} and the same tree of {@link org.sonar.squid.api.SourceCode}, so they are still
+   * executed on the calling thread, one file after another and in the order of the given files: results are the same as with sequential scan.
+   */
+  public void setParallelism(int nbThreads, Supplier<Parser<LexerlessGrammar>> parserFactory) {
+    Preconditions.checkArgument(nbThreads > 0, "Number of threads must be greater than zero, but was " + nbThreads);
+    this.nbThreads = nbThreads;
+    this.parserFactory = parserFactory;
+  }
+
+  /**
+   * Limits time of parsing of each file to {@code fileTimeBudget} milliseconds, zero meaning no limit.
+   * A file, which exceeds this budget, is analyzed in degraded mode: only visitors implementing {@link DegradedModeVisitor} are executed,
+   * without AST. Parsing is done by parsers created by factory given to {@link #setParallelism(int, Supplier)}.
+   */
+  public void setFileTimeBudget(long fileTimeBudget) {
+    Preconditions.checkArgument(fileTimeBudget >= 0, "Time budget must not be negative, but was " + fileTimeBudget);
+    this.fileTimeBudget = fileTimeBudget;
+  }
+
+  /**
+   * Limits CPU time spent by each visitor implementing {@link CodeCheck} on each file to {@code checkTimeBudget} milliseconds, zero meaning no limit.
+   * Issues of a check on a file, for which it exceeds this budget, are dropped, and the check is disabled after {@code maxOverruns} such files,
+   * zero meaning that it is never disabled. Results of analysis of such files are not stored in cache.
+   */
+  public void setCheckTimeBudget(long checkTimeBudget, int maxOverruns) {
+    Preconditions.checkArgument(checkTimeBudget >= 0, "Time budget must not be negative, but was " + checkTimeBudget);
+    Preconditions.checkArgument(maxOverruns >= 0, "Number of overruns must not be negative, but was " + maxOverruns);
+    this.checkTimeBudget = checkTimeBudget;
+    this.checkMaxOverruns = maxOverruns;
+  }
+
+  /**
+   * Enables reuse of results of analysis of files, which were not changed since previous analysis.
+   */
+  public void setCache(@Nullable AnalysisCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Enables check of usage of memory after each file.
+   */
+  public void setMemoryMonitor(@Nullable MemoryMonitor memoryMonitor) {
+    this.memoryMonitor = memoryMonitor;
+  }
+
+  /**
+   * Enables measurement of time spent in each visitor and in construction of syntax trees and semantic models.
+   */
+  public void setProfiler(@Nullable VisitorsProfiler profiler) {
+    this.profiler = profiler;
   }
 
   public void scan(Collection<InputFile> files) {
@@ -70,47 +164,352 @@ public class AstScanner {
     project.setSourceCodeIndexer(index);
     VisitorContext context = new VisitorContext(project);
     context.setCommentAnalyser(commentAnalyser);
+    context.setProfiler(profiler);
 
     for (SquidAstVisitor<LexerlessGrammar> visitor : visitors) {
       visitor.setContext(context);
       visitor.init();
     }
 
-    AstWalker astWalker = new AstWalker(visitors);
+    AstWalker astWalker = new AstWalker(wrap(context));
 
     ProgressReport progressReport = new ProgressReport("Report about progress of Java AST analyzer", TimeUnit.SECONDS.toMillis(10));
     progressReport.start(files.size() + " source files to be analyzed");
-    int count = 0;
-    for (InputFile inputFile : files) {
-      File file = inputFile.getFile();
+    if ((nbThreads > 1 && files.size() > 1) || fileTimeBudget > 0) {
+      Preconditions.checkState(parserFactory != null, "Parser factory is required to parse files in separate threads");
+      scanInParallel(files, context, astWalker, progressReport);
+    } else {
+      int count = 0;
+      for (InputFile inputFile : files) {
+        progressReport.message(count + "/" + files.size() + " files analyzed, current is " + inputFile.getFile().getAbsolutePath());
+        count++;
+
+        walkAndVisit(context, astWalker, inputFile, parse(parser, inputFile));
+      }
+    }
+    progressReport.stop(files.size() + "/" + files.size() + " source files analyzed");
+
+    if (cache != null) {
+      cache.prune();
+    }
+
+    for (SquidAstVisitor<LexerlessGrammar> visitor : visitors) {
+      visitor.destroy();
+    }
+
+    SourceCodeTreeDecorator decorator = new SourceCodeTreeDecorator(project);
+    decorator.decorateWith(JavaMetric.values());
+    decorator.decorateWith(org.sonar.squid.measures.Metric.values());
+  }
+
+  private List<AstVisitor> wrap(VisitorContext context) {
+    List<AstVisitor> result = profiler == null ? Lists.<AstVisitor> newArrayList(visitors) : ProfiledAstVisitor.wrap(visitors, profiler);
+    budgetedChecks.clear();
+    if (checkTimeBudget > 0) {
+      for (int i = 0; i < visitors.size(); i++) {
+        if (visitors.get(i) instanceof CodeCheck) {
+          BudgetedAstVisitor budgetedCheck = BudgetedAstVisitor.create(result.get(i), (CodeCheck) visitors.get(i), context, checkTimeBudget, checkMaxOverruns);
+          budgetedChecks.add(budgetedCheck);
+          result.set(i, budgetedCheck);
+        }
+      }
+    }
+    return result;
+  }
+
+  private boolean isAnyCheckQuarantined() {
+    for (BudgetedAstVisitor budgetedCheck : budgetedChecks) {
+      if (budgetedCheck.isQuarantined()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void scanInParallel(Collection<InputFile> files, VisitorContext context, AstWalker astWalker, ProgressReport progressReport) {
+    final ThreadLocal<Parser<LexerlessGrammar>> parsers = new ThreadLocal<Parser<LexerlessGrammar>>() {
+      @Override
+      protected Parser<LexerlessGrammar> initialValue() {
+        return parserFactory.get();
+      }
+    };
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(nbThreads, nbThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder()
+          .setNameFormat("Java AST parser %d")
+          .setDaemon(true)
+          .build());
+    compensatedParses = 0;
+    // Number of parsed files waiting for visitors is bounded in order to not keep too many ASTs in memory
+    int maxPendingFiles = 2 * nbThreads;
+    Deque<ParseTask> pendingFiles = new ArrayDeque<ParseTask>(maxPendingFiles);
+    Iterator<InputFile> filesToParse = files.iterator();
+    try {
+      int count = 0;
+      for (InputFile inputFile : files) {
+        while (pendingFiles.size() < maxPendingFiles && filesToParse.hasNext()) {
+          ParseTask task = new ParseTask(filesToParse.next(), parsers, executor);
+          task.future = executor.submit(task);
+          pendingFiles.add(task);
+        }
+
+        progressReport.message(count + "/" + files.size() + " files analyzed, current is " + inputFile.getFile().getAbsolutePath());
+        count++;
+
+        walkAndVisit(context, astWalker, inputFile, getParseResult(pendingFiles.poll()));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private ParseResult getParseResult(ParseTask task) {
+    try {
+      if (fileTimeBudget > 0) {
+        // Budget starts with parsing, so that time spent in queue and reading of file are not counted
+        task.parsingStarted.await();
+        long parsingStartTime = task.parsingStartTime;
+        if (parsingStartTime != 0) {
+          long remainingTime = fileTimeBudget - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - parsingStartTime);
+          try {
+            return task.future.get(Math.max(remainingTime, 0), TimeUnit.MILLISECONDS);
+          } catch (TimeoutException e) {
+            task.future.cancel(true);
+            task.compensate();
+            return ParseResult.timedOut(task.content);
+          }
+        }
+      }
+      return task.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
 
-      progressReport.message(count + "/" + files.size() + " files analyzed, current is " + file.getAbsolutePath());
-      count++;
+  /**
+   * Parsing of a file on a worker. Parser doesn't react on interruption, so a worker, whose parsing exceeded time budget, stays busy until the end
+   * of parsing: it is compensated by an additional worker until then, but pool never gets more than {@code nbThreads} additional workers.
+   */
+  private final class ParseTask implements Callable<ParseResult> {
 
-      context.setFile(file);
-      context.setInputFile(inputFile);
+    private final InputFile inputFile;
+    private final ThreadLocal<Parser<LexerlessGrammar>> parsers;
+    private final ThreadPoolExecutor executor;
+    private final CountDownLatch parsingStarted = new CountDownLatch(1);
+    private volatile long parsingStartTime;
+    private volatile SourceFileContent content;
+    private Future<ParseResult> future;
+    private boolean finished;
+    private boolean compensated;
 
+    public ParseTask(InputFile inputFile, ThreadLocal<Parser<LexerlessGrammar>> parsers, ThreadPoolExecutor executor) {
+      this.inputFile = inputFile;
+      this.parsers = parsers;
+      this.executor = executor;
+    }
+
+    @Override
+    public ParseResult call() {
       try {
-        AstNode ast = parser.parse(file);
-        astWalker.walkAndVisit(ast);
-      } catch (RecognitionException e) {
-        LOG.error("Unable to parse source file : " + file.getAbsolutePath());
-        LOG.error(e.getMessage());
+        return parse(parsers.get(), inputFile, this);
+      } finally {
+        parsingStarted.countDown();
+        finish();
+      }
+    }
+
+    void parsingStarts(SourceFileContent content) {
+      this.content = content;
+      parsingStartTime = System.nanoTime();
+      parsingStarted.countDown();
+    }
+
+    synchronized void compensate() {
+      if (!finished) {
+        compensated = growPool(executor);
+      }
+    }
+
+    private synchronized void finish() {
+      finished = true;
+      if (compensated) {
+        shrinkPool(executor);
+      }
+    }
 
-        parseErrorWalkAndVisit(e, file);
+  }
+
+  private boolean growPool(ThreadPoolExecutor executor) {
+    synchronized (executor) {
+      if (compensatedParses >= nbThreads) {
+        return false;
+      }
+      compensatedParses++;
+      executor.setMaximumPoolSize(executor.getMaximumPoolSize() + 1);
+      executor.setCorePoolSize(executor.getCorePoolSize() + 1);
+      return true;
+    }
+  }
+
+  private void shrinkPool(ThreadPoolExecutor executor) {
+    synchronized (executor) {
+      compensatedParses--;
+      executor.setCorePoolSize(executor.getCorePoolSize() - 1);
+      executor.setMaximumPoolSize(executor.getMaximumPoolSize() - 1);
+    }
+  }
+
+  private SourceFileContent readContent(File file) {
+    try {
+      return SourceFileContent.read(file, charset);
+    } catch (IOException e) {
+      throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+    }
+  }
+
+  private ParseResult parse(Parser<LexerlessGrammar> parser, InputFile inputFile) {
+    return parse(parser, inputFile, null);
+  }
+
+  private ParseResult parse(Parser<LexerlessGrammar> parser, InputFile inputFile, @Nullable ParseTask task) {
+    File file = inputFile.getFile();
+    SourceFileContent content = readContent(file);
+    AnalysisCache.Entry cacheEntry = cache == null ? null : cache.lookup(inputFile, content);
+    if (cacheEntry != null && cacheEntry.isHit()) {
+      try {
+        return new ParseResult(content, CachedSourceFile.read(cacheEntry.getData()), cacheEntry);
+      } catch (IOException e) {
+        LOG.warn("Unable to read results of previous analysis of " + file.getAbsolutePath(), e);
+      }
+    }
+    if (task != null) {
+      task.parsingStarts(content);
+    }
+    try {
+      return new ParseResult(content, parser.parse(content.getContent()), null, cacheEntry);
+    } catch (RecognitionException e) {
+      return new ParseResult(content, null, e, null);
+    } catch (Exception e) {
+      throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+    }
+  }
+
+  private void walkAndVisit(VisitorContext context, AstWalker astWalker, InputFile inputFile, ParseResult parseResult) {
+    File file = inputFile.getFile();
+    context.setFile(file);
+    context.setInputFile(inputFile);
+    context.setFileContent(parseResult.content);
+    context.setAst(parseResult.ast);
+
+    if (parseResult.cachedSourceFile != null) {
+      try {
+        parseResult.cachedSourceFile.restore(context, visitors);
+      } catch (Exception e) {
+        throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+      }
+    } else if (parseResult.timedOut) {
+      LOG.warn("Parsing of source file " + file.getAbsolutePath() + " exceeded time budget of " + fileTimeBudget + " ms, only basic metrics are computed");
+
+      degradedWalkAndVisit(context, file);
+    } else if (parseResult.recognitionException != null) {
+      LOG.error("Unable to parse source file : " + file.getAbsolutePath());
+      LOG.error(parseResult.recognitionException.getMessage());
+
+      parseErrorWalkAndVisit(parseResult.recognitionException, file);
+    } else {
+      try {
+        astWalker.walkAndVisit(parseResult.ast);
       } catch (Exception e) {
         throw new AnalysisException(getAnalyisExceptionMessage(file), e);
       }
+      // Results of a file, for which a check was quarantined, would be incomplete
+      if (parseResult.cacheEntry != null && !isAnyCheckQuarantined()) {
+        storeInCache(context, parseResult.cacheEntry);
+      }
     }
-    progressReport.stop(files.size() + "/" + files.size() + " source files analyzed");
 
+    if (memoryMonitor != null) {
+      memoryMonitor.check("analyzing file " + file.getAbsolutePath());
+    }
+  }
+
+  private void storeInCache(VisitorContext context, AnalysisCache.Entry cacheEntry) {
+    SourceFile sourceFile = context.getSourceFile();
+    if (sourceFile == null) {
+      return;
+    }
+    try {
+      byte[] data = CachedSourceFile.write(sourceFile, visitors);
+      if (data != null) {
+        cache.store(cacheEntry, data);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to store results of analysis of " + context.getFile().getAbsolutePath(), e);
+    }
+  }
+
+  private void degradedWalkAndVisit(VisitorContext context, File file) {
+    List<SquidAstVisitor<LexerlessGrammar>> degradedModeVisitors = Lists.newArrayList();
     for (SquidAstVisitor<LexerlessGrammar> visitor : visitors) {
-      visitor.destroy();
+      if (visitor instanceof DegradedModeVisitor) {
+        degradedModeVisitors.add(visitor);
+      }
+    }
+    context.setDegradedMode(true);
+    try {
+      for (SquidAstVisitor<LexerlessGrammar> visitor : degradedModeVisitors) {
+        visitor.visitFile(null);
+      }
+
+      SourceFile sourceFile = context.getSourceFile();
+      if (sourceFile != null) {
+        sourceFile.setMeasure(JavaMetric.DEGRADED_FILES, 1);
+      }
+
+      for (SquidAstVisitor<LexerlessGrammar> visitor : Lists.reverse(degradedModeVisitors)) {
+        visitor.leaveFile(null);
+      }
+    } catch (Exception e) {
+      throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+    } finally {
+      context.setDegradedMode(false);
+    }
+  }
+
+  private static class ParseResult {
+
+    private final SourceFileContent content;
+    private final AstNode ast;
+    private final RecognitionException recognitionException;
+    private final CachedSourceFile cachedSourceFile;
+    private final AnalysisCache.Entry cacheEntry;
+    private final boolean timedOut;
+
+    public ParseResult(SourceFileContent content, @Nullable AstNode ast, @Nullable RecognitionException recognitionException,
+        @Nullable AnalysisCache.Entry cacheEntry) {
+      this(content, ast, recognitionException, null, cacheEntry, false);
+    }
+
+    public ParseResult(SourceFileContent content, CachedSourceFile cachedSourceFile, AnalysisCache.Entry cacheEntry) {
+      this(content, null, null, cachedSourceFile, cacheEntry, false);
+    }
+
+    private ParseResult(SourceFileContent content, @Nullable AstNode ast, @Nullable RecognitionException recognitionException,
+        @Nullable CachedSourceFile cachedSourceFile, @Nullable AnalysisCache.Entry cacheEntry, boolean timedOut) {
+      this.content = content;
+      this.ast = ast;
+      this.recognitionException = recognitionException;
+      this.cachedSourceFile = cachedSourceFile;
+      this.cacheEntry = cacheEntry;
+      this.timedOut = timedOut;
+    }
+
+    public static ParseResult timedOut(SourceFileContent content) {
+      return new ParseResult(content, null, null, null, null, true);
     }
 
-    SourceCodeTreeDecorator decorator = new SourceCodeTreeDecorator(project);
-    decorator.decorateWith(JavaMetric.values());
-    decorator.decorateWith(org.sonar.squid.measures.Metric.values());
   }
 
   private void parseErrorWalkAndVisit(RecognitionException e, File file) {
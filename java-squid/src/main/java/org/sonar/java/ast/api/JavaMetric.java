@@ -32,7 +32,9 @@ public enum JavaMetric implements MetricDef {
   COMPLEXITY,
   METHODS,
   CLASSES,
-  PACKAGES;
+  PACKAGES,
+  DEGRADED_FILES,
+  QUARANTINED_CHECKS;
 
   private boolean aggregateIfThereIsAlreadyAValue = true;
 
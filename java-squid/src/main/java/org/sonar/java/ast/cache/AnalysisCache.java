@@ -0,0 +1,247 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.resources.InputFile;
+import org.sonar.check.RuleProperty;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.ast.visitors.SourceFileContent;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of results of analysis of source files, which allows to not parse files,
+ * which were not changed since previous analysis with same configuration and same set of checks.
+ * Entries are stored in a directory, one file per source file. Entries of files, which were not looked up during analysis, are removed by {@link #prune()}.
+ */
+public class AnalysisCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisCache.class);
+
+  private static final int FORMAT_VERSION = 3;
+
+  private final File directory;
+  private final String fingerprint;
+  private final Set<File> lookedUpEntries = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+  public AnalysisCache(File directory, String fingerprint) {
+    this.directory = directory;
+    this.fingerprint = fingerprint;
+  }
+
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * Safe to be invoked concurrently for different files.
+   */
+  public Entry lookup(InputFile inputFile, SourceFileContent content) {
+    File file = inputFile.getFile();
+    // charset is part of fingerprint, so decoded content can be used instead of bytes
+    MessageDigest digest = newDigest();
+    digest.update(String.valueOf(inputFile.getRelativePath()).getBytes(Charsets.UTF_8));
+    digest.update(content.getContent().getBytes(Charsets.UTF_8));
+    String contentHash = toHex(digest.digest());
+
+    File entryFile = entryFile(file);
+    lookedUpEntries.add(entryFile);
+    byte[] data = null;
+    if (entryFile.isFile()) {
+      try {
+        data = read(entryFile, contentHash);
+      } catch (IOException e) {
+        LOG.warn("Unable to read analysis cache entry " + entryFile.getAbsolutePath(), e);
+      }
+    }
+    return new Entry(entryFile, contentHash, data);
+  }
+
+  @Nullable
+  private byte[] read(File entryFile, String contentHash) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.toByteArray(entryFile)));
+    if (in.readInt() != FORMAT_VERSION || !fingerprint.equals(in.readUTF()) || !contentHash.equals(in.readUTF())) {
+      return null;
+    }
+    byte[] data = new byte[in.readInt()];
+    in.readFully(data);
+    return data;
+  }
+
+  public void store(Entry entry, byte[] data) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + 128);
+    DataOutputStream out = new DataOutputStream(bytes);
+    File tmpFile = new File(entry.file.getPath() + ".tmp");
+    try {
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(fingerprint);
+      out.writeUTF(entry.contentHash);
+      out.writeInt(data.length);
+      out.write(data);
+      out.flush();
+
+      Files.createParentDirs(tmpFile);
+      Files.write(bytes.toByteArray(), tmpFile);
+      // rename in order to never expose partially written entry to another analysis
+      if (!tmpFile.renameTo(entry.file) && !(entry.file.delete() && tmpFile.renameTo(entry.file))) {
+        throw new IOException("Unable to rename " + tmpFile + " to " + entry.file);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to write analysis cache entry " + entry.file.getAbsolutePath(), e);
+    } finally {
+      Closeables.closeQuietly(out);
+    }
+  }
+
+  /**
+   * Removes entries of files, which were not looked up since creation of this cache, i.e. files, which were removed from analysis.
+   * Must be invoked only once all files of analysis were looked up.
+   */
+  public void prune() {
+    int removed = 0;
+    File[] entryDirectories = directory.listFiles();
+    if (entryDirectories == null) {
+      return;
+    }
+    for (File entryDirectory : entryDirectories) {
+      // other caches can share the directory
+      if (!entryDirectory.isDirectory() || entryDirectory.getName().length() != 2) {
+        continue;
+      }
+      for (File entryFile : entryDirectory.listFiles()) {
+        if (!lookedUpEntries.contains(entryFile)) {
+          if (entryFile.delete()) {
+            removed++;
+          } else {
+            LOG.warn("Unable to remove analysis cache entry " + entryFile.getAbsolutePath());
+          }
+        }
+      }
+      // no-op if directory is not empty
+      entryDirectory.delete();
+    }
+    LOG.debug("{} entries removed from analysis cache", removed);
+  }
+
+  private File entryFile(File file) {
+    String name = toHex(newDigest().digest(file.getAbsolutePath().getBytes(Charsets.UTF_8)));
+    return new File(new File(directory, name.substring(0, 2)), name);
+  }
+
+  /**
+   * Fingerprint of everything, which affects results of analysis of a file except its content:
+   * version of analyzer, configuration and active checks together with values of their parameters.
+   */
+  public static String fingerprint(JavaConfiguration conf, boolean withSonarComponents, Collection<?> visitors) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(FORMAT_VERSION).append('\n');
+    sb.append(AnalysisCache.class.getPackage().getImplementationVersion()).append('\n');
+    sb.append(conf.getCharset().name()).append('\n');
+    sb.append(conf.isAnalysePropertyAccessors()).append('\n');
+    sb.append(Sets.newTreeSet(conf.getFieldsToExcludeFromLcom4Calculation())).append('\n');
+    sb.append(withSonarComponents).append('\n');
+    for (Object visitor : visitors) {
+      sb.append(visitor.getClass().getName());
+      appendRuleProperties(sb, visitor);
+      sb.append('\n');
+    }
+    return toHex(newDigest().digest(sb.toString().getBytes(Charsets.UTF_8)));
+  }
+
+  private static void appendRuleProperties(StringBuilder sb, Object visitor) {
+    for (Class<?> c = visitor.getClass(); c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (field.isAnnotationPresent(RuleProperty.class)) {
+          field.setAccessible(true);
+          try {
+            sb.append(' ').append(field.getName()).append('=').append(field.get(visitor));
+          } catch (IllegalAccessException e) {
+            throw Throwables.propagate(e);
+          }
+        }
+      }
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    String hex = new BigInteger(1, bytes).toString(16);
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (int i = hex.length(); i < bytes.length * 2; i++) {
+      sb.append('0');
+    }
+    return sb.append(hex).toString();
+  }
+
+  public static final class Entry {
+
+    private final File file;
+    private final String contentHash;
+    private final byte[] data;
+
+    private Entry(File file, String contentHash, @Nullable byte[] data) {
+      this.file = file;
+      this.contentHash = contentHash;
+      this.data = data;
+    }
+
+    public boolean isHit() {
+      return data != null;
+    }
+
+    /**
+     * @return data stored for the same content of file, or null if there is no such data
+     */
+    @Nullable
+    public byte[] getData() {
+      return data;
+    }
+
+  }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Visitor, which publishes results of analysis of a file outside of the tree of {@link org.sonar.squid.api.SourceCode},
+ * and so must be able to replay them when file was not changed since previous analysis.
+ */
+public interface CacheableVisitor {
+
+  /**
+   * Invoked after {@link com.sonar.sslr.squid.SquidAstVisitor#leaveFile(com.sonar.sslr.api.AstNode)} for successfully parsed file.
+   */
+  void writeCache(DataOutput out) throws IOException;
+
+  /**
+   * Invoked instead of visit of unchanged file, {@link org.sonar.squid.api.SourceFile} restored from cache is on top of stack of context.
+   */
+  void readCache(DataInput in) throws IOException;
+
+}
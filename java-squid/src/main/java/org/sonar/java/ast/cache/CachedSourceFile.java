@@ -0,0 +1,371 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.cache;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.java.ast.visitors.PackageVisitor;
+import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.squid.api.CheckMessage;
+import org.sonar.squid.api.SourceClass;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourceMethod;
+import org.sonar.squid.api.SourcePackage;
+import org.sonar.squid.api.SourceProject;
+import org.sonar.squid.measures.Metric;
+import org.sonar.squid.measures.MetricDef;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Results of analysis of a single source file: tree of {@link SourceCode} rooted at {@link SourceFile}
+ * with measures and check messages, and data of {@link CacheableVisitor}s.
+ */
+public final class CachedSourceFile {
+
+  private static final List<MetricDef> METRICS = ImmutableList.<MetricDef> builder()
+      .add(JavaMetric.values())
+      .add(Metric.values())
+      .build();
+
+  private static final byte CLASS = 'C';
+  private static final byte METHOD = 'M';
+
+  private static final byte CHECK_VISITOR = 'V';
+  private static final byte CHECK_RULE_KEY = 'R';
+
+  private final Node sourcePackage;
+  private final Node sourceFile;
+  private final List<byte[]> visitorsData;
+
+  private CachedSourceFile(Node sourcePackage, Node sourceFile, List<byte[]> visitorsData) {
+    this.sourcePackage = sourcePackage;
+    this.sourceFile = sourceFile;
+    this.visitorsData = visitorsData;
+  }
+
+  /**
+   * @return serialized results of analysis of given file, or null if they can't be serialized
+   */
+  @Nullable
+  public static byte[] write(SourceFile sourceFile, List<SquidAstVisitor<LexerlessGrammar>> visitors) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      SourcePackage sourcePackage = sourceFile.getParent(SourcePackage.class);
+      if (sourcePackage == null) {
+        return null;
+      }
+      writeNode(out, sourcePackage, visitors, false);
+      writeNode(out, sourceFile, visitors, true);
+      out.writeInt(sourceFile.getNoSonarTagLines().size());
+      for (Integer line : sourceFile.getNoSonarTagLines()) {
+        out.writeInt(line);
+      }
+      for (SquidAstVisitor<LexerlessGrammar> visitor : visitors) {
+        if (visitor instanceof CacheableVisitor) {
+          ByteArrayOutputStream visitorBytes = new ByteArrayOutputStream();
+          DataOutputStream visitorOut = new DataOutputStream(visitorBytes);
+          ((CacheableVisitor) visitor).writeCache(visitorOut);
+          visitorOut.flush();
+          out.writeInt(visitorBytes.size());
+          out.write(visitorBytes.toByteArray());
+        }
+      }
+    } catch (NotCacheableException e) {
+      return null;
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void writeNode(DataOutput out, SourceCode sourceCode, List<SquidAstVisitor<LexerlessGrammar>> visitors, boolean withChildren)
+      throws IOException, NotCacheableException {
+    out.writeUTF(sourceCode.getKey());
+    out.writeUTF(sourceCode.getName());
+    out.writeInt(sourceCode.getStartAtLine());
+    out.writeInt(sourceCode.getEndAtLine());
+    out.writeBoolean(sourceCode.isSuppressWarnings());
+
+    List<MetricDef> metrics = Lists.newArrayList();
+    for (MetricDef metric : METRICS) {
+      if (!metric.isCalculatedMetric() && sourceCode.getDouble(metric) != 0) {
+        metrics.add(metric);
+      }
+    }
+    out.writeShort(metrics.size());
+    for (MetricDef metric : metrics) {
+      out.writeShort(METRICS.indexOf(metric));
+      out.writeDouble(sourceCode.getDouble(metric));
+    }
+
+    Set<CheckMessage> checkMessages = sourceCode.getCheckMessages();
+    out.writeInt(checkMessages == null ? 0 : checkMessages.size());
+    if (checkMessages != null) {
+      for (CheckMessage checkMessage : checkMessages) {
+        writeCheckMessage(out, checkMessage, visitors);
+      }
+    }
+
+    if (!withChildren) {
+      return;
+    }
+    Set<SourceCode> children = sourceCode.hasChildren() ? sourceCode.getChildren() : Collections.<SourceCode> emptySet();
+    out.writeInt(children.size());
+    for (SourceCode child : children) {
+      if (child.isType(SourceMethod.class)) {
+        out.writeByte(METHOD);
+      } else if (child.isType(SourceClass.class)) {
+        out.writeByte(CLASS);
+      } else {
+        throw new NotCacheableException();
+      }
+      writeNode(out, child, visitors, true);
+    }
+  }
+
+  private static void writeCheckMessage(DataOutput out, CheckMessage checkMessage, List<SquidAstVisitor<LexerlessGrammar>> visitors)
+      throws IOException, NotCacheableException {
+    Object check = checkMessage.getCheck();
+    if (check instanceof RuleKey) {
+      out.writeByte(CHECK_RULE_KEY);
+      out.writeUTF(check.toString());
+    } else {
+      int index = indexOf(visitors, check);
+      if (index == -1) {
+        throw new NotCacheableException();
+      }
+      out.writeByte(CHECK_VISITOR);
+      out.writeInt(index);
+    }
+    out.writeUTF(checkMessage.formatDefaultMessage());
+    Integer line = checkMessage.getLine();
+    out.writeInt(line == null ? -1 : line);
+    Double cost = checkMessage.getCost();
+    out.writeBoolean(cost != null);
+    if (cost != null) {
+      out.writeDouble(cost);
+    }
+    out.writeBoolean(checkMessage.isBypassExclusion());
+  }
+
+  private static int indexOf(List<?> visitors, Object check) {
+    for (int i = 0; i < visitors.size(); i++) {
+      if (visitors.get(i) == check) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public static CachedSourceFile read(byte[] data) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+    Node sourcePackage = readNode(in, false);
+    Node sourceFile = readNode(in, true);
+    int noSonarTagLines = in.readInt();
+    for (int i = 0; i < noSonarTagLines; i++) {
+      sourceFile.noSonarTagLines.add(in.readInt());
+    }
+    List<byte[]> visitorsData = Lists.newArrayList();
+    while (in.available() > 0) {
+      byte[] visitorData = new byte[in.readInt()];
+      in.readFully(visitorData);
+      visitorsData.add(visitorData);
+    }
+    return new CachedSourceFile(sourcePackage, sourceFile, visitorsData);
+  }
+
+  private static Node readNode(DataInput in, boolean withChildren) throws IOException {
+    Node node = new Node();
+    node.key = in.readUTF();
+    node.name = in.readUTF();
+    node.startAtLine = in.readInt();
+    node.endAtLine = in.readInt();
+    node.suppressWarnings = in.readBoolean();
+
+    int metrics = in.readShort();
+    node.metrics = new MetricDef[metrics];
+    node.values = new double[metrics];
+    for (int i = 0; i < metrics; i++) {
+      node.metrics[i] = METRICS.get(in.readShort());
+      node.values[i] = in.readDouble();
+    }
+
+    int checkMessages = in.readInt();
+    for (int i = 0; i < checkMessages; i++) {
+      node.checkMessages.add(readCheckMessage(in));
+    }
+
+    if (withChildren) {
+      int children = in.readInt();
+      for (int i = 0; i < children; i++) {
+        byte kind = in.readByte();
+        Node child = readNode(in, true);
+        child.method = kind == METHOD;
+        node.children.add(child);
+      }
+    }
+    return node;
+  }
+
+  private static CachedCheckMessage readCheckMessage(DataInput in) throws IOException {
+    CachedCheckMessage checkMessage = new CachedCheckMessage();
+    byte kind = in.readByte();
+    if (kind == CHECK_RULE_KEY) {
+      checkMessage.ruleKey = RuleKey.parse(in.readUTF());
+    } else {
+      checkMessage.visitorIndex = in.readInt();
+    }
+    checkMessage.message = in.readUTF();
+    checkMessage.line = in.readInt();
+    if (in.readBoolean()) {
+      checkMessage.cost = in.readDouble();
+    }
+    checkMessage.bypassExclusion = in.readBoolean();
+    return checkMessage;
+  }
+
+  /**
+   * Adds restored {@link SourceFile} to the tree in the same way as visitors do, and replays data of {@link CacheableVisitor}s.
+   * Measures and messages of package are restored only by the first file of package, which is analyzed.
+   */
+  public void restore(VisitorContext context, List<SquidAstVisitor<LexerlessGrammar>> visitors) throws IOException {
+    PackageVisitor.checkPhysicalDirectory(context.getInputFile(), sourcePackage.key);
+    SourcePackage restoredPackage = findSourcePackage(context.getProject(), sourcePackage.key);
+    if (restoredPackage == null) {
+      restoredPackage = new SourcePackage(sourcePackage.key);
+      restoreMeasures(restoredPackage, sourcePackage, visitors);
+    }
+    context.addSourceCode(restoredPackage);
+
+    SourceFile restoredFile = new SourceFile(sourceFile.key, sourceFile.name);
+    restoreMeasures(restoredFile, sourceFile, visitors);
+    restoredFile.addNoSonarTagLines(sourceFile.noSonarTagLines);
+    context.addSourceCode(restoredFile);
+    for (Node child : sourceFile.children) {
+      restoreChild(context, child, visitors);
+    }
+
+    int i = 0;
+    for (SquidAstVisitor<LexerlessGrammar> visitor : visitors) {
+      if (visitor instanceof CacheableVisitor) {
+        ((CacheableVisitor) visitor).readCache(new DataInputStream(new ByteArrayInputStream(visitorsData.get(i))));
+        i++;
+      }
+    }
+
+    context.popSourceCode();
+    context.popSourceCode();
+  }
+
+  private static void restoreChild(VisitorContext context, Node node, List<SquidAstVisitor<LexerlessGrammar>> visitors) {
+    SourceCode sourceCode;
+    if (node.method) {
+      SourceClass sourceClass = context.peekSourceCode().isType(SourceClass.class)
+          ? (SourceClass) context.peekSourceCode()
+          : context.peekSourceCode().getParent(SourceClass.class);
+      sourceCode = new SourceMethod(sourceClass, node.name, node.startAtLine);
+    } else {
+      sourceCode = new SourceClass(node.key, node.name);
+    }
+    restoreMeasures(sourceCode, node, visitors);
+    context.addSourceCode(sourceCode);
+    for (Node child : node.children) {
+      restoreChild(context, child, visitors);
+    }
+    context.popSourceCode();
+  }
+
+  private static void restoreMeasures(SourceCode sourceCode, Node node, List<SquidAstVisitor<LexerlessGrammar>> visitors) {
+    sourceCode.setStartAtLine(node.startAtLine);
+    sourceCode.setEndAtLine(node.endAtLine);
+    sourceCode.setSuppressWarnings(node.suppressWarnings);
+    for (int i = 0; i < node.metrics.length; i++) {
+      sourceCode.setMeasure(node.metrics[i], node.values[i]);
+    }
+    for (CachedCheckMessage cachedCheckMessage : node.checkMessages) {
+      Object check = cachedCheckMessage.ruleKey != null ? cachedCheckMessage.ruleKey : visitors.get(cachedCheckMessage.visitorIndex);
+      CheckMessage checkMessage = new CheckMessage(check, cachedCheckMessage.message);
+      if (cachedCheckMessage.line > 0) {
+        checkMessage.setLine(cachedCheckMessage.line);
+      }
+      if (cachedCheckMessage.cost != null) {
+        checkMessage.setCost(cachedCheckMessage.cost);
+      }
+      checkMessage.setBypassExclusion(cachedCheckMessage.bypassExclusion);
+      sourceCode.log(checkMessage);
+    }
+  }
+
+  @Nullable
+  private static SourcePackage findSourcePackage(SourceProject sourceProject, String packageKey) {
+    if (sourceProject.hasChildren()) {
+      for (SourceCode child : sourceProject.getChildren()) {
+        if (child.getKey().equals(packageKey)) {
+          return (SourcePackage) child;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static class Node {
+    private String key;
+    private String name;
+    private int startAtLine;
+    private int endAtLine;
+    private boolean suppressWarnings;
+    private boolean method;
+    private MetricDef[] metrics;
+    private double[] values;
+    private final List<CachedCheckMessage> checkMessages = Lists.newArrayList();
+    private final Set<Integer> noSonarTagLines = Sets.newHashSet();
+    private final List<Node> children = Lists.newArrayList();
+  }
+
+  private static class CachedCheckMessage {
+    private RuleKey ruleKey;
+    private int visitorIndex;
+    private String message;
+    private int line;
+    private Double cost;
+    private boolean bypassExclusion;
+  }
+
+  private static class NotCacheableException extends Exception {
+  }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.CommentAnalyser;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Comments of a file, which are split on lines only once and shared by all visitors and checks.
+ * Lines, which contain patterns {@link VisitorContext#registerCommentPattern(String) registered} before analysis,
+ * are found with a single pass over each line.
+ */
+public final class CommentIndex {
+
+  private final CommentAnalyser commentAnalyser;
+  private final MultiPatternMatcher matcher;
+  private final List<Comment> comments;
+  private List<List<CommentLine>> linesByPattern;
+
+  CommentIndex(@Nullable AstNode ast, CommentAnalyser commentAnalyser, MultiPatternMatcher matcher) {
+    this.commentAnalyser = commentAnalyser;
+    this.matcher = matcher;
+    ImmutableList.Builder<Comment> builder = ImmutableList.builder();
+    if (ast != null) {
+      for (Token token : ast.getTokens()) {
+        for (Trivia trivia : token.getTrivia()) {
+          if (trivia.isComment()) {
+            builder.add(new Comment(trivia.getToken(), token));
+          }
+        }
+      }
+    }
+    this.comments = builder.build();
+  }
+
+  /**
+   * @return all comments of file in order of appearance
+   */
+  public List<Comment> getComments() {
+    return comments;
+  }
+
+  /**
+   * @return lines of comments, which contain given pattern ignoring case, in order of appearance
+   * @throws IllegalArgumentException if pattern was not registered
+   */
+  public List<CommentLine> getLinesContaining(String pattern) {
+    int index = matcher.getPatterns().indexOf(pattern);
+    Preconditions.checkArgument(index >= 0, "Pattern '%s' was not registered", pattern);
+    if (linesByPattern == null) {
+      linesByPattern = match();
+    }
+    return linesByPattern.get(index);
+  }
+
+  private List<List<CommentLine>> match() {
+    List<List<CommentLine>> result = Lists.newArrayList();
+    for (int i = 0; i < matcher.getPatterns().size(); i++) {
+      result.add(Lists.<CommentLine>newArrayList());
+    }
+    BitSet found = new BitSet();
+    for (Comment comment : comments) {
+      for (int i = 0; i < comment.lines.length; i++) {
+        found.clear();
+        if (matcher.find(comment.lines[i], found)) {
+          for (int pattern = found.nextSetBit(0); pattern >= 0; pattern = found.nextSetBit(pattern + 1)) {
+            result.get(pattern).add(new CommentLine(comment, i));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Splits text on line terminators in the same way as {@code text.split("(\r)?\n|\r", -1)}.
+   */
+  static String[] splitLines(String text) {
+    return splitLines(text, Lists.<Integer>newArrayList());
+  }
+
+  private static String[] splitLines(String text, List<Integer> offsets) {
+    List<String> lines = Lists.newArrayList();
+    int start = 0;
+    offsets.add(start);
+    int i = 0;
+    while (i < text.length()) {
+      char c = text.charAt(i);
+      if (c == '\n' || c == '\r') {
+        lines.add(text.substring(start, i));
+        i += c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n' ? 2 : 1;
+        start = i;
+        offsets.add(start);
+      } else {
+        i++;
+      }
+    }
+    lines.add(text.substring(start));
+    return lines.toArray(new String[lines.size()]);
+  }
+
+  public final class Comment {
+
+    private final Token token;
+    private final Token followingToken;
+    private final String[] lines;
+    private final int[] offsets;
+    private String[] contentLines;
+
+    private Comment(Token token, Token followingToken) {
+      this.token = token;
+      this.followingToken = followingToken;
+      List<Integer> starts = Lists.newArrayList();
+      this.lines = splitLines(token.getOriginalValue(), starts);
+      this.offsets = Ints.toArray(starts);
+    }
+
+    public Token getToken() {
+      return token;
+    }
+
+    /**
+     * @return token, to which this comment is attached as trivia
+     */
+    public Token getFollowingToken() {
+      return followingToken;
+    }
+
+    public int getLine() {
+      return token.getLine();
+    }
+
+    /**
+     * @return lines of this comment including delimiters of comment
+     */
+    public String[] getLines() {
+      return lines;
+    }
+
+    /**
+     * @return offset of given line from the beginning of this comment
+     */
+    public int getOffset(int index) {
+      return offsets[index];
+    }
+
+    /**
+     * @return lines of this comment without delimiters of comment
+     */
+    public String[] getContentLines() {
+      if (contentLines == null) {
+        contentLines = splitLines(commentAnalyser.getContents(token.getOriginalValue()));
+      }
+      return contentLines;
+    }
+
+  }
+
+  public static final class CommentLine {
+
+    private final Comment comment;
+    private final int index;
+
+    private CommentLine(Comment comment, int index) {
+      this.comment = comment;
+      this.index = index;
+    }
+
+    public Comment getComment() {
+      return comment;
+    }
+
+    public int getLine() {
+      return comment.getLine() + index;
+    }
+
+    public String getText() {
+      return comment.lines[index];
+    }
+
+  }
+
+}
@@ -0,0 +1,29 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+/**
+ * Marker for visitors, which are executed for files analyzed in degraded mode, i.e. when parsing exceeded time budget.
+ * In this mode {@link com.sonar.sslr.squid.SquidAstVisitor#visitFile(com.sonar.sslr.api.AstNode)}
+ * and {@link com.sonar.sslr.squid.SquidAstVisitor#leaveFile(com.sonar.sslr.api.AstNode)} are invoked with null AST,
+ * and {@link JavaAstVisitor#isDegradedMode()} returns true.
+ */
+public interface DegradedModeVisitor {
+}
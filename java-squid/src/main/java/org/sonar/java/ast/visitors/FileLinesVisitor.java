@@ -19,62 +19,97 @@
  */
 package org.sonar.java.ast.visitors;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.Token;
-import com.sonar.sslr.api.Trivia;
 import org.sonar.api.batch.SquidUtils;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.resources.JavaFile;
+import org.sonar.java.ast.cache.CacheableVisitor;
 import org.sonar.squid.api.SourceFile;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.util.List;
 import java.util.Set;
 
 /**
  * Saves information about lines directly into Sonar by using {@link FileLinesContext}.
  */
-public class FileLinesVisitor extends JavaAstVisitor implements AstAndTokenVisitor {
+public class FileLinesVisitor extends JavaAstVisitor implements AstAndTokenVisitor, CacheableVisitor {
 
   private final FileLinesContextFactory fileLinesContextFactory;
-  private final Charset charset;
   private final Set<Integer> linesOfCode = Sets.newHashSet();
   private final Set<Integer> linesOfComments = Sets.newHashSet();
+  private int fileLength;
 
-  public FileLinesVisitor(FileLinesContextFactory fileLinesContextFactory, Charset charset) {
+  public FileLinesVisitor(FileLinesContextFactory fileLinesContextFactory) {
     this.fileLinesContextFactory = fileLinesContextFactory;
-    this.charset = charset;
+  }
+
+  @Override
+  public void visitFile(AstNode astNode) {
+    linesOfCode.clear();
+    linesOfComments.clear();
   }
 
   @Override
   public void leaveFile(AstNode astNode) {
+    fileLength = getFileContent().getLines().size();
+    for (CommentIndex.Comment comment : getCommentIndex().getComments()) {
+      if (!comment.getFollowingToken().getType().equals(GenericTokenType.EOF)) {
+        for (int i = 0; i < comment.getLines().length; i++) {
+          linesOfComments.add(comment.getLine() + i);
+        }
+      }
+    }
+    saveLines();
+  }
+
+  private void saveLines() {
     SourceFile file = (SourceFile) getContext().peekSourceCode();
     JavaFile javaFile = SquidUtils.convertJavaFileKeyFromSquidFormat(file.getKey());
     FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(javaFile);
 
-    // TODO minimize access to files, another one in LinesVisitor
-    int fileLength;
-    try {
-      fileLength = Files.readLines(getContext().getFile(), charset).size();
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
     for (int line = 1; line <= fileLength; line++) {
       fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, linesOfCode.contains(line) ? 1 : 0);
       fileLinesContext.setIntValue(CoreMetrics.COMMENT_LINES_DATA_KEY, line, linesOfComments.contains(line) ? 1 : 0);
     }
     fileLinesContext.save();
+  }
 
-    linesOfCode.clear();
-    linesOfComments.clear();
+  @Override
+  public void writeCache(DataOutput out) throws IOException {
+    out.writeInt(fileLength);
+    writeLines(out, linesOfCode);
+    writeLines(out, linesOfComments);
+  }
+
+  @Override
+  public void readCache(DataInput in) throws IOException {
+    fileLength = in.readInt();
+    readLines(in, linesOfCode);
+    readLines(in, linesOfComments);
+    saveLines();
+  }
+
+  private static void writeLines(DataOutput out, Set<Integer> lines) throws IOException {
+    out.writeInt(lines.size());
+    for (Integer line : lines) {
+      out.writeInt(line);
+    }
+  }
+
+  private static void readLines(DataInput in, Set<Integer> lines) throws IOException {
+    lines.clear();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      lines.add(in.readInt());
+    }
   }
 
   @Override
@@ -84,16 +119,6 @@ public class FileLinesVisitor extends JavaAstVisitor implements AstAndTokenVisit
     }
 
     linesOfCode.add(token.getLine());
-    List<Trivia> trivias = token.getTrivia();
-    for (Trivia trivia : trivias) {
-      if (trivia.isComment()) {
-        int baseLine = trivia.getToken().getLine();
-        String[] lines = trivia.getToken().getOriginalValue().split("(\r)?\n|\r", -1);
-        for (int i = 0; i < lines.length; i++) {
-          linesOfComments.add(baseLine + i);
-        }
-      }
-    }
   }
 
 }
@@ -20,17 +20,55 @@
 package org.sonar.java.ast.visitors;
 
 import com.sonar.sslr.squid.SquidAstVisitor;
+import org.sonar.java.model.CompilationUnitTree;
+import org.sonar.java.resolve.SemanticModel;
 import org.sonar.squid.api.SourceClass;
 import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourceFile;
 import org.sonar.squid.api.SourcePackage;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import javax.annotation.Nullable;
+
 /**
  * Shortcut for {@code SquidAstVisitor<JavaGrammar>}.
  */
 public abstract class JavaAstVisitor extends SquidAstVisitor<LexerlessGrammar> {
 
+  protected final SourceFileContent getFileContent() {
+    return VisitorContext.of(getContext()).getFileContent();
+  }
+
+  /**
+   * @see DegradedModeVisitor
+   */
+  protected final boolean isDegradedMode() {
+    return VisitorContext.of(getContext()).isDegradedMode();
+  }
+
+  /**
+   * @see VisitorContext#getCompilationUnitTree()
+   */
+  @Nullable
+  protected final CompilationUnitTree getCompilationUnitTree() {
+    return VisitorContext.of(getContext()).getCompilationUnitTree();
+  }
+
+  /**
+   * @see VisitorContext#getSemanticModel()
+   */
+  @Nullable
+  protected final SemanticModel getSemanticModel() {
+    return VisitorContext.of(getContext()).getSemanticModel();
+  }
+
+  /**
+   * @see VisitorContext#getCommentIndex()
+   */
+  protected final CommentIndex getCommentIndex() {
+    return VisitorContext.of(getContext()).getCommentIndex();
+  }
+
   protected final SourceFile peekSourceFile() {
     SourceCode sourceCode = getContext().peekSourceCode();
     if (sourceCode.isType(SourceFile.class)) {
@@ -19,6 +19,7 @@
  */
 package org.sonar.java.ast.visitors;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
 import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
@@ -31,7 +32,7 @@ import java.util.Set;
 
 import static com.sonar.sslr.api.GenericTokenType.EOF;
 
-public class LinesOfCodeVisitor extends JavaAstVisitor implements AstAndTokenVisitor {
+public class LinesOfCodeVisitor extends JavaAstVisitor implements AstAndTokenVisitor, DegradedModeVisitor {
 
   private Set<Integer> lines = Sets.newHashSet();
 
@@ -65,8 +66,62 @@ public class LinesOfCodeVisitor extends JavaAstVisitor implements AstAndTokenVis
 
   @Override
   public void leaveFile(AstNode astNode) {
-    getContext().peekSourceCode().setMeasure(JavaMetric.LINES_OF_CODE, lines.size());
+    int linesOfCode = isDegradedMode() ? countLinesOfCode(getFileContent().getContent()) : lines.size();
+    getContext().peekSourceCode().setMeasure(JavaMetric.LINES_OF_CODE, linesOfCode);
     lines.clear();
   }
 
+  /**
+   * Approximation of lines of code without tokens: counts lines, which contain anything except whitespaces and comments.
+   */
+  @VisibleForTesting
+  static int countLinesOfCode(String content) {
+    int linesOfCode = 0;
+    boolean code = false;
+    boolean blockComment = false;
+    char quote = 0;
+    int length = content.length();
+    for (int i = 0; i < length; i++) {
+      char c = content.charAt(i);
+      char next = i + 1 < length ? content.charAt(i + 1) : 0;
+      if (c == '\n' || (c == '\r' && next != '\n')) {
+        if (code) {
+          linesOfCode++;
+        }
+        code = false;
+        quote = 0;
+      } else if (blockComment) {
+        if (c == '*' && next == '/') {
+          blockComment = false;
+          i++;
+        }
+      } else if (quote != 0) {
+        if (c == '\\') {
+          i++;
+        } else if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '/' && next == '/') {
+        i = skipToEndOfLine(content, i);
+      } else if (c == '/' && next == '*') {
+        blockComment = true;
+        i++;
+      } else if (!Character.isWhitespace(c)) {
+        code = true;
+        if (c == '"' || c == '\'') {
+          quote = c;
+        }
+      }
+    }
+    return code ? linesOfCode + 1 : linesOfCode;
+  }
+
+  private static int skipToEndOfLine(String content, int from) {
+    int i = from;
+    while (i + 1 < content.length() && content.charAt(i + 1) != '\n' && content.charAt(i + 1) != '\r') {
+      i++;
+    }
+    return i;
+  }
+
 }
@@ -20,23 +20,12 @@
 package org.sonar.java.ast.visitors;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Throwables;
-import com.google.common.io.Files;
 import com.sonar.sslr.api.AstNode;
 import org.sonar.java.ast.api.JavaMetric;
 import org.sonar.java.ast.api.JavaPunctuator;
 import org.sonar.squid.api.SourceCode;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
-
-public class LinesVisitor extends JavaAstVisitor {
-
-  private final Charset charset;
-
-  public LinesVisitor(Charset charset) {
-    this.charset = charset;
-  }
+public class LinesVisitor extends JavaAstVisitor implements DegradedModeVisitor {
 
   @Override
   public void init() {
@@ -55,17 +44,11 @@ public class LinesVisitor extends JavaAstVisitor {
    */
   @Override
   public void leaveFile(AstNode astNode) {
-    if (astNode == null) {
+    if (astNode == null && !isDegradedMode()) {
       // TODO do not compute number of lines, when not able to parse
       return;
     }
-    try {
-      String content = Files.toString(getContext().getFile(), charset);
-      String[] lines = content.split("(\r)?\n|\r", -1);
-      getContext().peekSourceCode().setMeasure(JavaMetric.LINES, lines.length);
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    getContext().peekSourceCode().setMeasure(JavaMetric.LINES, getFileContent().getNumberOfLines());
   }
 
 }
@@ -0,0 +1,172 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Chars;
+import com.google.common.primitives.Ints;
+
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Finds which of several patterns are contained in a text, ignoring case, in a single pass over the text
+ * with the automaton of Aho and Corasick. Case is ignored in the same way as by {@link String#regionMatches(boolean, int, String, int, int)}.
+ */
+public final class MultiPatternMatcher {
+
+  private final List<String> patterns;
+  private final char[][] keys;
+  private final int[][] targets;
+  private final int[] failures;
+  private final int[][] outputs;
+
+  public MultiPatternMatcher(List<String> patterns) {
+    this.patterns = ImmutableList.copyOf(patterns);
+
+    // trie of patterns
+    List<SortedMap<Character, Integer>> transitions = Lists.newArrayList();
+    List<List<Integer>> stateOutputs = Lists.newArrayList();
+    transitions.add(Maps.<Character, Integer>newTreeMap());
+    stateOutputs.add(Lists.<Integer>newArrayList());
+    for (int i = 0; i < this.patterns.size(); i++) {
+      String pattern = this.patterns.get(i);
+      int state = 0;
+      for (int j = 0; j < pattern.length(); j++) {
+        char c = normalize(pattern.charAt(j));
+        Integer next = transitions.get(state).get(c);
+        if (next == null) {
+          next = transitions.size();
+          transitions.add(Maps.<Character, Integer>newTreeMap());
+          stateOutputs.add(Lists.<Integer>newArrayList());
+          transitions.get(state).put(c, next);
+        }
+        state = next;
+      }
+      stateOutputs.get(state).add(i);
+    }
+
+    int size = transitions.size();
+    keys = new char[size][];
+    targets = new int[size][];
+    for (int state = 0; state < size; state++) {
+      keys[state] = Chars.toArray(transitions.get(state).keySet());
+      targets[state] = Ints.toArray(transitions.get(state).values());
+    }
+
+    // failure links in breadth-first order, so that outputs of failure state are complete when they are merged
+    failures = new int[size];
+    outputs = new int[size][];
+    outputs[0] = Ints.toArray(stateOutputs.get(0));
+    LinkedList<Integer> queue = Lists.newLinkedList();
+    for (int target : targets[0]) {
+      queue.add(target);
+      outputs[target] = merge(stateOutputs.get(target), outputs[0]);
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.removeFirst();
+      for (Map.Entry<Character, Integer> entry : transitions.get(state).entrySet()) {
+        int target = entry.getValue();
+        int failure = failures[state];
+        int next = transition(failure, entry.getKey());
+        while (next < 0 && failure != 0) {
+          failure = failures[failure];
+          next = transition(failure, entry.getKey());
+        }
+        failures[target] = next < 0 ? 0 : next;
+        outputs[target] = merge(stateOutputs.get(target), outputs[failures[target]]);
+        queue.add(target);
+      }
+    }
+  }
+
+  private static int[] merge(List<Integer> own, int[] inherited) {
+    int[] result = new int[own.size() + inherited.length];
+    for (int i = 0; i < own.size(); i++) {
+      result[i] = own.get(i);
+    }
+    System.arraycopy(inherited, 0, result, own.size(), inherited.length);
+    return result;
+  }
+
+  private int transition(int state, char c) {
+    int index = binarySearch(keys[state], c);
+    return index < 0 ? -1 : targets[state][index];
+  }
+
+  private static int binarySearch(char[] array, char key) {
+    int low = 0;
+    int high = array.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      char value = array[middle];
+      if (value < key) {
+        low = middle + 1;
+      } else if (value > key) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  static char normalize(char c) {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  public List<String> getPatterns() {
+    return patterns;
+  }
+
+  /**
+   * Sets in {@code result} the indexes of patterns, which are contained in given text.
+   *
+   * @return true if at least one pattern was found
+   */
+  public boolean find(CharSequence text, BitSet result) {
+    boolean found = addOutputs(0, result);
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = normalize(text.charAt(i));
+      int next = transition(state, c);
+      while (next < 0 && state != 0) {
+        state = failures[state];
+        next = transition(state, c);
+      }
+      state = next < 0 ? 0 : next;
+      found |= addOutputs(state, result);
+    }
+    return found;
+  }
+
+  private boolean addOutputs(int state, BitSet result) {
+    for (int pattern : outputs[state]) {
+      result.set(pattern);
+    }
+    return outputs[state].length > 0;
+  }
+
+}
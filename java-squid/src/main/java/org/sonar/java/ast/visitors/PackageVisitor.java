@@ -31,7 +31,7 @@ import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourcePackage;
 import org.sonar.squid.api.SourceProject;
 
-public class PackageVisitor extends JavaAstVisitor {
+public class PackageVisitor extends JavaAstVisitor implements DegradedModeVisitor {
 
   @Override
   public void visitFile(AstNode astNode) {
@@ -67,7 +67,7 @@ public class PackageVisitor extends JavaAstVisitor {
       // Guess package key from directory
       packageKey = InputFileUtils.getRelativeDirectory(getInputFile());
     }
-    checkPhysicalDirectory(packageKey);
+    checkPhysicalDirectory(getInputFile(), packageKey);
     return packageKey;
   }
 
@@ -80,8 +80,7 @@ public class PackageVisitor extends JavaAstVisitor {
   }
 
   private InputFile getInputFile() {
-    // TODO Unchecked cast
-    return ((VisitorContext) getContext()).getInputFile();
+    return VisitorContext.of(getContext()).getInputFile();
   }
 
   /**
@@ -92,15 +91,15 @@ public class PackageVisitor extends JavaAstVisitor {
    *
    * @since 2.8
    */
-  private void checkPhysicalDirectory(String key) {
-    String relativeDirectory = InputFileUtils.getRelativeDirectory(getInputFile());
+  public static void checkPhysicalDirectory(InputFile inputFile, String key) {
+    String relativeDirectory = InputFileUtils.getRelativeDirectory(inputFile);
     // both relativeDirectory and key use slash '/' as separator
     if (!StringUtils.equals(relativeDirectory, key)) {
       String packageName = StringUtils.replace(key, "/", ".");
       if (StringUtils.contains(relativeDirectory, key) || StringUtils.contains(key, relativeDirectory)) {
         throw new AnalysisException(String.format("The source directory does not correspond to the package declaration %s", packageName));
       }
-      throw new AnalysisException(String.format("The package declaration %s does not correspond to the file path %s", packageName, getInputFile().getRelativePath()));
+      throw new AnalysisException(String.format("The package declaration %s does not correspond to the file path %s", packageName, inputFile.getRelativePath()));
     }
   }
 
@@ -0,0 +1,124 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Content of a source file, which is read and decoded only once and shared between parser and visitors.
+ */
+public final class SourceFileContent {
+
+  /**
+   * Files bigger than this size are memory-mapped instead of being read into a temporary array of bytes.
+   */
+  private static final long MEMORY_MAPPING_THRESHOLD = 1024 * 1024;
+
+  private final String content;
+  private final int[] lineStart;
+  private List<String> lines;
+
+  public SourceFileContent(String content) {
+    this.content = content;
+    this.lineStart = computeLineStart(content);
+  }
+
+  public static SourceFileContent read(File file, Charset charset) throws IOException {
+    ByteBuffer bytes = file.length() > MEMORY_MAPPING_THRESHOLD ? Files.map(file) : ByteBuffer.wrap(Files.toByteArray(file));
+    String content = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+        .decode(bytes)
+        .toString();
+    return new SourceFileContent(content);
+  }
+
+  private static int[] computeLineStart(String content) {
+    int[] result = new int[16];
+    int lines = 1;
+    int length = content.length();
+    for (int i = 0; i < length; i++) {
+      char c = content.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == length || content.charAt(i + 1) != '\n'))) {
+        if (lines == result.length) {
+          result = Arrays.copyOf(result, lines * 2);
+        }
+        result[lines] = i + 1;
+        lines++;
+      }
+    }
+    return Arrays.copyOf(result, lines);
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  /**
+   * Number of lines, including last one even if it is empty, i.e. number of line terminators plus one.
+   */
+  public int getNumberOfLines() {
+    return lineStart.length;
+  }
+
+  /**
+   * @param line starts from 1
+   * @return offset of first character of given line
+   */
+  public int getLineStartOffset(int line) {
+    return lineStart[line - 1];
+  }
+
+  /**
+   * Lines without line terminators in the same way as {@link Files#readLines(File, Charset)}, i.e. without last line if it is empty.
+   */
+  public List<String> getLines() {
+    if (lines == null) {
+      int numberOfLines = lineStart[lineStart.length - 1] == content.length() ? lineStart.length - 1 : lineStart.length;
+      ImmutableList.Builder<String> builder = ImmutableList.builder();
+      for (int line = 1; line <= numberOfLines; line++) {
+        builder.add(content.substring(lineStart[line - 1], lineEndOffset(line)));
+      }
+      lines = builder.build();
+    }
+    return lines;
+  }
+
+  private int lineEndOffset(int line) {
+    if (line == lineStart.length) {
+      return content.length();
+    }
+    int end = lineStart[line] - 1;
+    if (end > 0 && content.charAt(end) == '\n' && content.charAt(end - 1) == '\r') {
+      end--;
+    }
+    return end;
+  }
+
+}
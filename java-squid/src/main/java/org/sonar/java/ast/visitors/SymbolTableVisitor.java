@@ -19,23 +19,27 @@
  */
 package org.sonar.java.ast.visitors;
 
+import com.google.common.collect.Lists;
 import com.sonar.sslr.api.AstNode;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.SquidUtils;
 import org.sonar.api.component.ResourcePerspectives;
 import org.sonar.api.resources.JavaFile;
 import org.sonar.api.source.Symbolizable;
+import org.sonar.java.ast.cache.CacheableVisitor;
 import org.sonar.java.resolve.SemanticModel;
 import org.sonar.java.resolve.Symbol;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
-public class SymbolTableVisitor extends JavaAstVisitor {
-
-  private static final Logger LOG = LoggerFactory.getLogger(SymbolTableVisitor.class);
+public class SymbolTableVisitor extends JavaAstVisitor implements CacheableVisitor {
 
   private final ResourcePerspectives perspectives;
+  private List<int[]> symbols;
 
   public SymbolTableVisitor(ResourcePerspectives perspectives) {
     this.perspectives = perspectives;
@@ -43,35 +47,84 @@ public class SymbolTableVisitor extends JavaAstVisitor {
 
   @Override
   public void visitFile(AstNode astNode) {
+    symbols = null;
     if (astNode == null) {
       // parse error
       return;
     }
 
-    SemanticModel semanticModel;
-    try {
-      semanticModel = SemanticModel.createFor(astNode);
-    } catch (Exception e) {
-      LOG.error("Unable to create symbol table for " + getContext().getFile(), e);
+    SemanticModel semanticModel = getSemanticModel();
+    if (semanticModel == null) {
+      // failure of semantic analysis is logged by VisitorContext
       return;
     }
 
+    symbols = Lists.newArrayList();
+    for (Map.Entry<AstNode, Symbol> entry : semanticModel.getSymbols().entrySet()) {
+      AstNode declaration = entry.getKey();
+      Collection<AstNode> usages = semanticModel.getUsages(entry.getValue());
+      int[] symbol = new int[2 + usages.size()];
+      symbol[0] = startOffsetFor(declaration);
+      symbol[1] = endOffsetFor(declaration);
+      int i = 2;
+      for (AstNode usage : usages) {
+        symbol[i] = startOffsetFor(usage);
+        i++;
+      }
+      symbols.add(symbol);
+    }
+    saveSymbolTable();
+  }
+
+  /**
+   * Each symbol is represented by start and end offsets of its declaration followed by start offsets of its usages.
+   */
+  private void saveSymbolTable() {
     JavaFile sonarFile = SquidUtils.convertJavaFileKeyFromSquidFormat(peekSourceFile().getKey());
     Symbolizable symbolizable = perspectives.as(Symbolizable.class, sonarFile);
     Symbolizable.SymbolTableBuilder symbolTableBuilder = symbolizable.newSymbolTableBuilder();
 
-    for (Map.Entry<AstNode, Symbol> entry : semanticModel.getSymbols().entrySet()) {
-      AstNode declaration = entry.getKey();
-      org.sonar.api.source.Symbol symbol = symbolTableBuilder.newSymbol(startOffsetFor(declaration), endOffsetFor(declaration));
-
-      for (AstNode usage : semanticModel.getUsages(entry.getValue())) {
-        symbolTableBuilder.newReference(symbol, startOffsetFor(usage));
+    for (int[] symbol : symbols) {
+      org.sonar.api.source.Symbol sonarSymbol = symbolTableBuilder.newSymbol(symbol[0], symbol[1]);
+      for (int i = 2; i < symbol.length; i++) {
+        symbolTableBuilder.newReference(sonarSymbol, symbol[i]);
       }
     }
 
     symbolizable.setSymbolTable(symbolTableBuilder.build());
   }
 
+  @Override
+  public void writeCache(DataOutput out) throws IOException {
+    out.writeBoolean(symbols != null);
+    if (symbols != null) {
+      out.writeInt(symbols.size());
+      for (int[] symbol : symbols) {
+        out.writeInt(symbol.length);
+        for (int offset : symbol) {
+          out.writeInt(offset);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void readCache(DataInput in) throws IOException {
+    symbols = null;
+    if (in.readBoolean()) {
+      int size = in.readInt();
+      symbols = Lists.newArrayListWithCapacity(size);
+      for (int i = 0; i < size; i++) {
+        int[] symbol = new int[in.readInt()];
+        for (int j = 0; j < symbol.length; j++) {
+          symbol[j] = in.readInt();
+        }
+        symbols.add(symbol);
+      }
+      saveSymbolTable();
+    }
+  }
+
   private static int startOffsetFor(AstNode astNode) {
     return astNode.getFromIndex();
   }
@@ -19,10 +19,8 @@
  */
 package org.sonar.java.ast.visitors;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import com.google.common.io.Files;
 import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
@@ -34,24 +32,24 @@ import org.sonar.api.resources.JavaFile;
 import org.sonar.api.source.Highlightable;
 import org.sonar.java.ast.api.JavaKeyword;
 import org.sonar.java.ast.api.JavaTokenType;
+import org.sonar.java.ast.cache.CacheableVisitor;
 import org.sonar.java.ast.parser.JavaGrammar;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 
-public class SyntaxHighlighterVisitor extends JavaAstVisitor implements AstAndTokenVisitor {
+public class SyntaxHighlighterVisitor extends JavaAstVisitor implements AstAndTokenVisitor, CacheableVisitor {
 
   private final ResourcePerspectives perspectives;
   private final Map<AstNodeType, String> types;
-  private final Charset charset;
 
   private Highlightable.HighlightingBuilder highlighting;
-  private List<Integer> lineStart;
+  private final List<Highlight> highlights = Lists.newArrayList();
 
-  public SyntaxHighlighterVisitor(ResourcePerspectives perspectives, Charset charset) {
-    this.charset = charset;
+  public SyntaxHighlighterVisitor(ResourcePerspectives perspectives) {
     this.perspectives = perspectives;
 
     ImmutableMap.Builder<AstNodeType, String> typesBuilder = ImmutableMap.builder();
@@ -82,40 +80,36 @@ public class SyntaxHighlighterVisitor extends JavaAstVisitor implements AstAndTo
       return;
     }
 
+    newHighlighting();
+  }
+
+  private void newHighlighting() {
     JavaFile sonarFile = SquidUtils.convertJavaFileKeyFromSquidFormat(peekSourceFile().getKey());
     highlighting = perspectives.as(Highlightable.class, sonarFile).newHighlighting();
-
-    lineStart = Lists.newArrayList();
-    final String content;
-    try {
-      content = Files.toString(getContext().getFile(), charset);
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
-    lineStart.add(0);
-    for (int i = 0; i < content.length(); i++) {
-      if (content.charAt(i) == '\n' || (content.charAt(i) == '\r' && i + 1 < content.length() && content.charAt(i + 1) != '\n')) {
-        lineStart.add(i + 1);
-      }
-    }
+    highlights.clear();
   }
 
   @Override
   public void visitNode(AstNode astNode) {
     if (astNode.is(JavaGrammar.ANNOTATION)) {
-      highlighting.highlight(astNode.getFromIndex(), astNode.getFirstChild(JavaGrammar.QUALIFIED_IDENTIFIER).getToIndex(), types.get(astNode.getType()));
+      highlight(astNode.getFromIndex(), astNode.getFirstChild(JavaGrammar.QUALIFIED_IDENTIFIER).getToIndex(), types.get(astNode.getType()));
     } else {
-      highlighting.highlight(astNode.getFromIndex(), astNode.getToIndex(), types.get(astNode.getType()));
+      highlight(astNode.getFromIndex(), astNode.getToIndex(), types.get(astNode.getType()));
     }
   }
 
+  private void highlight(int startOffset, int endOffset, String typeOfText) {
+    highlighting.highlight(startOffset, endOffset, typeOfText);
+    highlights.add(new Highlight(startOffset, endOffset, typeOfText));
+  }
+
   @Override
   public void visitToken(Token token) {
     for (Trivia trivia : token.getTrivia()) {
       if (trivia.isComment()) {
         Token triviaToken = trivia.getToken();
         int offset = getOffset(triviaToken.getLine(), triviaToken.getColumn());
-        highlighting.highlight(offset, offset + triviaToken.getValue().length(), "cppd");
+        highlight(offset, offset + triviaToken.getValue().length(), "cppd");
       }
     }
   }
@@ -125,7 +119,7 @@ public class SyntaxHighlighterVisitor extends JavaAstVisitor implements AstAndTo
    * @param column starts from 0
    */
   private int getOffset(int line, int column) {
-    return lineStart.get(line - 1) + column;
+    return getFileContent().getLineStartOffset(line) + column;
   }
 
   @Override
@@ -138,4 +132,36 @@ public class SyntaxHighlighterVisitor extends JavaAstVisitor implements AstAndTo
     highlighting.done();
   }
 
+  @Override
+  public void writeCache(DataOutput out) throws IOException {
+    out.writeInt(highlights.size());
+    for (Highlight highlight : highlights) {
+      out.writeInt(highlight.startOffset);
+      out.writeInt(highlight.endOffset);
+      out.writeUTF(highlight.typeOfText);
+    }
+  }
+
+  @Override
+  public void readCache(DataInput in) throws IOException {
+    newHighlighting();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      highlight(in.readInt(), in.readInt(), in.readUTF());
+    }
+    highlighting.done();
+  }
+
+  private static class Highlight {
+    private final int startOffset;
+    private final int endOffset;
+    private final String typeOfText;
+
+    public Highlight(int startOffset, int endOffset, String typeOfText) {
+      this.startOffset = startOffset;
+      this.endOffset = endOffset;
+      this.typeOfText = typeOfText;
+    }
+  }
+
 }
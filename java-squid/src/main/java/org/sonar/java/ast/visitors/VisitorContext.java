@@ -19,11 +19,20 @@
  */
 package org.sonar.java.ast.visitors;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.CommentAnalyser;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.squid.SquidAstVisitorContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.resources.InputFile;
+import org.sonar.java.model.CompilationUnitTree;
+import org.sonar.java.model.JavaTreeMaker;
+import org.sonar.java.profiling.VisitorsProfiler;
+import org.sonar.java.resolve.SemanticModel;
 import org.sonar.squid.api.CheckMessage;
 import org.sonar.squid.api.CodeCheck;
 import org.sonar.squid.api.SourceCode;
@@ -31,7 +40,9 @@ import org.sonar.squid.api.SourceFile;
 import org.sonar.squid.api.SourceProject;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.Set;
 import java.util.Stack;
 
 /**
@@ -39,10 +50,24 @@ import java.util.Stack;
  */
 public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
 
+  private static final Logger LOG = LoggerFactory.getLogger(VisitorContext.class);
+
+  private final JavaTreeMaker treeMaker = new JavaTreeMaker();
   private final Stack<SourceCode> sourceCodeStack = new Stack<SourceCode>();
   private final SourceProject project;
   private File file;
+  private SourceFile sourceFile;
+  private SourceFileContent fileContent;
   private CommentAnalyser commentAnalyser;
+  private boolean degradedMode;
+  private AstNode ast;
+  private CompilationUnitTree tree;
+  private SemanticModel semanticModel;
+  private boolean semanticModelComputed;
+  private final Set<String> commentPatterns = Sets.newLinkedHashSet();
+  private MultiPatternMatcher commentPatternsMatcher;
+  private CommentIndex commentIndex;
+  private VisitorsProfiler profiler;
 
   public VisitorContext(SourceProject project) {
     if (project == null) {
@@ -52,6 +77,22 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
     sourceCodeStack.add(project);
   }
 
+  /**
+   * @return given context of visitor, which must be executed by {@link org.sonar.java.ast.AstScanner}
+   */
+  public static VisitorContext of(SquidAstVisitorContext<?> context) {
+    Preconditions.checkState(context instanceof VisitorContext,
+        "Java visitors must be executed by AstScanner, but context is %s", context == null ? null : context.getClass().getName());
+    return (VisitorContext) context;
+  }
+
+  /**
+   * Enables measurement of time spent in construction of syntax trees and semantic models.
+   */
+  public void setProfiler(@Nullable VisitorsProfiler profiler) {
+    this.profiler = profiler;
+  }
+
   public void setCommentAnalyser(CommentAnalyser commentAnalyser) {
     this.commentAnalyser = commentAnalyser;
   }
@@ -67,6 +108,9 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
   public void addSourceCode(SourceCode child) {
     peekSourceCode().addChild(child);
     sourceCodeStack.add(child);
+    if (child.isType(SourceFile.class)) {
+      sourceFile = (SourceFile) child;
+    }
   }
 
   /** {@inheritDoc} */
@@ -84,6 +128,109 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
   public void setFile(File file) {
     popTillSourceProject();
     this.file = file;
+    this.sourceFile = null;
+    this.degradedMode = false;
+    this.fileContent = null;
+    this.ast = null;
+    this.tree = null;
+    this.semanticModel = null;
+    this.semanticModelComputed = false;
+    this.commentIndex = null;
+  }
+
+  public void setAst(@Nullable AstNode ast) {
+    this.ast = ast;
+    this.commentIndex = null;
+  }
+
+  /**
+   * Syntax tree of current file, which is built on first request.
+   *
+   * @return null if file was not parsed
+   */
+  @Nullable
+  public CompilationUnitTree getCompilationUnitTree() {
+    if (tree == null && ast != null) {
+      long cpuTime = profiler == null ? 0 : profiler.cpuTime();
+      long allocatedBytes = profiler == null ? 0 : profiler.allocatedBytes();
+      try {
+        tree = treeMaker.compilationUnit(ast);
+      } finally {
+        if (profiler != null) {
+          profiler.entry(treeMaker, "Tree maker").record(cpuTime, allocatedBytes);
+        }
+      }
+    }
+    return tree;
+  }
+
+  /**
+   * Semantic model of current file, which is built on first request.
+   *
+   * @return null if file was not parsed or if semantic analysis failed
+   */
+  @Nullable
+  public SemanticModel getSemanticModel() {
+    if (!semanticModelComputed && ast != null) {
+      semanticModelComputed = true;
+      long cpuTime = profiler == null ? 0 : profiler.cpuTime();
+      long allocatedBytes = profiler == null ? 0 : profiler.allocatedBytes();
+      try {
+        semanticModel = SemanticModel.createFor(ast);
+      } catch (Exception e) {
+        LOG.error("Unable to create semantic model for " + file, e);
+      } finally {
+        if (profiler != null) {
+          profiler.entry(SemanticModel.class, SemanticModel.class.getName(), "Semantic model").record(cpuTime, allocatedBytes);
+        }
+      }
+    }
+    return semanticModel;
+  }
+
+  /**
+   * Registers pattern, lines of comments containing which should be found by {@link CommentIndex#getLinesContaining(String)}.
+   * Should be called during initialization of visitors.
+   */
+  public void registerCommentPattern(String pattern) {
+    if (commentPatterns.add(pattern)) {
+      commentPatternsMatcher = null;
+    }
+  }
+
+  /**
+   * Comments of current file, which are indexed on first request.
+   */
+  public CommentIndex getCommentIndex() {
+    if (commentIndex == null) {
+      if (commentPatternsMatcher == null) {
+        commentPatternsMatcher = new MultiPatternMatcher(ImmutableList.copyOf(commentPatterns));
+      }
+      commentIndex = new CommentIndex(ast, commentAnalyser, commentPatternsMatcher);
+    }
+    return commentIndex;
+  }
+
+  public void setDegradedMode(boolean degradedMode) {
+    this.degradedMode = degradedMode;
+  }
+
+  /**
+   * @see DegradedModeVisitor
+   */
+  public boolean isDegradedMode() {
+    return degradedMode;
+  }
+
+  public void setFileContent(SourceFileContent fileContent) {
+    this.fileContent = fileContent;
+  }
+
+  /**
+   * @return content of current file, which should be used instead of reading of file
+   */
+  public SourceFileContent getFileContent() {
+    return fileContent;
   }
 
   private void popTillSourceProject() {
@@ -98,6 +245,14 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
     return file;
   }
 
+  /**
+   * @return {@link SourceFile} created for current file, or null if it was not created yet
+   */
+  @Nullable
+  public SourceFile getSourceFile() {
+    return sourceFile;
+  }
+
   public SourceProject getProject() {
     return project;
   }
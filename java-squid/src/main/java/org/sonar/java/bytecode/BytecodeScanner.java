@@ -19,13 +19,25 @@
  */
 package org.sonar.java.bytecode;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmClassProvider;
 import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
 import org.sonar.java.bytecode.asm.AsmClassProviderImpl;
 import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.asm.BytecodeSummaryCache;
 import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.bytecode.visitor.BytecodeVisitor;
+import org.sonar.java.bytecode.visitor.GroupableVisitor;
+import org.sonar.java.bytecode.visitor.ThreadSafeVisitor;
+import org.sonar.java.profiling.ProfiledBytecodeVisitor;
+import org.sonar.java.profiling.VisitorsProfiler;
 import org.sonar.squid.api.CodeScanner;
 import org.sonar.squid.api.CodeVisitor;
 import org.sonar.squid.api.SourceClass;
@@ -33,23 +45,78 @@ import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.indexer.QueryByType;
 import org.sonar.squid.indexer.SquidIndex;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
 
+  private static final Logger LOG = LoggerFactory.getLogger(BytecodeScanner.class);
+
   private final SquidIndex indexer;
+  private VisitorsProfiler profiler;
+  private int nbThreads = 1;
+  private BytecodeSummaryCache summaryCache;
 
   public BytecodeScanner(SquidIndex indexer) {
     this.indexer = indexer;
   }
 
+  /**
+   * Enables measurement of time spent in each visitor.
+   */
+  public void setProfiler(@Nullable VisitorsProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  /**
+   * Enables processing of classes on a pool of {@code nbThreads} workers:
+   * <ul>
+   *   <li>classes are loaded in parallel;</li>
+   *   <li>virtual methods are linked on the calling thread, once all classes are loaded;</li>
+   *   <li>visitors implementing {@link ThreadSafeVisitor} are notified in parallel, each class being handled by a single worker,
+   *   and other visitors are notified on the calling thread, one class after another and in the order of the classes;
+   *   for each class visitors are notified in the order of their declaration.</li>
+   * </ul>
+   * Class provider given to {@link #scanClasses(Collection, AsmClassProvider)} must be thread-safe in this mode.
+   */
+  public void setParallelism(int nbThreads) {
+    Preconditions.checkArgument(nbThreads > 0, "Number of threads must be greater than zero, but was " + nbThreads);
+    this.nbThreads = nbThreads;
+  }
+
+  /**
+   * Enables reuse of summaries of classes from JAR files, which were read during previous analyses.
+   */
+  public void setSummaryCache(@Nullable BytecodeSummaryCache summaryCache) {
+    this.summaryCache = summaryCache;
+  }
+
   public BytecodeScanner scan(Collection<File> bytecodeFilesOrDirectories) {
     ClassLoader classLoader = ClassLoaderBuilder.create(bytecodeFilesOrDirectories);
     Collection<SourceCode> classes = indexer.search(new QueryByType(SourceClass.class));
-    scanClasses(classes, new AsmClassProviderImpl(classLoader));
+    AsmClassProviderImpl classProvider = new AsmClassProviderImpl(classLoader);
+    List<String> internalNames = Lists.newArrayListWithCapacity(classes.size());
+    for (SourceCode sourceCode : classes) {
+      internalNames.add(sourceCode.getKey());
+    }
+    classProvider.pin(internalNames);
+    classProvider.setSummaryCache(summaryCache);
+    scanClasses(classes, classProvider);
+    if (summaryCache != null) {
+      summaryCache.save();
+    }
+    LOG.debug("Bytecode cache: {} hits, {} misses, {} evictions",
+      new Object[] {classProvider.getHitCount(), classProvider.getMissCount(), classProvider.getEvictionCount()});
     // TODO unchecked cast
     ((SquidClassLoader) classLoader).close();
     return this;
@@ -60,35 +127,156 @@ public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
   }
 
   protected BytecodeScanner scanClasses(Collection<SourceCode> classes, AsmClassProvider classProvider) {
-    loadByteCodeInformation(classes, classProvider);
-    linkVirtualMethods(classes, classProvider);
-    notifyBytecodeVisitors(classes, classProvider);
+    if (nbThreads > 1 && classes.size() > 1) {
+      ExecutorService executor = Executors.newFixedThreadPool(nbThreads, new ThreadFactoryBuilder()
+        .setNameFormat("Java bytecode scanner %d")
+        .setDaemon(true)
+        .build());
+      try {
+        List<AsmClass> asmClasses = loadByteCodeInformationInParallel(classes, classProvider, executor);
+        linkVirtualMethods(asmClasses);
+        notifyBytecodeVisitorsInParallel(asmClasses, executor);
+      } finally {
+        executor.shutdownNow();
+      }
+    } else {
+      List<AsmClass> asmClasses = loadByteCodeInformation(classes, classProvider);
+      linkVirtualMethods(asmClasses);
+      notifyBytecodeVisitors(asmClasses, getVisitorArray(getVisitors()));
+    }
     return this;
   }
 
-  private void linkVirtualMethods(Collection<SourceCode> classes, AsmClassProvider classProvider) {
+  private void linkVirtualMethods(List<AsmClass> asmClasses) {
     VirtualMethodsLinker linker = new VirtualMethodsLinker();
-    for (SourceCode sourceCode : classes) {
-      AsmClass asmClass = classProvider.getClass(sourceCode.getKey(), DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    for (AsmClass asmClass : asmClasses) {
       for (AsmMethod method : asmClass.getMethods()) {
         linker.process(method);
       }
     }
   }
 
-  private void notifyBytecodeVisitors(Collection<SourceCode> classes, AsmClassProvider classProvider) {
-    BytecodeVisitor[] visitorArray = getVisitors().toArray(new BytecodeVisitor[getVisitors().size()]);
-    for (SourceCode sourceCode : classes) {
-      AsmClass asmClass = classProvider.getClass(sourceCode.getKey(), DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+  private BytecodeVisitor[] getVisitorArray(Collection<BytecodeVisitor> visitors) {
+    List<BytecodeVisitor> groupedVisitors = group(visitors);
+    BytecodeVisitor[] visitorArray = groupedVisitors.toArray(new BytecodeVisitor[groupedVisitors.size()]);
+    if (profiler != null) {
+      for (int i = 0; i < visitorArray.length; i++) {
+        visitorArray[i].setSquidIndex(indexer);
+        visitorArray[i] = new ProfiledBytecodeVisitor(visitorArray[i], profiler);
+      }
+    }
+    return visitorArray;
+  }
+
+  /**
+   * Replaces instances of each class implementing {@link GroupableVisitor} by a single visitor at the position of the first of them.
+   */
+  private List<BytecodeVisitor> group(Collection<BytecodeVisitor> visitors) {
+    Map<Object, List<BytecodeVisitor>> groups = Maps.newLinkedHashMap();
+    for (BytecodeVisitor visitor : visitors) {
+      Object key = visitor;
+      if (visitor instanceof GroupableVisitor) {
+        key = visitor.getClass();
+        // grouped visitors are not notified, so they don't get index from notifier
+        visitor.setSquidIndex(indexer);
+      }
+      List<BytecodeVisitor> group = groups.get(key);
+      if (group == null) {
+        group = Lists.newArrayList();
+        groups.put(key, group);
+      }
+      group.add(visitor);
+    }
+    List<BytecodeVisitor> result = Lists.newArrayListWithCapacity(groups.size());
+    for (List<BytecodeVisitor> group : groups.values()) {
+      result.add(group.size() == 1 ? group.get(0) : ((GroupableVisitor) group.get(0)).group(group));
+    }
+    return result;
+  }
+
+  private void notifyBytecodeVisitors(List<AsmClass> asmClasses, BytecodeVisitor[] visitorArray) {
+    for (AsmClass asmClass : asmClasses) {
       BytecodeVisitorNotifier visitorNotifier = new BytecodeVisitorNotifier(asmClass, visitorArray);
       visitorNotifier.notifyVisitors(indexer);
     }
   }
 
-  private void loadByteCodeInformation(Collection<SourceCode> classes, AsmClassProvider classProvider) {
+  /**
+   * Consecutive visitors of the same kind are notified together, so that visitors are still notified for each class in the order of their declaration.
+   */
+  private void notifyBytecodeVisitorsInParallel(List<AsmClass> asmClasses, ExecutorService executor) {
+    List<BytecodeVisitor> segment = Lists.newArrayList();
+    boolean threadSafeSegment = false;
+    for (BytecodeVisitor visitor : getVisitors()) {
+      visitor.setSquidIndex(indexer);
+      boolean threadSafe = visitor instanceof ThreadSafeVisitor;
+      if (threadSafe != threadSafeSegment && !segment.isEmpty()) {
+        notifySegment(asmClasses, segment, threadSafeSegment, executor);
+        segment = Lists.newArrayList();
+      }
+      threadSafeSegment = threadSafe;
+      segment.add(visitor);
+    }
+    if (!segment.isEmpty()) {
+      notifySegment(asmClasses, segment, threadSafeSegment, executor);
+    }
+  }
+
+  private void notifySegment(List<AsmClass> asmClasses, List<BytecodeVisitor> visitors, boolean threadSafe, ExecutorService executor) {
+    if (!threadSafe) {
+      notifyBytecodeVisitors(asmClasses, getVisitorArray(visitors));
+      return;
+    }
+    final BytecodeVisitor[] threadSafeVisitorArray = getVisitorArray(visitors);
+    List<Future<Void>> futures = Lists.newArrayListWithCapacity(asmClasses.size());
+    for (final AsmClass asmClass : asmClasses) {
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          new BytecodeVisitorNotifier(asmClass, threadSafeVisitorArray).notifyVisitors(indexer);
+          return null;
+        }
+      }));
+    }
+    // Visitors write measures on the same source code, so next visitors are notified once these ones are done
+    getAll(futures);
+  }
+
+  private List<AsmClass> loadByteCodeInformation(Collection<SourceCode> classes, AsmClassProvider classProvider) {
+    List<AsmClass> asmClasses = Lists.newArrayListWithCapacity(classes.size());
     for (SourceCode sourceCode : classes) {
-      classProvider.getClass(sourceCode.getKey(), DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+      asmClasses.add(classProvider.getClass(sourceCode.getKey(), DETAIL_LEVEL.STRUCTURE_AND_CALLS));
+    }
+    return asmClasses;
+  }
+
+  private static List<AsmClass> loadByteCodeInformationInParallel(Collection<SourceCode> classes, final AsmClassProvider classProvider,
+    ExecutorService executor) {
+    List<Future<AsmClass>> futures = Lists.newArrayListWithCapacity(classes.size());
+    for (final SourceCode sourceCode : classes) {
+      futures.add(executor.submit(new Callable<AsmClass>() {
+        @Override
+        public AsmClass call() {
+          return classProvider.getClass(sourceCode.getKey(), DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+        }
+      }));
+    }
+    return getAll(futures);
+  }
+
+  private static <T> List<T> getAll(List<Future<T>> futures) {
+    List<T> results = Lists.newArrayListWithCapacity(futures.size());
+    try {
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
     }
+    return results;
   }
 
   @Override
@@ -22,11 +22,13 @@ package org.sonar.java.bytecode;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmMethod;
 
+import javax.annotation.Nullable;
+
 public class VirtualMethodsLinker {
 
   public void process(AsmMethod method) {
     if (!method.isBodyLoaded() && method.isUsed()) {
-      AsmMethod implementation = findImplementation(method.getParent(), method.getKey());
+      AsmMethod implementation = resolveVirtual(method.getParent(), method.getKey());
       if (implementation != null) {
         implementation.setUsed(true);
         method.linkTo(implementation);
@@ -34,15 +36,14 @@ public class VirtualMethodsLinker {
     }
   }
 
-  private AsmMethod findImplementation(AsmClass asmClass, String methodKey) {
-    AsmMethod method = asmClass.getMethod(methodKey);
-    if (method != null && method.isBodyLoaded()) {
-      return method;
-    }
-    if (asmClass.getSuperClass() != null) {
-      return findImplementation(asmClass.getSuperClass(), methodKey);
-    }
-    return null;
+  /**
+   * Returns implementation of method with given key, which is invoked on an instance of given class,
+   * or null if neither this class nor its superclasses provide it.
+   * Uses lookup memoized in {@link AsmClass}, so should be invoked once classes are loaded.
+   */
+  @Nullable
+  public static AsmMethod resolveVirtual(AsmClass asmClass, String methodKey) {
+    return asmClass.getVirtualMethod(methodKey);
   }
 
 }
@@ -19,8 +19,11 @@
  */
 package org.sonar.java.bytecode.asm;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.MapMaker;
 import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -31,15 +34,18 @@ public class AsmClass extends AsmResource {
 
   private final String internalName;
   private DETAIL_LEVEL level;
+  private volatile DETAIL_LEVEL publishedLevel;
   private AsmClass superClass;
   private Set<AsmClass> children;
   private final Map<String, AsmMethod> methods = new HashMap<String, AsmMethod>();
   private final Map<String, AsmField> fields = new HashMap<String, AsmField>();
   private int noc = 0;
+  private volatile Map<String, Optional<AsmMethod>> virtualMethods;
 
   public AsmClass(String internalName, DETAIL_LEVEL level) {
     this.internalName = internalName;
     setDetailLevel(level);
+    publishDetailLevel();
   }
 
   public AsmClass(String internalName) {
@@ -54,6 +60,20 @@ public class AsmClass extends AsmResource {
     return level;
   }
 
+  /**
+   * Marks decoration up to current detail level as complete, so that class can be used by other threads without lock.
+   */
+  final void publishDetailLevel() {
+    publishedLevel = level;
+  }
+
+  /**
+   * @return detail level, up to which decoration is complete, or null
+   */
+  DETAIL_LEVEL getPublishedDetailLevel() {
+    return publishedLevel;
+  }
+
   public String getInternalName() {
     return internalName;
   }
@@ -107,10 +127,35 @@ public class AsmClass extends AsmResource {
     return method;
   }
 
+  /**
+   * Returns the method with loaded body and given key, which is declared by this class or inherited from the nearest superclass,
+   * or null. Lookup is delegated to superclass, which memoizes its own results, so each class stores only keys requested on it
+   * and shares resolutions of its superclasses. Must not be invoked before hierarchy of this class is loaded.
+   */
+  @Nullable
+  public AsmMethod getVirtualMethod(String key) {
+    Map<String, Optional<AsmMethod>> resolved = virtualMethods;
+    if (resolved == null) {
+      // concurrent initializations only lose memoized results
+      resolved = new MapMaker().concurrencyLevel(1).makeMap();
+      virtualMethods = resolved;
+    }
+    Optional<AsmMethod> result = resolved.get(key);
+    if (result == null) {
+      AsmMethod method = getMethod(key);
+      if (method == null || !method.isBodyLoaded()) {
+        method = superClass == null ? null : superClass.getVirtualMethod(key);
+      }
+      result = Optional.fromNullable(method);
+      resolved.put(key, result);
+    }
+    return result.orNull();
+  }
+
   void setSuperClass(AsmClass superClass) {
     this.superClass = superClass;
     superClass.addChildren(this);
-    addEdge(new AsmEdge(this, superClass, SourceCodeEdgeUsage.EXTENDS));
+    addEdge(superClass, SourceCodeEdgeUsage.EXTENDS, 0);
   }
 
   private void addChildren(AsmClass asmClass) {
@@ -129,7 +174,7 @@ public class AsmClass extends AsmResource {
 
   void addInterface(AsmClass implementedInterface) {
     implementedInterface.addChildren(this);
-    addEdge(new AsmEdge(this, implementedInterface, SourceCodeEdgeUsage.IMPLEMENTS));
+    addEdge(implementedInterface, SourceCodeEdgeUsage.IMPLEMENTS, 0);
   }
 
   Set<AsmClass> getInterfaces() {
@@ -154,9 +199,12 @@ public class AsmClass extends AsmResource {
 
   public int getNumberOfChildren() {
     if (children != null && noc == 0) {
+      // computed in a local variable, because classes can be visited concurrently
+      int result = 0;
       for (AsmClass child : children) {
-        noc += child.getNumberOfChildren() + 1;
+        result += child.getNumberOfChildren() + 1;
       }
+      noc = result;
     }
     return noc;
   }
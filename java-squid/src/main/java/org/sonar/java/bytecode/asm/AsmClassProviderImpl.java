@@ -19,29 +19,93 @@
  */
 package org.sonar.java.bytecode.asm;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Sets;
 import org.apache.commons.io.IOUtils;
 import org.objectweb.asm.ClassReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Loads classes from bytecode and caches them.
+ * <p>
+ * Number of cached library classes (i.e. classes, which were not requested with calls and were not {@link #pin(Collection) pinned})
+ * is bounded: oldest of them are evicted from cache. Evicted classes, which are still reachable from the classes referencing them,
+ * are found again through weak references, so that there is a single instance of each class. Other ones are reloaded on demand.
+ * </p>
+ * <p>
+ * Cache can be accessed concurrently. Bytecode of requested class and of classes required for its decoration is read and decoded
+ * into a {@link ClassSummary} without lock, but classes are decorated from summaries under lock, because decoration of a class
+ * updates the classes it references.
+ * </p>
+ */
 public class AsmClassProviderImpl extends AsmClassProvider {
 
   private static final Logger LOG = LoggerFactory.getLogger(AsmClassProviderImpl.class);
 
+  public static final int DEFAULT_MAX_LIBRARY_CLASSES = 10000;
+
   private final ClassLoader classLoader;
-  private final Map<String, AsmClass> asmClassCache = new HashMap<String, AsmClass>();
+  private final int maxLibraryClasses;
+  private final ConcurrentMap<String, AsmClass> asmClassCache = new ConcurrentHashMap<String, AsmClass>();
+  private final ConcurrentMap<String, AsmClass> canonicalClasses = new MapMaker().weakValues().makeMap();
+  private final ThreadLocal<Set<String>> classesInProgress = new ThreadLocal<Set<String>>() {
+    @Override
+    protected Set<String> initialValue() {
+      return Sets.newHashSet();
+    }
+  };
+  private final Set<String> pinned = Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private final Queue<AsmClass> libraryClasses = new ConcurrentLinkedQueue<AsmClass>();
+  private final AtomicInteger libraryClassesCount = new AtomicInteger();
+  private BytecodeSummaryCache summaryCache;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
 
   public AsmClassProviderImpl() {
-    this.classLoader = Thread.currentThread().getContextClassLoader();
+    this(Thread.currentThread().getContextClassLoader());
   }
 
   public AsmClassProviderImpl(ClassLoader classLoader) {
+    this(classLoader, DEFAULT_MAX_LIBRARY_CLASSES);
+  }
+
+  public AsmClassProviderImpl(ClassLoader classLoader, int maxLibraryClasses) {
     this.classLoader = classLoader;
+    this.maxLibraryClasses = maxLibraryClasses;
+  }
+
+  /**
+   * Enables loading of classes from JAR files with {@link DETAIL_LEVEL#STRUCTURE} from their summaries.
+   */
+  public void setSummaryCache(@Nullable BytecodeSummaryCache summaryCache) {
+    this.summaryCache = summaryCache;
+  }
+
+  /**
+   * Prevents eviction of given classes, which should be classes from analyzed sources.
+   */
+  public void pin(Collection<String> internalNames) {
+    pinned.addAll(internalNames);
   }
 
   @Override
@@ -50,30 +114,167 @@ public class AsmClassProviderImpl extends AsmClassProvider {
       // TODO Godin: I believe that we should throw IllegalArgumentException instead
       throw new IllegalStateException("You can try to load a class whose internalName = 'null'");
     }
-    AsmClass asmClass = getAsmClassFromCacheOrCreateIt(internalName);
-    if (level.isGreaterThan(asmClass.getDetailLevel())) {
-      decoracteAsmClassFromBytecode(asmClass, level);
+    AsmClass asmClass = getAsmClassFromCacheOrCreateIt(internalName, level);
+    if (level.isGreaterThan(DETAIL_LEVEL.NOTHING) && !isPublished(asmClass, level)) {
+      // unsynchronized check only allows to read and decode bytecode without lock, decision is taken under lock
+      ClassSummary summary = level.isGreaterThan(asmClass.getDetailLevel()) ? readSummaryOrBytecode(asmClass, level) : null;
+      if (summary != null) {
+        loadDependencies(asmClass, summary);
+      }
+      // lock is also taken to wait for the end of decoration of the class by another thread
+      synchronized (this) {
+        if (summary != null && level.isGreaterThan(asmClass.getDetailLevel())) {
+          decorate(asmClass, level, summary);
+        }
+      }
     }
     return asmClass;
   }
 
-  private AsmClass getAsmClassFromCacheOrCreateIt(String internalName) {
+  private static boolean isPublished(AsmClass asmClass, DETAIL_LEVEL level) {
+    DETAIL_LEVEL publishedLevel = asmClass.getPublishedDetailLevel();
+    return publishedLevel != null && !level.isGreaterThan(publishedLevel);
+  }
+
+  /**
+   * Loads classes, which are required for decoration of a class, before taking the lock, so that their bytecode is decoded without lock as well.
+   * Classes, which are already being prepared by current thread, are skipped to not loop on cyclic dependencies.
+   */
+  private void loadDependencies(AsmClass asmClass, ClassSummary summary) {
+    Set<String> inProgress = classesInProgress.get();
+    if (!inProgress.add(asmClass.getInternalName())) {
+      return;
+    }
+    try {
+      for (String dependency : summary.getDependencies()) {
+        if (!inProgress.contains(dependency)) {
+          getClass(dependency, DETAIL_LEVEL.STRUCTURE);
+        }
+      }
+    } finally {
+      inProgress.remove(asmClass.getInternalName());
+    }
+  }
+
+  private AsmClass getAsmClassFromCacheOrCreateIt(String internalName, DETAIL_LEVEL level) {
     AsmClass asmClass = asmClassCache.get(internalName);
-    if (asmClass == null) {
-      asmClass = new AsmClass(internalName, DETAIL_LEVEL.NOTHING);
-      asmClassCache.put(internalName, asmClass);
+    if (asmClass != null) {
+      hits.incrementAndGet();
+      return asmClass;
     }
-    return asmClass;
+    AsmClass newAsmClass = new AsmClass(internalName, DETAIL_LEVEL.NOTHING);
+    AsmClass evictedAsmClass = canonicalClasses.putIfAbsent(internalName, newAsmClass);
+    if (evictedAsmClass != null) {
+      newAsmClass = evictedAsmClass;
+    }
+    asmClass = asmClassCache.putIfAbsent(internalName, newAsmClass);
+    if (asmClass != null) {
+      hits.incrementAndGet();
+      return asmClass;
+    }
+    if (evictedAsmClass != null) {
+      hits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+    }
+    if (level != DETAIL_LEVEL.STRUCTURE_AND_CALLS && !pinned.contains(internalName)) {
+      libraryClasses.add(newAsmClass);
+      if (libraryClassesCount.incrementAndGet() > maxLibraryClasses) {
+        evictLibraryClasses();
+      }
+    }
+    return newAsmClass;
   }
 
-  private void decoracteAsmClassFromBytecode(AsmClass asmClass, DETAIL_LEVEL level) {
-    InputStream input = null;
+  private synchronized void evictLibraryClasses() {
+    while (libraryClassesCount.get() > maxLibraryClasses) {
+      AsmClass asmClass = libraryClasses.poll();
+      if (asmClass == null) {
+        return;
+      }
+      libraryClassesCount.decrementAndGet();
+      if (asmClass.getDetailLevel() != DETAIL_LEVEL.STRUCTURE_AND_CALLS
+        && !pinned.contains(asmClass.getInternalName())
+        && asmClassCache.remove(asmClass.getInternalName(), asmClass)) {
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Returns summary of a class from JAR file, when summaries are enabled and sufficient for the requested level.
+   */
+  @Nullable
+  private ClassSummary readSummary(AsmClass asmClass, DETAIL_LEVEL level) {
+    if (summaryCache == null || level != DETAIL_LEVEL.STRUCTURE) {
+      return null;
+    }
+    URL url = classLoader.getResource(asmClass.getInternalName() + ".class");
+    File jar = url == null ? null : getJarFile(url);
+    if (jar == null) {
+      return null;
+    }
+    ClassSummary summary = summaryCache.get(jar, asmClass.getInternalName());
+    if (summary == null) {
+      InputStream input = null;
+      try {
+        input = url.openStream();
+        summary = ClassSummary.of(new ClassReader(input));
+        summaryCache.put(jar, summary);
+      } catch (Exception e) {
+        // class will be read without summary, which reports the problem
+        return null;
+      } finally {
+        IOUtils.closeQuietly(input);
+      }
+    }
+    return summary;
+  }
+
+  @Nullable
+  static File getJarFile(URL url) {
+    String path = url.getPath();
+    int separator = path.indexOf("!/");
+    if (!"jar".equals(url.getProtocol()) || separator < 0) {
+      return null;
+    }
+    path = path.substring(0, separator);
+    if (path.startsWith("file:")) {
+      try {
+        return new File(new URI(path));
+      } catch (URISyntaxException e) {
+        return null;
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+    return new File(path);
+  }
+
+  @Nullable
+  private ClassSummary readSummaryOrBytecode(AsmClass asmClass, DETAIL_LEVEL level) {
+    ClassSummary summary = readSummary(asmClass, level);
+    if (summary != null) {
+      return summary;
+    }
+    ClassReader asmReader = readBytecode(asmClass);
+    if (asmReader == null) {
+      return null;
+    }
     try {
+      return level == DETAIL_LEVEL.STRUCTURE_AND_CALLS ? ClassSummary.withCode(asmReader) : ClassSummary.of(asmReader);
+    } catch (Exception e) {
+      LOG.error("Unable to process bytecode of class '" + asmClass.getInternalName() + "'", e);
+      return null;
+    }
+  }
 
-      AsmClassVisitor classVisitor = new AsmClassVisitor(this, asmClass, level);
+  @Nullable
+  private ClassReader readBytecode(AsmClass asmClass) {
+    InputStream input = null;
+    try {
       input = classLoader.getResourceAsStream(asmClass.getInternalName() + ".class");
-      ClassReader asmReader = new ClassReader(input);
-      asmReader.accept(classVisitor, 0);
+      return new ClassReader(input);
     } catch (IOException e) {
       LOG.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader.");
     } catch (SecurityException e) {
@@ -83,6 +284,33 @@ public class AsmClassProviderImpl extends AsmClassProvider {
     } finally {
       IOUtils.closeQuietly(input);
     }
+    return null;
+  }
+
+  private void decorate(AsmClass asmClass, DETAIL_LEVEL level, ClassSummary summary) {
+    try {
+      summary.accept(new AsmClassVisitor(this, asmClass, level));
+    } catch (Exception e) {
+      LOG.error("Unable to process bytecode of class '" + asmClass.getInternalName() + "'", e);
+    }
+    asmClass.publishDetailLevel();
+  }
+
+  @VisibleForTesting
+  boolean isCached(String internalName) {
+    return asmClassCache.containsKey(internalName);
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getEvictionCount() {
+    return evictions.get();
   }
 
 }
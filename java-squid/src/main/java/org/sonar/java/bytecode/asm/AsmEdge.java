@@ -19,6 +19,9 @@
  */
 package org.sonar.java.bytecode.asm;
 
+/**
+ * View of an outgoing edge of {@link AsmResource}, which doesn't keep edges as objects, so edges must be compared with equals.
+ */
 public class AsmEdge {
 
   private final AsmResource from;
@@ -30,7 +33,6 @@ public class AsmEdge {
     this.from = from;
     this.to = to;
     this.usage = usage;
-    to.setUsed(true);
   }
 
   AsmEdge(AsmResource from, AsmResource to, SourceCodeEdgeUsage usage, int sourceLineNumber) {
@@ -52,7 +52,7 @@ public class AsmMethod extends AsmResource {
 
   void addThrowsOfClasses(AsmClass[] asmClasses) {
     for (AsmClass asmClass : asmClasses) {
-      addEdge(new AsmEdge(this, asmClass, SourceCodeEdgeUsage.THROWS));
+      addEdge(asmClass, SourceCodeEdgeUsage.THROWS, 0);
     }
   }
 
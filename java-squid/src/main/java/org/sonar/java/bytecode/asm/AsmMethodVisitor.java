@@ -42,7 +42,7 @@ public class AsmMethodVisitor extends EmptyVisitor {
   public void visitFieldInsn(int opcode, String owner, String fieldName, String fieldDescription) {
     AsmClass targetClass = asmClassProvider.getClass(owner, DETAIL_LEVEL.NOTHING);
     AsmField targetField = targetClass.getFieldOrCreateIt(fieldName);
-    method.addEdge(new AsmEdge(method, targetField, SourceCodeEdgeUsage.CALLS_FIELD, lineNumber));
+    method.addEdge(targetField, SourceCodeEdgeUsage.CALLS_FIELD, lineNumber);
     emptyMethod = false;
   }
 
@@ -51,7 +51,7 @@ public class AsmMethodVisitor extends EmptyVisitor {
     if (isNotCallToJavaArrayMethod(owner)) {
       AsmClass targetClass = asmClassProvider.getClass(owner, DETAIL_LEVEL.STRUCTURE);
       AsmMethod targetMethod = targetClass.getMethodOrCreateIt(methodName + methodDescription);
-      method.addEdge(new AsmEdge(method, targetMethod, SourceCodeEdgeUsage.CALLS_METHOD, lineNumber));
+      method.addEdge(targetMethod, SourceCodeEdgeUsage.CALLS_METHOD, lineNumber);
     }
     emptyMethod = false;
   }
@@ -64,7 +64,7 @@ public class AsmMethodVisitor extends EmptyVisitor {
   public void visitTryCatchBlock(Label start, Label end, Label handler, String exception) {
     if (exception != null) {
       AsmClass exceptionClass = asmClassProvider.getClass(exception, DETAIL_LEVEL.NOTHING);
-      method.addEdge(new AsmEdge(method, exceptionClass, SourceCodeEdgeUsage.USES, lineNumber));
+      method.addEdge(exceptionClass, SourceCodeEdgeUsage.USES, lineNumber);
     }
     emptyMethod = false;
   }
@@ -72,7 +72,7 @@ public class AsmMethodVisitor extends EmptyVisitor {
   @Override
   public void visitTypeInsn(int opcode, String internalName) {
     AsmClass usedClass = asmClassProvider.getClass(internalName, DETAIL_LEVEL.NOTHING);
-    method.addEdge(new AsmEdge(method, usedClass, SourceCodeEdgeUsage.USES, lineNumber));
+    method.addEdge(usedClass, SourceCodeEdgeUsage.USES, lineNumber);
     emptyMethod = false;
   }
 
@@ -118,7 +118,7 @@ public class AsmMethodVisitor extends EmptyVisitor {
     if (cst instanceof Type) {
       Type type = (Type) cst;
       AsmClass usedClass = asmClassProvider.getClass(type.getInternalName(), DETAIL_LEVEL.NOTHING);
-      method.addEdge(new AsmEdge(method, usedClass, SourceCodeEdgeUsage.USES, lineNumber));
+      method.addEdge(usedClass, SourceCodeEdgeUsage.USES, lineNumber);
     }
     emptyMethod = false;
   }
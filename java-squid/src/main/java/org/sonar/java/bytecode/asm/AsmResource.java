@@ -19,18 +19,33 @@
  */
 package org.sonar.java.bytecode.asm;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
+import java.util.RandomAccess;
 import java.util.Set;
 
+/**
+ * Outgoing edges are stored in two parallel arrays: targets, and usages packed together with source line numbers.
+ * {@link AsmEdge}s are not retained: they are created on each access as views of these arrays, so must be compared with equals.
+ * Edges are guarded by the lock of this resource, because they can be added while other threads visit already loaded classes.
+ */
 public class AsmResource {
 
+  private static final SourceCodeEdgeUsage[] USAGES = SourceCodeEdgeUsage.values();
+  private static final int LINE_BITS = 24;
+  private static final int MAX_LINE = (1 << LINE_BITS) - 1;
+
   private int accessFlags;
   AsmClass parent;
   boolean used = false;
-  private final List<AsmEdge> outgoingEdges = new ArrayList<AsmEdge>();
+
+  private AsmResource[] edgeTargets;
+  private int[] edgeUsagesAndLines;
+  private int edgeCount;
+  private Set<AsmClass> distinctUsedAsmClasses;
+  private Set<AsmClass> implementedInterfaces;
 
   void setAccessFlags(int accessFlags) {
     this.accessFlags = accessFlags;
@@ -38,40 +53,108 @@ public class AsmResource {
 
   void addUsesOfClasses(AsmClass[] asmClasses) {
     for (AsmClass asmClass : asmClasses) {
-      addEdge(new AsmEdge(this, asmClass, SourceCodeEdgeUsage.USES));
+      addEdge(asmClass, SourceCodeEdgeUsage.USES, 0);
     }
   }
 
-  public Set<AsmClass> getDistinctUsedAsmClasses() {
-    Set<AsmClass> distinctUsedAsmClasses = new HashSet<AsmClass>();
-    for (AsmEdge usage : getOutgoingEdges()) {
-      if (usage.getUsage() == SourceCodeEdgeUsage.USES) {
-        distinctUsedAsmClasses.add((AsmClass) usage.getTo());
-      }
+  public synchronized Set<AsmClass> getDistinctUsedAsmClasses() {
+    Set<AsmClass> result = distinctUsedAsmClasses;
+    if (result == null) {
+      result = Collections.unmodifiableSet(getDistinctTargetClasses(SourceCodeEdgeUsage.USES));
+      distinctUsedAsmClasses = result;
     }
-    return distinctUsedAsmClasses;
+    return result;
   }
 
-  public Set<AsmClass> getImplementedInterfaces() {
-    Set<AsmClass> implementedInterfaces = new HashSet<AsmClass>();
-    for (AsmEdge usage : getOutgoingEdges()) {
-      if (usage.getUsage() == SourceCodeEdgeUsage.IMPLEMENTS) {
-        implementedInterfaces.add((AsmClass) usage.getTo());
+  public synchronized Set<AsmClass> getImplementedInterfaces() {
+    Set<AsmClass> result = implementedInterfaces;
+    if (result == null) {
+      result = Collections.unmodifiableSet(getDistinctTargetClasses(SourceCodeEdgeUsage.IMPLEMENTS));
+      implementedInterfaces = result;
+    }
+    return result;
+  }
+
+  private Set<AsmClass> getDistinctTargetClasses(SourceCodeEdgeUsage usage) {
+    Set<AsmClass> result = new HashSet<AsmClass>();
+    for (int i = 0; i < edgeCount; i++) {
+      if (getEdgeUsage(i) == usage) {
+        result.add((AsmClass) edgeTargets[i]);
       }
     }
-    return implementedInterfaces;
+    return result;
   }
 
   public void addEdge(AsmEdge edge) {
-    outgoingEdges.add(edge);
+    addEdge(edge.getTo(), edge.getUsage(), edge.getSourceLineNumber());
+  }
+
+  synchronized void addEdge(AsmResource to, SourceCodeEdgeUsage usage, int sourceLineNumber) {
+    if (edgeTargets == null) {
+      edgeTargets = new AsmResource[4];
+      edgeUsagesAndLines = new int[4];
+    } else if (edgeCount == edgeTargets.length) {
+      int newLength = edgeCount * 2;
+      AsmResource[] newTargets = new AsmResource[newLength];
+      System.arraycopy(edgeTargets, 0, newTargets, 0, edgeCount);
+      edgeTargets = newTargets;
+      int[] newUsagesAndLines = new int[newLength];
+      System.arraycopy(edgeUsagesAndLines, 0, newUsagesAndLines, 0, edgeCount);
+      edgeUsagesAndLines = newUsagesAndLines;
+    }
+    edgeTargets[edgeCount] = to;
+    edgeUsagesAndLines[edgeCount] = (usage.ordinal() << LINE_BITS) | Math.min(Math.max(sourceLineNumber, 0), MAX_LINE);
+    edgeCount++;
+    to.setUsed(true);
+    distinctUsedAsmClasses = null;
+    implementedInterfaces = null;
   }
 
-  public void clearOutogingEdges() {
-    outgoingEdges.clear();
+  private SourceCodeEdgeUsage getEdgeUsage(int index) {
+    return USAGES[edgeUsagesAndLines[index] >>> LINE_BITS];
   }
 
-  public Collection<AsmEdge> getOutgoingEdges() {
-    return outgoingEdges;
+  public synchronized void clearOutogingEdges() {
+    edgeTargets = null;
+    edgeUsagesAndLines = null;
+    edgeCount = 0;
+    distinctUsedAsmClasses = null;
+    implementedInterfaces = null;
+  }
+
+  /**
+   * Returns a view of edges added until now. Existing slots of arrays are never modified, and arrays are replaced when they grow
+   * or are cleared, so the view doesn't need the lock once it is created.
+   */
+  public synchronized Collection<AsmEdge> getOutgoingEdges() {
+    return new OutgoingEdges(edgeTargets, edgeUsagesAndLines, edgeCount);
+  }
+
+  private final class OutgoingEdges extends AbstractList<AsmEdge> implements RandomAccess {
+
+    private final AsmResource[] targets;
+    private final int[] usagesAndLines;
+    private final int size;
+
+    private OutgoingEdges(AsmResource[] targets, int[] usagesAndLines, int size) {
+      this.targets = targets;
+      this.usagesAndLines = usagesAndLines;
+      this.size = size;
+    }
+
+    @Override
+    public AsmEdge get(int index) {
+      if (index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return new AsmEdge(AsmResource.this, targets[index], USAGES[usagesAndLines[index] >>> LINE_BITS], usagesAndLines[index] & MAX_LINE);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
   }
 
   public AsmClass getParent() {
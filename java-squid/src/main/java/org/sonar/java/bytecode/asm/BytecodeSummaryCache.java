@@ -0,0 +1,204 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Persistent store of {@link ClassSummary summaries} of classes from JAR files, which allows to load classes with
+ * {@link AsmClassProvider.DETAIL_LEVEL#STRUCTURE} without parsing of their bytecode.
+ * Summaries are stored in a directory, one file per JAR file, named after checksum of JAR file, so that they can be shared
+ * between projects and between concurrent analyses: files are never modified, but replaced by a temporary file unique to the writer.
+ * A file, which can't be decoded, is a miss.
+ */
+public class BytecodeSummaryCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BytecodeSummaryCache.class);
+
+  private static final int FORMAT_VERSION = 1;
+
+  private final File directory;
+  private final Map<File, JarSummaries> jars = Maps.newHashMap();
+
+  public BytecodeSummaryCache(File directory) {
+    this.directory = directory;
+  }
+
+  @Nullable
+  synchronized ClassSummary get(File jar, String internalName) {
+    JarSummaries jarSummaries = getJarSummaries(jar);
+    return jarSummaries == null ? null : jarSummaries.classes.get(internalName);
+  }
+
+  synchronized void put(File jar, ClassSummary summary) {
+    JarSummaries jarSummaries = getJarSummaries(jar);
+    if (jarSummaries != null) {
+      jarSummaries.classes.put(summary.getName(), summary);
+      jarSummaries.modified = true;
+    }
+  }
+
+  @Nullable
+  private JarSummaries getJarSummaries(File jar) {
+    if (!jars.containsKey(jar)) {
+      jars.put(jar, loadJarSummaries(jar));
+    }
+    return jars.get(jar);
+  }
+
+  @Nullable
+  private JarSummaries loadJarSummaries(File jar) {
+    String checksum;
+    try {
+      checksum = checksum(jar);
+    } catch (IOException e) {
+      LOG.debug("Unable to compute checksum of " + jar.getAbsolutePath(), e);
+      return null;
+    }
+    JarSummaries jarSummaries = new JarSummaries(new File(directory, checksum));
+    if (jarSummaries.file.isFile()) {
+      try {
+        byte[] data = Files.toByteArray(jarSummaries.file);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() == FORMAT_VERSION) {
+          int size = in.readInt();
+          if (size < 0 || size > data.length) {
+            throw new IOException("Invalid number of summaries: " + size);
+          }
+          for (int i = 0; i < size; i++) {
+            ClassSummary summary = ClassSummary.read(in);
+            jarSummaries.classes.put(summary.getName(), summary);
+          }
+        }
+      } catch (Exception e) {
+        // corrupted file is a cache miss
+        LOG.warn("Unable to read bytecode summaries " + jarSummaries.file.getAbsolutePath(), e);
+        jarSummaries.classes.clear();
+      }
+    }
+    return jarSummaries;
+  }
+
+  /**
+   * Writes summaries of JAR files, which were extended since they were read.
+   */
+  public synchronized void save() {
+    for (JarSummaries jarSummaries : jars.values()) {
+      if (jarSummaries != null && jarSummaries.modified) {
+        save(jarSummaries);
+        jarSummaries.modified = false;
+      }
+    }
+  }
+
+  private static void save(JarSummaries jarSummaries) {
+    File file = jarSummaries.file;
+    File tmpFile = null;
+    DataOutputStream out = null;
+    try {
+      Files.createParentDirs(file);
+      // unique per writer, because concurrent analyses can save summaries of the same JAR file
+      tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(jarSummaries.classes.size());
+      for (ClassSummary summary : jarSummaries.classes.values()) {
+        summary.write(out);
+      }
+      out.close();
+      // rename in order to never expose partially written file to another analysis
+      if (!tmpFile.renameTo(file) && !(file.delete() && tmpFile.renameTo(file))) {
+        throw new IOException("Unable to rename " + tmpFile + " to " + file);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to write bytecode summaries " + file.getAbsolutePath(), e);
+    } finally {
+      Closeables.closeQuietly(out);
+      // temporary file remains only if it was not renamed
+      if (tmpFile != null && tmpFile.exists() && !tmpFile.delete()) {
+        LOG.debug("Unable to delete " + tmpFile.getAbsolutePath());
+      }
+    }
+  }
+
+  /**
+   * Checksum of content of JAR file computed from its central directory, i.e. from names, sizes and CRC-32 of all entries,
+   * which is much cheaper than reading of the whole file.
+   */
+  static String checksum(File jar) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw Throwables.propagate(e);
+    }
+    ZipFile zipFile = new ZipFile(jar);
+    try {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        digest.update((entry.getName() + '|' + entry.getSize() + '|' + entry.getCrc() + '\n').getBytes(Charsets.UTF_8));
+      }
+    } finally {
+      zipFile.close();
+    }
+    String hex = new BigInteger(1, digest.digest()).toString(16);
+    StringBuilder sb = new StringBuilder(40);
+    for (int i = hex.length(); i < 40; i++) {
+      sb.append('0');
+    }
+    return sb.append(hex).toString();
+  }
+
+  private static final class JarSummaries {
+
+    private final File file;
+    private final Map<String, ClassSummary> classes = Maps.newHashMap();
+    private boolean modified = false;
+
+    private JarSummaries(File file) {
+      this.file = file;
+    }
+
+  }
+
+}
@@ -0,0 +1,418 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.EmptyVisitor;
+
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Part of bytecode of a class, which is used to load it with {@link AsmClassProvider.DETAIL_LEVEL#STRUCTURE}:
+ * access flags, signatures, supertypes, fields and methods without their code.
+ * Summary {@link #withCode(ClassReader) with code} additionally keeps instructions used by {@link AsmMethodVisitor},
+ * which allows to decode bytecode without lock and to decorate class from the summary under lock.
+ */
+final class ClassSummary {
+
+  private int version;
+  private int access;
+  private String name;
+  private String signature;
+  private String superName;
+  private String[] interfaces;
+  private final List<Member> fields = Lists.newArrayList();
+  private final List<Member> methods = Lists.newArrayList();
+
+  private ClassSummary() {
+  }
+
+  static ClassSummary of(ClassReader classReader) {
+    return read(classReader, false);
+  }
+
+  static ClassSummary withCode(ClassReader classReader) {
+    return read(classReader, true);
+  }
+
+  private static ClassSummary read(ClassReader classReader, final boolean withCode) {
+    final ClassSummary summary = new ClassSummary();
+    classReader.accept(new EmptyVisitor() {
+      @Override
+      public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        summary.version = version;
+        summary.access = access;
+        summary.name = name;
+        summary.signature = signature;
+        summary.superName = superName;
+        summary.interfaces = interfaces == null ? new String[0] : interfaces;
+      }
+
+      @Override
+      public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+        summary.fields.add(new Member(access, name, desc, signature, null));
+        return null;
+      }
+
+      @Override
+      public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        Member method = new Member(access, name, desc, signature, exceptions);
+        summary.methods.add(method);
+        if (withCode) {
+          method.code = new Code();
+          return method.code;
+        }
+        return null;
+      }
+    }, withCode ? 0 : ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    return summary;
+  }
+
+  /**
+   * Replays to given visitor the calls, which would be done by {@link ClassReader} for the class.
+   */
+  void accept(ClassVisitor classVisitor) {
+    classVisitor.visit(version, access, name, signature, superName, interfaces);
+    for (Member field : fields) {
+      classVisitor.visitField(field.access, field.name, field.desc, field.signature, null);
+    }
+    for (Member method : methods) {
+      MethodVisitor methodVisitor = classVisitor.visitMethod(method.access, method.name, method.desc, method.signature, method.exceptions);
+      if (methodVisitor != null && method.code != null) {
+        method.code.accept(methodVisitor);
+      }
+    }
+    classVisitor.visitEnd();
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /**
+   * @return internal names of classes, which are loaded with {@link AsmClassProvider.DETAIL_LEVEL#STRUCTURE} by {@link AsmClassVisitor}
+   * and {@link AsmMethodVisitor} during decoration of class from this summary
+   */
+  Set<String> getDependencies() {
+    Set<String> result = Sets.newLinkedHashSet();
+    if ((access & Opcodes.ACC_INTERFACE) != 0) {
+      if (interfaces.length == 1) {
+        result.add(interfaces[0]);
+      }
+    } else {
+      if (superName != null) {
+        result.add(superName);
+      }
+      result.addAll(Arrays.asList(interfaces));
+    }
+    for (Member method : methods) {
+      if (method.exceptions != null) {
+        result.addAll(Arrays.asList(method.exceptions));
+      }
+      if (method.code != null) {
+        method.code.addCalledClasses(result);
+      }
+    }
+    return result;
+  }
+
+  void write(DataOutput out) throws IOException {
+    for (Member method : methods) {
+      Preconditions.checkState(method.code == null, "Summary with code can't be written");
+    }
+    out.writeInt(version);
+    out.writeInt(access);
+    out.writeUTF(name);
+    writeNullable(out, signature);
+    writeNullable(out, superName);
+    writeArray(out, interfaces);
+    writeMembers(out, fields);
+    writeMembers(out, methods);
+  }
+
+  static ClassSummary read(DataInput in) throws IOException {
+    ClassSummary summary = new ClassSummary();
+    summary.version = in.readInt();
+    summary.access = in.readInt();
+    summary.name = in.readUTF();
+    summary.signature = readNullable(in);
+    summary.superName = readNullable(in);
+    summary.interfaces = readArray(in);
+    readMembers(in, summary.fields);
+    readMembers(in, summary.methods);
+    return summary;
+  }
+
+  private static void writeMembers(DataOutput out, List<Member> members) throws IOException {
+    out.writeInt(members.size());
+    for (Member member : members) {
+      out.writeInt(member.access);
+      out.writeUTF(member.name);
+      out.writeUTF(member.desc);
+      writeNullable(out, member.signature);
+      out.writeBoolean(member.exceptions != null);
+      if (member.exceptions != null) {
+        writeArray(out, member.exceptions);
+      }
+    }
+  }
+
+  private static void readMembers(DataInput in, List<Member> members) throws IOException {
+    int size = readCount(in);
+    for (int i = 0; i < size; i++) {
+      int access = in.readInt();
+      String name = in.readUTF();
+      String desc = in.readUTF();
+      String signature = readNullable(in);
+      String[] exceptions = in.readBoolean() ? readArray(in) : null;
+      members.add(new Member(access, name, desc, signature, exceptions));
+    }
+  }
+
+  private static void writeNullable(DataOutput out, @Nullable String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  @Nullable
+  private static String readNullable(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeArray(DataOutput out, String[] values) throws IOException {
+    out.writeInt(values.length);
+    for (String value : values) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String[] readArray(DataInput in) throws IOException {
+    String[] values = new String[readCount(in)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = in.readUTF();
+    }
+    return values;
+  }
+
+  /**
+   * Numbers of interfaces, fields, methods and exceptions are stored on two bytes in class files, so a bigger one means corrupted data.
+   */
+  private static int readCount(DataInput in) throws IOException {
+    int count = in.readInt();
+    if (count < 0 || count > 0xFFFF) {
+      throw new IOException("Invalid count: " + count);
+    }
+    return count;
+  }
+
+  private static final class Member {
+
+    private final int access;
+    private final String name;
+    private final String desc;
+    private final String signature;
+    private final String[] exceptions;
+    private Code code;
+
+    private Member(int access, String name, String desc, @Nullable String signature, @Nullable String[] exceptions) {
+      this.access = access;
+      this.name = name;
+      this.desc = desc;
+      this.signature = signature;
+      this.exceptions = exceptions;
+    }
+
+  }
+
+  /**
+   * Instructions of a method, which are relevant for {@link AsmMethodVisitor}. Other instructions are kept as {@link Opcodes#NOP},
+   * which is enough to know that method isn't empty.
+   */
+  private static final class Code extends EmptyVisitor {
+
+    private static final int INSN = 0;
+    private static final int FIELD_INSN = 1;
+    private static final int METHOD_INSN = 2;
+    private static final int TYPE_INSN = 3;
+    private static final int LDC_INSN = 4;
+    private static final int TRY_CATCH_BLOCK = 5;
+    private static final int LINE_NUMBER = 6;
+
+    private final List<Instruction> instructions = Lists.newArrayList();
+
+    private void add(int kind, int opcode, @Nullable String owner, @Nullable String name, @Nullable String desc, @Nullable Object operand) {
+      instructions.add(new Instruction(kind, opcode, owner, name, desc, operand));
+    }
+
+    private void addOther() {
+      add(INSN, Opcodes.NOP, null, null, null, null);
+    }
+
+    void accept(MethodVisitor methodVisitor) {
+      for (Instruction instruction : instructions) {
+        switch (instruction.kind) {
+          case FIELD_INSN:
+            methodVisitor.visitFieldInsn(instruction.opcode, instruction.owner, instruction.name, instruction.desc);
+            break;
+          case METHOD_INSN:
+            methodVisitor.visitMethodInsn(instruction.opcode, instruction.owner, instruction.name, instruction.desc);
+            break;
+          case TYPE_INSN:
+            methodVisitor.visitTypeInsn(instruction.opcode, instruction.owner);
+            break;
+          case LDC_INSN:
+            methodVisitor.visitLdcInsn(instruction.operand);
+            break;
+          case TRY_CATCH_BLOCK:
+            methodVisitor.visitTryCatchBlock(null, null, null, instruction.owner);
+            break;
+          case LINE_NUMBER:
+            methodVisitor.visitLineNumber(instruction.opcode, null);
+            break;
+          default:
+            methodVisitor.visitInsn(instruction.opcode);
+            break;
+        }
+      }
+      methodVisitor.visitEnd();
+    }
+
+    void addCalledClasses(Set<String> result) {
+      for (Instruction instruction : instructions) {
+        if (instruction.kind == METHOD_INSN && instruction.owner.charAt(0) != '[') {
+          result.add(instruction.owner);
+        }
+      }
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+      add(FIELD_INSN, opcode, owner, name, desc, null);
+    }
+
+    @Override
+    public void visitMethodInsn(int opcode, String owner, String name, String desc) {
+      add(METHOD_INSN, opcode, owner, name, desc, null);
+    }
+
+    @Override
+    public void visitTypeInsn(int opcode, String type) {
+      add(TYPE_INSN, opcode, type, null, null, null);
+    }
+
+    @Override
+    public void visitLdcInsn(Object cst) {
+      add(LDC_INSN, Opcodes.LDC, null, null, null, cst);
+    }
+
+    @Override
+    public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+      add(TRY_CATCH_BLOCK, 0, type, null, null, null);
+    }
+
+    @Override
+    public void visitLineNumber(int line, Label start) {
+      add(LINE_NUMBER, line, null, null, null, null);
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+      add(INSN, opcode, null, null, null, null);
+    }
+
+    @Override
+    public void visitIincInsn(int var, int increment) {
+      addOther();
+    }
+
+    @Override
+    public void visitFrame(int type, int nLocal, Object[] local, int nStack, Object[] stack) {
+      addOther();
+    }
+
+    @Override
+    public void visitIntInsn(int opcode, int operand) {
+      addOther();
+    }
+
+    @Override
+    public void visitJumpInsn(int opcode, Label label) {
+      addOther();
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+      addOther();
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(String desc, int dims) {
+      addOther();
+    }
+
+    @Override
+    public void visitTableSwitchInsn(int min, int max, Label dflt, Label[] labels) {
+      addOther();
+    }
+
+    @Override
+    public void visitVarInsn(int opcode, int var) {
+      addOther();
+    }
+
+  }
+
+  private static final class Instruction {
+
+    private final int kind;
+    private final int opcode;
+    private final String owner;
+    private final String name;
+    private final String desc;
+    private final Object operand;
+
+    private Instruction(int kind, int opcode, @Nullable String owner, @Nullable String name, @Nullable String desc, @Nullable Object operand) {
+      this.kind = kind;
+      this.opcode = opcode;
+      this.owner = owner;
+      this.name = name;
+      this.desc = desc;
+      this.operand = operand;
+    }
+
+  }
+
+}
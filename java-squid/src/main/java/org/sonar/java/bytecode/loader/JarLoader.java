@@ -19,6 +19,7 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import com.google.common.collect.MapMaker;
 import org.apache.commons.io.IOUtils;
 
 import java.io.File;
@@ -28,11 +29,23 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
 class JarLoader implements Loader {
 
+  /**
+   * Names of entries of JAR files, which were already opened in this JVM, e.g. during analysis of previous module.
+   * Key is made of path, size and time of last modification of file, so that modified file is read again.
+   */
+  private static final Map<String, String[]> ENTRY_NAMES_CACHE = new MapMaker().softValues().makeMap();
+
+  private final File file;
   private final JarFile jarFile;
   private final URL jarUrl;
 
@@ -43,6 +56,7 @@ class JarLoader implements Loader {
     if (file == null) {
       throw new IllegalArgumentException("file can't be null");
     }
+    this.file = file;
     try {
       jarFile = new JarFile(file);
       jarUrl = new URL("jar", "", -1, file.getAbsolutePath() + "!/");
@@ -51,6 +65,27 @@ class JarLoader implements Loader {
     }
   }
 
+  /**
+   * Returns names of all entries of this JAR file, except directories, as they are listed in its central directory.
+   */
+  public String[] getEntryNames() {
+    String key = file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+    String[] entryNames = ENTRY_NAMES_CACHE.get(key);
+    if (entryNames == null) {
+      List<String> names = new ArrayList<String>(jarFile.size());
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        if (!entry.isDirectory()) {
+          names.add(entry.getName());
+        }
+      }
+      entryNames = names.toArray(new String[names.size()]);
+      ENTRY_NAMES_CACHE.put(key, entryNames);
+    }
+    return entryNames;
+  }
+
   public URL findResource(String name) {
     ZipEntry entry = jarFile.getEntry(name);
     if (entry != null) {
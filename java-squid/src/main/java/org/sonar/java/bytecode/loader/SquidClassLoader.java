@@ -20,6 +20,9 @@
 package org.sonar.java.bytecode.loader;
 
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
 
 import java.io.Closeable;
 import java.io.File;
@@ -28,13 +31,29 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class loader, which is able to load classes from a list of JAR files and directories.
+ * <p>
+ * Entries of all JAR files are indexed once, so that a resource is found without searching in each JAR file,
+ * and names of resources, which were not found, are remembered.
+ * </p>
  */
 public class SquidClassLoader extends ClassLoader implements Closeable {
 
   private final List<Loader> loaders;
+  /**
+   * Position in {@link #loaders} of the first JAR file containing a resource.
+   */
+  private final Map<String, Integer> jarIndex = Maps.newHashMap();
+  /**
+   * Positions in {@link #loaders} of directories, which can't be indexed.
+   */
+  private final int[] directories;
+  private final Set<String> notFound = Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
   /**
    * @param files ordered list of files and directories from which to load classes and resources
@@ -42,39 +61,71 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
   public SquidClassLoader(List<File> files) {
     super(null);
     loaders = new ArrayList<Loader>();
+    List<Integer> directoryPositions = new ArrayList<Integer>();
     for (File file : files) {
       if (file.exists()) {
         if (file.isDirectory()) {
+          directoryPositions.add(loaders.size());
           loaders.add(new FileSystemLoader(file));
         } else if (file.getName().endsWith(".jar")) {
-          loaders.add(new JarLoader(file));
+          JarLoader jarLoader = new JarLoader(file);
+          index(jarLoader, loaders.size());
+          loaders.add(jarLoader);
         }
       }
     }
+    directories = Ints.toArray(directoryPositions);
+  }
+
+  private void index(JarLoader jarLoader, int position) {
+    for (String entryName : jarLoader.getEntryNames()) {
+      if (!jarIndex.containsKey(entryName)) {
+        jarIndex.put(entryName, position);
+      }
+    }
+  }
+
+  /**
+   * Returns the first loader, which contains the resource with the given name, in the order of files given to constructor.
+   */
+  private Loader findLoader(String name) {
+    if (notFound.contains(name)) {
+      return null;
+    }
+    Integer jarPosition = jarIndex.get(name);
+    int end = jarPosition == null ? loaders.size() : jarPosition;
+    for (int position : directories) {
+      if (position > end) {
+        break;
+      }
+      Loader loader = loaders.get(position);
+      if (loader.findResource(name) != null) {
+        return loader;
+      }
+    }
+    if (jarPosition != null) {
+      return loaders.get(jarPosition);
+    }
+    notFound.add(name);
+    return null;
   }
 
   @Override
   protected Class<?> findClass(String name) throws ClassNotFoundException {
     String resourceName = name.replace('.', '/') + ".class";
-    for (Loader loader : loaders) {
-      byte[] classBytes = loader.loadBytes(resourceName);
-      if (classBytes != null) {
-        // TODO Godin: definePackage ?
-        return defineClass(name, classBytes, 0, classBytes.length);
-      }
+    Loader loader = findLoader(resourceName);
+    byte[] classBytes = loader == null ? null : loader.loadBytes(resourceName);
+    if (classBytes == null) {
+      throw new ClassNotFoundException(name);
     }
-    throw new ClassNotFoundException(name);
+    // TODO Godin: definePackage ?
+    return defineClass(name, classBytes, 0, classBytes.length);
   }
 
   @Override
   public URL findResource(String name) {
-    for (Loader loader : loaders) {
-      URL url = loader.findResource(name);
-      if (url != null) {
-        return url;
-      }
-    }
-    return null;
+    Loader loader = findLoader(name);
+    return loader == null ? null : loader.findResource(name);
   }
 
   @Override
@@ -22,7 +22,7 @@ package org.sonar.java.bytecode.visitor;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.squid.measures.Metric;
 
-public class DITVisitor extends BytecodeVisitor {
+public class DITVisitor extends BytecodeVisitor implements ThreadSafeVisitor {
 
   @Override
   public void visitClass(AsmClass asmClass) {
@@ -0,0 +1,97 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.visitor;
+
+/**
+ * Disjoint-set forest over elements numbered in the order of their addition, with path compression and union by size.
+ * Each set is labeled by one of its elements, which is chosen by {@link #union(int, int)}.
+ */
+class DisjointSets {
+
+  private int[] parents = new int[16];
+  private int[] sizes = new int[16];
+  private int[] labels = new int[16];
+  private int count;
+
+  int add() {
+    if (count == parents.length) {
+      parents = grow(parents);
+      sizes = grow(sizes);
+      labels = grow(labels);
+    }
+    parents[count] = count;
+    sizes[count] = 1;
+    labels[count] = count;
+    return count++;
+  }
+
+  private static int[] grow(int[] array) {
+    int[] result = new int[array.length * 2];
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
+  int size() {
+    return count;
+  }
+
+  int find(int element) {
+    int root = element;
+    while (parents[root] != root) {
+      root = parents[root];
+    }
+    int current = element;
+    while (parents[current] != root) {
+      int next = parents[current];
+      parents[current] = root;
+      current = next;
+    }
+    return root;
+  }
+
+  /**
+   * Merges sets of given elements, merged set keeping label of the set of {@code element1}.
+   */
+  void union(int element1, int element2) {
+    int root1 = find(element1);
+    int root2 = find(element2);
+    if (root1 == root2) {
+      return;
+    }
+    int label = labels[root1];
+    if (sizes[root1] < sizes[root2]) {
+      int tmp = root1;
+      root1 = root2;
+      root2 = tmp;
+    }
+    parents[root2] = root1;
+    sizes[root1] += sizes[root2];
+    labels[root1] = label;
+  }
+
+  int setSize(int element) {
+    return sizes[find(element)];
+  }
+
+  int label(int element) {
+    return labels[find(element)];
+  }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.visitor;
+
+import java.util.List;
+
+/**
+ * Visitor, all instances of which can be notified through a single visitor, so that for example they share a pass over edges.
+ * See {@link org.sonar.java.bytecode.BytecodeScanner}.
+ */
+public interface GroupableVisitor {
+
+  /**
+   * @param visitors all instances of the class of this visitor in order of registration, including this one
+   * @return visitor, which is notified instead of given ones
+   */
+  BytecodeVisitor group(List<BytecodeVisitor> visitors);
+
+}
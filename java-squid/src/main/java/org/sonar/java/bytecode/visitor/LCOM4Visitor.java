@@ -28,15 +28,22 @@ import org.sonar.java.bytecode.asm.SourceCodeEdgeUsage;
 import org.sonar.squid.measures.Metric;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Computes LCOM4 as number of connected components of the graph of fields and methods, which are linked by calls,
+ * with help of {@link DisjointSets} over indexes of members. Components with a single member are ignored.
+ */
 public class LCOM4Visitor extends BytecodeVisitor {
 
   private AsmClass asmClass;
-  private List<Set<AsmResource>> unrelatedBlocks = null;
+  private Map<AsmResource, Integer> indexes = null;
+  private List<AsmResource> members = null;
+  private DisjointSets sets = null;
   private final Set<String> fieldsToExcludeFromLcom4Calculation;
 
   public LCOM4Visitor(Set<String> fieldsToExcludeFromLcom4Calculation) {
@@ -46,17 +53,19 @@ public class LCOM4Visitor extends BytecodeVisitor {
   @Override
   public void visitClass(AsmClass asmClass) {
     this.asmClass = asmClass;
-    unrelatedBlocks = new ArrayList<Set<AsmResource>>();
+    indexes = new HashMap<AsmResource, Integer>();
+    members = new ArrayList<AsmResource>();
+    sets = new DisjointSets();
   }
 
   @Override
   public void visitMethod(AsmMethod asmMethod) {
     if (isMethodElligibleForLCOM4Computation(asmMethod)) {
-      ensureBlockIsCreated(asmMethod);
+      int methodIndex = getOrCreateIndex(asmMethod);
       for (AsmEdge edge : asmMethod.getOutgoingEdges()) {
         if (isCallToInternalFieldOrMethod(edge) && isNotCallToExcludedFieldFromLcom4Calculation(edge.getTo())) {
           AsmResource toResource = getAccessedFieldOrMethod(edge.getTo());
-          linkAsmResources(asmMethod, toResource);
+          sets.union(methodIndex, getOrCreateIndex(toResource));
         }
       }
     }
@@ -83,70 +92,71 @@ public class LCOM4Visitor extends BytecodeVisitor {
       && !asmMethod.isAccessor() && asmMethod.isBodyLoaded();
   }
 
-  private void removeIsolatedMethodBlocks() {
-    Iterator<Set<AsmResource>> iterator = unrelatedBlocks.iterator();
-
-    while (iterator.hasNext()) {
-      Set<AsmResource> block = iterator.next();
-      if (block.size() == 1) {
-        iterator.remove();
-      }
-    }
-
-  }
-
   @Override
   public void leaveClass(AsmClass asmClass) {
-    removeIsolatedMethodBlocks();
+    int[][] blocks = getBlocks();
 
-    int lcom4 = unrelatedBlocks.size();
+    int lcom4 = blocks.length;
     if (lcom4 == 0) {
       lcom4 = 1;
     }
 
+    List<Set<AsmResource>> lcom4Blocks = new Lcom4Blocks(members, blocks);
+    indexes = null;
+    members = null;
+    sets = null;
+
     getSourceClass(asmClass).add(Metric.LCOM4, lcom4);
-    getSourceClass(asmClass).addData(Metric.LCOM4_BLOCKS, unrelatedBlocks);
+    getSourceClass(asmClass).addData(Metric.LCOM4_BLOCKS, lcom4Blocks);
 
     if (isMainPublicClassInFile(asmClass)) {
       getSourceFile(asmClass).add(Metric.LCOM4, lcom4);
-      getSourceFile(asmClass).addData(Metric.LCOM4_BLOCKS, unrelatedBlocks);
+      getSourceFile(asmClass).addData(Metric.LCOM4_BLOCKS, lcom4Blocks);
     }
   }
 
-  private void ensureBlockIsCreated(AsmResource resource) {
-    getOrCreateResourceBlock(resource);
-  }
-
-  private void linkAsmResources(AsmResource resourceA, AsmResource resourceB) {
-    Set<AsmResource> blockA = getOrCreateResourceBlock(resourceA);
-    Set<AsmResource> blockB = getOrCreateResourceBlock(resourceB);
-
-    // getOrCreateResourceBlock() returns the same block instance if resourceA and resourceB are identical or already in the same block
-    // TODO: Avoid this violation by using a Disjoint Union Set which is also more efficient performance-wise
-    // See: http://en.wikipedia.org/wiki/Disjoint-set_data_structure
-    if (blockA == blockB) { // NOSONAR false-positive Compare Objects With Equals
-      return;
+  /**
+   * Returns indexes of members of each set with more than one member, sets being ordered by their labels,
+   * i.e. by creation of the first method, which was linked to the set.
+   */
+  private int[][] getBlocks() {
+    int count = sets.size();
+    int[] blockIndexes = new int[count];
+    Arrays.fill(blockIndexes, -1);
+    int nbBlocks = 0;
+    for (int i = 0; i < count; i++) {
+      if (sets.label(i) == i && sets.setSize(i) > 1) {
+        blockIndexes[i] = nbBlocks;
+        nbBlocks++;
+      }
     }
-
-    blockA.addAll(blockB);
-    unrelatedBlocks.remove(blockB);
+    int[][] blocks = new int[nbBlocks][];
+    int[] blockSizes = new int[nbBlocks];
+    for (int i = 0; i < count; i++) {
+      int blockIndex = blockIndexes[sets.label(i)];
+      if (blockIndex >= 0) {
+        if (blocks[blockIndex] == null) {
+          blocks[blockIndex] = new int[sets.setSize(i)];
+        }
+        blocks[blockIndex][blockSizes[blockIndex]] = i;
+        blockSizes[blockIndex]++;
+      }
+    }
+    return blocks;
   }
 
   private boolean isCallToInternalFieldOrMethod(AsmEdge edge) {
     return edge.getTargetAsmClass() == asmClass && (edge.getUsage() == SourceCodeEdgeUsage.CALLS_FIELD || edge.getUsage() == SourceCodeEdgeUsage.CALLS_METHOD);
   }
 
-  private Set<AsmResource> getOrCreateResourceBlock(AsmResource resource) {
-    for (Set<AsmResource> block : unrelatedBlocks) {
-      if (block.contains(resource)) {
-        return block;
-      }
+  private int getOrCreateIndex(AsmResource resource) {
+    Integer index = indexes.get(resource);
+    if (index == null) {
+      index = sets.add();
+      indexes.put(resource, index);
+      members.add(resource);
     }
-
-    Set<AsmResource> block = new HashSet<AsmResource>();
-    block.add(resource);
-    unrelatedBlocks.add(block);
-    return block;
+    return index;
   }
 
 }
@@ -0,0 +1,140 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.visitor;
+
+import org.sonar.java.bytecode.asm.AsmClass;
+import org.sonar.java.bytecode.asm.AsmField;
+import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.asm.AsmResource;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Blocks of LCOM4, which keep only names of members until one of blocks is requested.
+ * <p>
+ * Blocks are kept in the tree of SourceCode until they are saved, so they must not reference the graph of AsmClass loaded from bytecode,
+ * otherwise this graph can't be garbage collected after the bytecode scan. So members of blocks are detached copies of the original ones.
+ * </p>
+ */
+public final class Lcom4Blocks extends AbstractList<Set<AsmResource>> implements RandomAccess {
+
+  private final String[] owners;
+  private final String[] names;
+  private final boolean[] fields;
+  private final int[][] blocks;
+  private List<Set<AsmResource>> materialized;
+
+  /**
+   * @param blocks indexes of members of each block
+   */
+  public Lcom4Blocks(List<AsmResource> members, int[][] blocks) {
+    int count = members.size();
+    this.owners = new String[count];
+    this.names = new String[count];
+    this.fields = new boolean[count];
+    for (int i = 0; i < count; i++) {
+      AsmResource member = members.get(i);
+      owners[i] = member.getParent().getInternalName();
+      if (member instanceof AsmField) {
+        names[i] = ((AsmField) member).getName();
+        fields[i] = true;
+      } else {
+        names[i] = ((AsmMethod) member).getKey();
+      }
+    }
+    this.blocks = blocks;
+  }
+
+  @Override
+  public int size() {
+    return blocks.length;
+  }
+
+  @Override
+  public Set<AsmResource> get(int index) {
+    return materialize().get(index);
+  }
+
+  @Override
+  public Set<AsmResource> set(int index, Set<AsmResource> block) {
+    return materialize().set(index, block);
+  }
+
+  /**
+   * Size of given block, which doesn't require to materialize blocks.
+   */
+  public int getBlockSize(int block) {
+    return blocks[block].length;
+  }
+
+  /**
+   * Whether given member of given block is a field rather than a method, which doesn't require to materialize blocks.
+   */
+  public boolean isField(int block, int member) {
+    return fields[blocks[block][member]];
+  }
+
+  /**
+   * Name of field or key of method, as given by its {@code toString()}, which doesn't require to materialize blocks.
+   */
+  public String getName(int block, int member) {
+    return names[blocks[block][member]];
+  }
+
+  synchronized boolean isMaterialized() {
+    return materialized != null;
+  }
+
+  private synchronized List<Set<AsmResource>> materialize() {
+    if (materialized == null) {
+      List<Set<AsmResource>> result = new ArrayList<Set<AsmResource>>(blocks.length);
+      Map<String, AsmClass> detachedClasses = new HashMap<String, AsmClass>();
+      for (int[] block : blocks) {
+        Set<AsmResource> detachedBlock = new HashSet<AsmResource>(block.length * 2);
+        for (int member : block) {
+          detachedBlock.add(detach(member, detachedClasses));
+        }
+        result.add(detachedBlock);
+      }
+      materialized = result;
+    }
+    return materialized;
+  }
+
+  private AsmResource detach(int member, Map<String, AsmClass> detachedClasses) {
+    AsmClass detachedClass = detachedClasses.get(owners[member]);
+    if (detachedClass == null) {
+      detachedClass = new AsmClass(owners[member]);
+      detachedClasses.put(owners[member], detachedClass);
+    }
+    if (fields[member]) {
+      return new AsmField(detachedClass, names[member]);
+    }
+    return new AsmMethod(detachedClass, names[member]);
+  }
+
+}
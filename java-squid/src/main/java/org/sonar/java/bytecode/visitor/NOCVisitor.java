@@ -22,7 +22,7 @@ package org.sonar.java.bytecode.visitor;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.squid.measures.Metric;
 
-public class NOCVisitor extends BytecodeVisitor {
+public class NOCVisitor extends BytecodeVisitor implements ThreadSafeVisitor {
 
   @Override
   public void visitClass(AsmClass asmClass) {
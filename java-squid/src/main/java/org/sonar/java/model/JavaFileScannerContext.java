@@ -20,11 +20,22 @@
 package org.sonar.java.model;
 
 import org.sonar.api.rule.RuleKey;
+import org.sonar.java.resolve.SemanticModel;
+
+import javax.annotation.Nullable;
 
 public interface JavaFileScannerContext {
 
   CompilationUnitTree getTree();
 
+  /**
+   * Semantic model of the file, which is computed once and shared between all consumers.
+   *
+   * @return null if semantic analysis of the file failed
+   */
+  @Nullable
+  SemanticModel getSemanticModel();
+
   void addIssue(Tree tree, RuleKey ruleKey, String message);
 
 }
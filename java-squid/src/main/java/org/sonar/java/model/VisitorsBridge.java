@@ -22,27 +22,36 @@ package org.sonar.java.model;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.sonar.sslr.api.AstNode;
 import org.sonar.api.batch.SquidUtils;
 import org.sonar.api.component.ResourcePerspectives;
 import org.sonar.api.issue.Issuable;
 import org.sonar.api.resources.JavaFile;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.java.ast.cache.CacheableVisitor;
 import org.sonar.java.ast.visitors.JavaAstVisitor;
+import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.java.profiling.VisitorsProfiler;
+import org.sonar.java.resolve.SemanticModel;
 import org.sonar.squid.api.CheckMessage;
 import org.sonar.squid.api.SourceFile;
 
 import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
-public class VisitorsBridge extends JavaAstVisitor {
+public class VisitorsBridge extends JavaAstVisitor implements CacheableVisitor {
 
   @Nullable
   private final ResourcePerspectives resourcePerspectives;
 
-  private final JavaTreeMaker treeMaker = new JavaTreeMaker();
   private final List<JavaFileScanner> scanners;
+  private final List<ReportedIssue> reportedIssues = Lists.newArrayList();
+  private VisitorsProfiler profiler;
 
   @VisibleForTesting
   public VisitorsBridge(JavaFileScanner visitor) {
@@ -60,30 +69,100 @@ public class VisitorsBridge extends JavaAstVisitor {
     this.scanners = scannersBuilder.build();
   }
 
+  /**
+   * Enables measurement of time spent in each scanner.
+   */
+  public void setProfiler(@Nullable VisitorsProfiler profiler) {
+    this.profiler = profiler;
+  }
+
   @Override
   public void visitFile(@Nullable AstNode astNode) {
+    reportedIssues.clear();
     if (astNode != null) {
-      CompilationUnitTree tree = treeMaker.compilationUnit(astNode);
+      CompilationUnitTree tree = getCompilationUnitTree();
 
       SourceFile sourceFile = peekSourceFile();
-      JavaFile sonarFile = SquidUtils.convertJavaFileKeyFromSquidFormat(sourceFile.getKey());
-      Issuable issuable = resourcePerspectives == null ? null : resourcePerspectives.as(Issuable.class, sonarFile);
-      JavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, sourceFile, issuable);
+      JavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, VisitorContext.of(getContext()), sourceFile, getIssuable(sourceFile), reportedIssues);
       for (JavaFileScanner scanner : scanners) {
-        scanner.scanFile(context);
+        if (profiler == null) {
+          scanner.scanFile(context);
+        } else {
+          scanProfiled(scanner, context);
+        }
       }
     }
   }
 
+  private void scanProfiled(JavaFileScanner scanner, JavaFileScannerContext context) {
+    long cpuTime = profiler.cpuTime();
+    long allocatedBytes = profiler.allocatedBytes();
+    try {
+      scanner.scanFile(context);
+    } finally {
+      profiler.entry(scanner, "Java file scanner").record(cpuTime, allocatedBytes);
+    }
+  }
+
+  @Nullable
+  private Issuable getIssuable(SourceFile sourceFile) {
+    JavaFile sonarFile = SquidUtils.convertJavaFileKeyFromSquidFormat(sourceFile.getKey());
+    return resourcePerspectives == null ? null : resourcePerspectives.as(Issuable.class, sonarFile);
+  }
+
+  /**
+   * Only issues reported directly to SonarQube are cached here, other ones are stored in {@link SourceFile}.
+   */
+  @Override
+  public void writeCache(DataOutput out) throws IOException {
+    out.writeInt(reportedIssues.size());
+    for (ReportedIssue issue : reportedIssues) {
+      out.writeUTF(issue.ruleKey.toString());
+      out.writeInt(issue.line);
+      out.writeUTF(issue.message);
+    }
+  }
+
+  @Override
+  public void readCache(DataInput in) throws IOException {
+    int size = in.readInt();
+    Issuable issuable = size == 0 ? null : getIssuable(peekSourceFile());
+    for (int i = 0; i < size; i++) {
+      RuleKey ruleKey = RuleKey.parse(in.readUTF());
+      int line = in.readInt();
+      String message = in.readUTF();
+      if (issuable != null) {
+        issuable.addIssue(issuable.newIssueBuilder().ruleKey(ruleKey).line(line).message(message).build());
+      }
+    }
+  }
+
+  private static class ReportedIssue {
+    private final RuleKey ruleKey;
+    private final int line;
+    private final String message;
+
+    public ReportedIssue(RuleKey ruleKey, int line, String message) {
+      this.ruleKey = ruleKey;
+      this.line = line;
+      this.message = message;
+    }
+  }
+
   private static class DefaultJavaFileScannerContext implements JavaFileScannerContext {
     private final CompilationUnitTree tree;
+    private final VisitorContext visitorContext;
     private final SourceFile sourceFile;
     private final Issuable issuable;
+    private final List<ReportedIssue> reportedIssues;
 
-    public DefaultJavaFileScannerContext(CompilationUnitTree tree, SourceFile sourceFile, @Nullable Issuable issuable) {
+    public DefaultJavaFileScannerContext(CompilationUnitTree tree, VisitorContext visitorContext, SourceFile sourceFile, @Nullable Issuable issuable,
+        List<ReportedIssue> reportedIssues) {
       this.tree = tree;
+      this.visitorContext = visitorContext;
       this.sourceFile = sourceFile;
       this.issuable = issuable;
+      this.reportedIssues = reportedIssues;
     }
 
     @Override
@@ -91,6 +170,11 @@ public class VisitorsBridge extends JavaAstVisitor {
       return tree;
     }
 
+    @Override
+    public SemanticModel getSemanticModel() {
+      return visitorContext.getSemanticModel();
+    }
+
     @Override
     public void addIssue(Tree tree, RuleKey ruleKey, String message) {
       Preconditions.checkNotNull(ruleKey);
@@ -103,6 +187,7 @@ public class VisitorsBridge extends JavaAstVisitor {
         sourceFile.log(checkMessage);
       } else {
         issuable.addIssue(issuable.newIssueBuilder().ruleKey(ruleKey).line(line).message(message).build());
+        reportedIssues.add(new ReportedIssue(ruleKey, line, message));
       }
     }
   }
@@ -0,0 +1,229 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.profiling;
+
+import com.google.common.base.Preconditions;
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.AstVisitor;
+import com.sonar.sslr.api.Token;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.squid.api.CheckMessage;
+import org.sonar.squid.api.CodeCheck;
+import org.sonar.squid.api.SourceFile;
+
+import javax.annotation.Nullable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorator of a check to be used by {@link com.sonar.sslr.impl.ast.AstWalker}, which limits CPU time spent by the check on each file.
+ * Issues of the check on a file, for which it exceeds its budget, are dropped and the file gets {@link JavaMetric#QUARANTINED_CHECKS}.
+ * After a given number of such files the check is not executed anymore.
+ */
+public class BudgetedAstVisitor implements AstVisitor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BudgetedAstVisitor.class);
+
+  private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final AstVisitor delegate;
+  private final CodeCheck check;
+  private final VisitorContext context;
+  private final long budget;
+  private final int maxOverruns;
+  private final boolean cpuTimeSupported;
+
+  private long spent;
+  private boolean overrun;
+  private int overruns;
+  private boolean disabled;
+
+  private BudgetedAstVisitor(AstVisitor delegate, CodeCheck check, VisitorContext context, long budget, int maxOverruns) {
+    this.delegate = delegate;
+    this.check = check;
+    this.context = context;
+    this.budget = TimeUnit.MILLISECONDS.toNanos(budget);
+    this.maxOverruns = maxOverruns;
+    cpuTimeSupported = THREAD_BEAN.isCurrentThreadCpuTimeSupported();
+    if (cpuTimeSupported && !THREAD_BEAN.isThreadCpuTimeEnabled()) {
+      THREAD_BEAN.setThreadCpuTimeEnabled(true);
+    }
+  }
+
+  /**
+   * @param delegate visitor to be invoked, which is either {@code check} or a decorator of it
+   * @param budget maximal CPU time in milliseconds to be spent by the check on a file
+   * @param maxOverruns number of files, on which the check can exceed its budget before it is disabled, or zero if it should never be disabled
+   */
+  public static BudgetedAstVisitor create(AstVisitor delegate, CodeCheck check, VisitorContext context, long budget, int maxOverruns) {
+    Preconditions.checkArgument(budget > 0, "Time budget must be greater than zero, but was " + budget);
+    Preconditions.checkArgument(maxOverruns >= 0, "Number of overruns must not be negative, but was " + maxOverruns);
+    return delegate instanceof AstAndTokenVisitor
+        ? new BudgetedAstAndTokenVisitor((AstAndTokenVisitor) delegate, check, context, budget, maxOverruns)
+        : new BudgetedAstVisitor(delegate, check, context, budget, maxOverruns);
+  }
+
+  /**
+   * @return true if issues of the check on the current file were dropped, or if the check is disabled
+   */
+  public boolean isQuarantined() {
+    return overrun || disabled;
+  }
+
+  public boolean isDisabled() {
+    return disabled;
+  }
+
+  @Override
+  public List<AstNodeType> getAstNodeTypesToVisit() {
+    return delegate.getAstNodeTypesToVisit();
+  }
+
+  @Override
+  public void visitFile(@Nullable AstNode ast) {
+    if (disabled) {
+      return;
+    }
+    spent = 0;
+    overrun = false;
+    long start = cpuTime();
+    try {
+      delegate.visitFile(ast);
+    } finally {
+      addSpent(cpuTime() - start);
+    }
+  }
+
+  @Override
+  public void leaveFile(@Nullable AstNode ast) {
+    if (disabled) {
+      return;
+    }
+    long start = cpuTime();
+    try {
+      delegate.leaveFile(ast);
+    } finally {
+      addSpent(cpuTime() - start);
+    }
+    if (spent > budget) {
+      quarantine();
+    }
+  }
+
+  @Override
+  public void visitNode(AstNode ast) {
+    if (disabled) {
+      return;
+    }
+    long start = cpuTime();
+    try {
+      delegate.visitNode(ast);
+    } finally {
+      addSpent(cpuTime() - start);
+    }
+  }
+
+  @Override
+  public void leaveNode(AstNode ast) {
+    if (disabled) {
+      return;
+    }
+    long start = cpuTime();
+    try {
+      delegate.leaveNode(ast);
+    } finally {
+      addSpent(cpuTime() - start);
+    }
+  }
+
+  private void quarantine() {
+    overrun = true;
+    overruns++;
+    String checkName = check.getClass().getName();
+    SourceFile sourceFile = context.getSourceFile();
+    if (sourceFile != null) {
+      dropMessages(sourceFile);
+      sourceFile.add(JavaMetric.QUARANTINED_CHECKS, 1);
+    }
+    LOG.warn("Check " + checkName + " spent " + TimeUnit.NANOSECONDS.toMillis(spent) + " ms on source file " + context.getFile().getAbsolutePath()
+      + ", which exceeds its time budget of " + TimeUnit.NANOSECONDS.toMillis(budget) + " ms: its issues on this file are dropped");
+    if (maxOverruns > 0 && overruns >= maxOverruns) {
+      disabled = true;
+      LOG.warn("Check " + checkName + " exceeded its time budget on " + overruns + " source files and is disabled for the rest of analysis");
+    }
+  }
+
+  private void dropMessages(SourceFile sourceFile) {
+    Set<CheckMessage> messages = sourceFile.getCheckMessages();
+    if (messages == null) {
+      return;
+    }
+    for (Iterator<CheckMessage> iterator = messages.iterator(); iterator.hasNext();) {
+      if (iterator.next().getCheck() == check) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * @return CPU time of current thread in nanoseconds, or wall-clock time if measurement of CPU time is not supported by JVM
+   */
+  long cpuTime() {
+    return cpuTimeSupported ? THREAD_BEAN.getCurrentThreadCpuTime() : System.nanoTime();
+  }
+
+  void addSpent(long cpuTime) {
+    spent += cpuTime;
+  }
+
+  private static class BudgetedAstAndTokenVisitor extends BudgetedAstVisitor implements AstAndTokenVisitor {
+
+    private final AstAndTokenVisitor tokenVisitor;
+
+    public BudgetedAstAndTokenVisitor(AstAndTokenVisitor delegate, CodeCheck check, VisitorContext context, long budget, int maxOverruns) {
+      super(delegate, check, context, budget, maxOverruns);
+      this.tokenVisitor = delegate;
+    }
+
+    @Override
+    public void visitToken(Token token) {
+      if (isDisabled()) {
+        return;
+      }
+      long start = cpuTime();
+      try {
+        tokenVisitor.visitToken(token);
+      } finally {
+        addSpent(cpuTime() - start);
+      }
+    }
+
+  }
+
+}
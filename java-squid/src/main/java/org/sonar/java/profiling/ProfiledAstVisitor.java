@@ -0,0 +1,136 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.profiling;
+
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.AstVisitor;
+import com.sonar.sslr.api.Token;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Decorator of {@link AstVisitor} to be used by {@link com.sonar.sslr.impl.ast.AstWalker}, which records invocations in {@link VisitorsProfiler}.
+ */
+public class ProfiledAstVisitor implements AstVisitor {
+
+  private static final String KIND = "AST visitor";
+
+  private final AstVisitor delegate;
+  private final VisitorsProfiler profiler;
+  private final VisitorsProfiler.Entry entry;
+
+  private ProfiledAstVisitor(AstVisitor delegate, VisitorsProfiler profiler) {
+    this.delegate = delegate;
+    this.profiler = profiler;
+    this.entry = profiler.entry(delegate, KIND);
+  }
+
+  public static List<AstVisitor> wrap(List<? extends AstVisitor> visitors, VisitorsProfiler profiler) {
+    List<AstVisitor> result = Lists.newArrayList();
+    for (AstVisitor visitor : visitors) {
+      result.add(visitor instanceof AstAndTokenVisitor ? new ProfiledAstAndTokenVisitor((AstAndTokenVisitor) visitor, profiler) : new ProfiledAstVisitor(visitor, profiler));
+    }
+    return result;
+  }
+
+  @Override
+  public List<AstNodeType> getAstNodeTypesToVisit() {
+    return delegate.getAstNodeTypesToVisit();
+  }
+
+  @Override
+  public void visitFile(@Nullable AstNode ast) {
+    long cpuTime = profiler.cpuTime();
+    long allocatedBytes = profiler.allocatedBytes();
+    try {
+      delegate.visitFile(ast);
+    } finally {
+      entry.record(cpuTime, allocatedBytes);
+    }
+  }
+
+  @Override
+  public void leaveFile(@Nullable AstNode ast) {
+    long cpuTime = profiler.cpuTime();
+    long allocatedBytes = profiler.allocatedBytes();
+    try {
+      delegate.leaveFile(ast);
+    } finally {
+      entry.record(cpuTime, allocatedBytes);
+    }
+  }
+
+  @Override
+  public void visitNode(AstNode ast) {
+    long cpuTime = profiler.cpuTime();
+    long allocatedBytes = profiler.allocatedBytes();
+    try {
+      delegate.visitNode(ast);
+    } finally {
+      entry.record(cpuTime, allocatedBytes);
+    }
+  }
+
+  @Override
+  public void leaveNode(AstNode ast) {
+    long cpuTime = profiler.cpuTime();
+    long allocatedBytes = profiler.allocatedBytes();
+    try {
+      delegate.leaveNode(ast);
+    } finally {
+      entry.record(cpuTime, allocatedBytes);
+    }
+  }
+
+  VisitorsProfiler getProfiler() {
+    return profiler;
+  }
+
+  VisitorsProfiler.Entry getEntry() {
+    return entry;
+  }
+
+  private static class ProfiledAstAndTokenVisitor extends ProfiledAstVisitor implements AstAndTokenVisitor {
+
+    private final AstAndTokenVisitor tokenVisitor;
+
+    public ProfiledAstAndTokenVisitor(AstAndTokenVisitor delegate, VisitorsProfiler profiler) {
+      super(delegate, profiler);
+      this.tokenVisitor = delegate;
+    }
+
+    @Override
+    public void visitToken(Token token) {
+      long cpuTime = getProfiler().cpuTime();
+      long allocatedBytes = getProfiler().allocatedBytes();
+      try {
+        tokenVisitor.visitToken(token);
+      } finally {
+        getEntry().record(cpuTime, allocatedBytes);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.profiling;
+
+import org.sonar.java.bytecode.asm.AsmClass;
+import org.sonar.java.bytecode.asm.AsmEdge;
+import org.sonar.java.bytecode.asm.AsmField;
+import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.visitor.BytecodeVisitor;
+
+/**
+ * Decorator of {@link BytecodeVisitor}, which records invocations in {@link VisitorsProfiler}.
+ * Decorated visitor must get its {@link org.sonar.squid.indexer.SquidIndex} directly, because it's not propagated by decorator.
+ */
+public class ProfiledBytecodeVisitor extends BytecodeVisitor {
+
+  private static final String KIND = "Bytecode visitor";
+
+  private final BytecodeVisitor delegate;
+  private final VisitorsProfiler profiler;
+  private final VisitorsProfiler.Entry entry;
+
+  public ProfiledBytecodeVisitor(BytecodeVisitor delegate, VisitorsProfiler profiler) {
+    this.delegate = delegate;
+    this.profiler = profiler;
+    this.entry = profiler.entry(delegate, KIND);
+  }
+
+  @Override
+  public void visitClass(AsmClass asmClass) {
+    long cpuTime = profiler.cpuTime();
+    long allocatedBytes = profiler.allocatedBytes();
+    try {
+      delegate.visitClass(asmClass);
+    } finally {
+      entry.record(cpuTime, allocatedBytes);
+    }
+  }
+
+  @Override
+  public void visitMethod(AsmMethod asmMethod) {
+    long cpuTime = profiler.cpuTime();
+    long allocatedBytes = profiler.allocatedBytes();
+    try {
+      delegate.visitMethod(asmMethod);
+    } finally {
+      entry.record(cpuTime, allocatedBytes);
+    }
+  }
+
+  @Override
+  public void visitField(AsmField asmField) {
+    long cpuTime = profiler.cpuTime();
+    long allocatedBytes = profiler.allocatedBytes();
+    try {
+      delegate.visitField(asmField);
+    } finally {
+      entry.record(cpuTime, allocatedBytes);
+    }
+  }
+
+  @Override
+  public void visitEdge(AsmEdge asmEdge) {
+    long cpuTime = profiler.cpuTime();
+    long allocatedBytes = profiler.allocatedBytes();
+    try {
+      delegate.visitEdge(asmEdge);
+    } finally {
+      entry.record(cpuTime, allocatedBytes);
+    }
+  }
+
+  @Override
+  public void leaveClass(AsmClass asmClass) {
+    long cpuTime = profiler.cpuTime();
+    long allocatedBytes = profiler.allocatedBytes();
+    try {
+      delegate.leaveClass(asmClass);
+    } finally {
+      entry.record(cpuTime, allocatedBytes);
+    }
+  }
+
+}
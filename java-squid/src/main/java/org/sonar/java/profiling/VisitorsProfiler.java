@@ -0,0 +1,183 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.profiling;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects CPU time, number of invocations and allocated bytes for each visitor.
+ * Time of a visitor includes time of visitors invoked by it, e.g. time of {@link org.sonar.java.model.VisitorsBridge}
+ * includes time of all {@link org.sonar.java.model.JavaFileScanner}, and time of the first visitor, which requests syntax tree
+ * or semantic model of a file, includes time of their construction.
+ */
+public class VisitorsProfiler {
+
+  private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private final boolean cpuTimeSupported;
+  private final boolean allocatedBytesSupported;
+  private final Map<Object, Entry> entries = new IdentityHashMap<Object, Entry>();
+
+  public VisitorsProfiler() {
+    cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported();
+    allocatedBytesSupported = threadBean instanceof com.sun.management.ThreadMXBean
+      && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported();
+    if (cpuTimeSupported && !threadBean.isThreadCpuTimeEnabled()) {
+      threadBean.setThreadCpuTimeEnabled(true);
+    }
+    if (allocatedBytesSupported && !((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemoryEnabled()) {
+      ((com.sun.management.ThreadMXBean) threadBean).setThreadAllocatedMemoryEnabled(true);
+    }
+  }
+
+  public Entry entry(Object visitor, String kind) {
+    return entry(visitor, visitor.getClass().getName(), kind);
+  }
+
+  /**
+   * @param key identity of entry
+   */
+  public synchronized Entry entry(Object key, String name, String kind) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      entry = new Entry(name, kind);
+      entries.put(key, entry);
+    }
+    return entry;
+  }
+
+  /**
+   * @return CPU time of current thread in nanoseconds, or wall-clock time if measurement of CPU time is not supported by JVM
+   */
+  public long cpuTime() {
+    return cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : System.nanoTime();
+  }
+
+  /**
+   * @return number of bytes allocated by current thread, or zero if such measurement is not supported by JVM
+   */
+  public long allocatedBytes() {
+    return allocatedBytesSupported ? ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+  }
+
+  /**
+   * @return entries sorted by descending CPU time
+   */
+  public synchronized List<Entry> getEntries() {
+    List<Entry> result = Lists.newArrayList(entries.values());
+    Collections.sort(result, new Comparator<Entry>() {
+      @Override
+      public int compare(Entry e1, Entry e2) {
+        long t1 = e1.getCpuTime();
+        long t2 = e2.getCpuTime();
+        return t1 == t2 ? e1.name.compareTo(e2.name) : (t1 > t2 ? -1 : 1);
+      }
+    });
+    return result;
+  }
+
+  public String report() {
+    StringBuilder sb = new StringBuilder("Time spent in visitors of Java analysis:");
+    for (Entry entry : getEntries()) {
+      sb.append(String.format("%n%10d ms %12d calls %10d KB  %s (%s)",
+          TimeUnit.NANOSECONDS.toMillis(entry.getCpuTime()), entry.getInvocations(), entry.getAllocatedBytes() / 1024, entry.name, entry.kind));
+    }
+    return sb.toString();
+  }
+
+  public void writeJson(File file) throws IOException {
+    StringBuilder sb = new StringBuilder("[");
+    for (Entry entry : getEntries()) {
+      if (sb.length() > 1) {
+        sb.append(',');
+      }
+      sb.append("\n  {\"name\":\"").append(entry.name).append('"');
+      sb.append(",\"kind\":\"").append(entry.kind).append('"');
+      sb.append(",\"cpuTimeNanos\":").append(entry.getCpuTime());
+      sb.append(",\"invocations\":").append(entry.getInvocations());
+      sb.append(",\"allocatedBytes\":").append(entry.getAllocatedBytes());
+      sb.append('}');
+    }
+    sb.append("\n]\n");
+    Files.createParentDirs(file);
+    Files.write(sb.toString(), file, Charsets.UTF_8);
+  }
+
+  public final class Entry {
+
+    private final String name;
+    private final String kind;
+    private long cpuTime;
+    private long invocations;
+    private long allocatedBytes;
+
+    private Entry(String name, String kind) {
+      this.name = name;
+      this.kind = kind;
+    }
+
+    /**
+     * Records an invocation, which started at given values of {@link VisitorsProfiler#cpuTime()} and {@link VisitorsProfiler#allocatedBytes()}.
+     */
+    public void record(long cpuTimeAtStart, long allocatedBytesAtStart) {
+      long cpuTimeAtEnd = cpuTime();
+      long allocatedBytesAtEnd = allocatedBytes();
+      synchronized (this) {
+        cpuTime += cpuTimeAtEnd - cpuTimeAtStart;
+        allocatedBytes += allocatedBytesAtEnd - allocatedBytesAtStart;
+        invocations++;
+      }
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getKind() {
+      return kind;
+    }
+
+    public synchronized long getCpuTime() {
+      return cpuTime;
+    }
+
+    public synchronized long getInvocations() {
+      return invocations;
+    }
+
+    public synchronized long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+  }
+
+}
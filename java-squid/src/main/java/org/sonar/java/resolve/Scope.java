@@ -19,19 +19,33 @@
  */
 package org.sonar.java.resolve;
 
-import com.google.common.collect.ArrayListMultimap;
-
+import javax.annotation.Nullable;
+import java.util.AbstractList;
+import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Represents an area of visibility.
+ * <p>
+ * Most scopes contain only few symbols, so symbols are grouped by name in arrays, which are scanned linearly,
+ * and an open-addressing hash table is built over them only when number of names exceeds {@link #INLINE_CAPACITY}.
+ * </p>
  */
 public class Scope {
 
+  private static final int INLINE_CAPACITY = 8;
+
   final Symbol owner;
   final Scope next;
 
-  private ArrayListMultimap<String, Symbol> symbols = ArrayListMultimap.create();
+  private String[] names;
+  private SymbolGroup[] groups;
+  private int size;
+  /**
+   * Indexes (plus one) in {@link #names} and {@link #groups}, zero for empty slot.
+   */
+  private int[] table;
 
   public Scope(Symbol owner) {
     this.owner = owner;
@@ -44,17 +58,137 @@ public class Scope {
   }
 
   public void enter(Symbol symbol) {
-    symbols.put(symbol.name, symbol);
+    SymbolGroup group = find(symbol.name);
+    if (group == null) {
+      group = add(symbol.name);
+    }
+    group.append(symbol);
   }
 
+  /**
+   * Returns symbols with given name from the nearest scope, which contains such symbols.
+   * Returned list must not be modified and reflects symbols entered later in this scope.
+   */
   public List<Symbol> lookup(String name) {
-    List<Symbol> result = symbols.get(name);
-    Scope scope = this;
-    while (result.isEmpty() && scope.next != null) {
-      result = scope.next.lookup(name);
-      scope = scope.next;
+    for (Scope scope = this; scope != null; scope = scope.next) {
+      SymbolGroup group = scope.find(name);
+      if (group != null) {
+        return group;
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  @Nullable
+  private SymbolGroup find(@Nullable String name) {
+    if (size == 0) {
+      return null;
+    }
+    if (table == null) {
+      for (int i = 0; i < size; i++) {
+        if (equal(names[i], name)) {
+          return groups[i];
+        }
+      }
+      return null;
+    }
+    int mask = table.length - 1;
+    for (int slot = hash(name) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      int index = table[slot] - 1;
+      if (equal(names[index], name)) {
+        return groups[index];
+      }
+    }
+    return null;
+  }
+
+  private SymbolGroup add(@Nullable String name) {
+    if (names == null) {
+      names = new String[2];
+      groups = new SymbolGroup[2];
+    } else if (size == names.length) {
+      String[] newNames = new String[size * 2];
+      System.arraycopy(names, 0, newNames, 0, size);
+      names = newNames;
+      SymbolGroup[] newGroups = new SymbolGroup[size * 2];
+      System.arraycopy(groups, 0, newGroups, 0, size);
+      groups = newGroups;
+    }
+    SymbolGroup group = new SymbolGroup();
+    names[size] = name;
+    groups[size] = group;
+    size++;
+
+    if (size > INLINE_CAPACITY) {
+      // load factor is kept below one half
+      if (table == null || size * 2 > table.length) {
+        rehash();
+      } else {
+        insert(size - 1);
+      }
+    }
+    return group;
+  }
+
+  private void rehash() {
+    table = new int[Integer.highestOneBit(size * 4)];
+    for (int i = 0; i < size; i++) {
+      insert(i);
+    }
+  }
+
+  private void insert(int index) {
+    int mask = table.length - 1;
+    int slot = hash(names[index]) & mask;
+    while (table[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = index + 1;
+  }
+
+  private static int hash(@Nullable String name) {
+    if (name == null) {
+      return 0;
     }
-    return result;
+    int h = name.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static boolean equal(@Nullable String name1, @Nullable String name2) {
+    return name1 == name2 || (name1 != null && name1.equals(name2));
+  }
+
+  /**
+   * Symbols with the same name in a scope.
+   */
+  private static final class SymbolGroup extends AbstractList<Symbol> implements RandomAccess {
+
+    private Symbol[] symbols = new Symbol[1];
+    private int size;
+
+    private void append(Symbol symbol) {
+      if (size == symbols.length) {
+        Symbol[] newSymbols = new Symbol[size * 2];
+        System.arraycopy(symbols, 0, newSymbols, 0, size);
+        symbols = newSymbols;
+      }
+      symbols[size] = symbol;
+      size++;
+    }
+
+    @Override
+    public Symbol get(int index) {
+      if (index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return symbols[index];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
   }
 
 }
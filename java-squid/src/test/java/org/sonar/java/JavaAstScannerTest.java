@@ -21,17 +21,20 @@ package org.sonar.java;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import org.sonar.api.resources.InputFile;
 import org.sonar.api.resources.InputFileUtils;
 import org.sonar.java.ast.AstScanner;
 import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourceFile;
 import org.sonar.squid.api.SourceProject;
 import org.sonar.squid.indexer.QueryByType;
 import org.sonar.squid.measures.Metric;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -49,6 +52,30 @@ public class JavaAstScannerTest {
     assertThat(project.getInt(JavaMetric.FILES)).isEqualTo(2);
   }
 
+  @Test
+  public void parallel_scan_should_give_same_results_as_sequential_scan() {
+    File baseDir = new File("src/test/files/metrics");
+    List<InputFile> inputFiles = InputFileUtils.create(baseDir, FileUtils.listFiles(baseDir, new String[] {"java"}, true));
+
+    AstScanner sequentialScanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8));
+    sequentialScanner.scan(inputFiles);
+
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setAnalysisThreads(3);
+    AstScanner parallelScanner = JavaAstScanner.create(conf);
+    parallelScanner.scan(inputFiles);
+
+    Collection<SourceCode> sequentialFiles = sequentialScanner.getIndex().search(new QueryByType(SourceFile.class));
+    Collection<SourceCode> parallelFiles = parallelScanner.getIndex().search(new QueryByType(SourceFile.class));
+    assertThat(parallelFiles).hasSize(sequentialFiles.size());
+    for (SourceCode sequentialFile : sequentialFiles) {
+      SourceCode parallelFile = parallelScanner.getIndex().search(sequentialFile.getKey());
+      for (JavaMetric metric : JavaMetric.values()) {
+        assertThat(parallelFile.getDouble(metric)).as(sequentialFile.getKey() + " " + metric).isEqualTo(sequentialFile.getDouble(metric));
+      }
+    }
+  }
+
   @Test
   public void lines() {
     SourceFile file = JavaAstScanner.scanSingleFile(new File("src/test/files/metrics/Lines.java"));
@@ -0,0 +1,110 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.squid.api.AnalysisException;
+
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MemoryMonitorTest {
+
+  private static final long MB = 1024L * 1024L;
+
+  private final MemoryMXBean memoryBean = mock(MemoryMXBean.class);
+  private final MemoryPoolMXBean heapPool = mock(MemoryPoolMXBean.class);
+  private final MemoryPoolMXBean nonHeapPool = mock(MemoryPoolMXBean.class);
+
+  @Before
+  public void setUp() {
+    when(heapPool.getType()).thenReturn(MemoryType.HEAP);
+    when(nonHeapPool.getType()).thenReturn(MemoryType.NON_HEAP);
+    when(nonHeapPool.getCollectionUsage()).thenReturn(usage(1000 * MB));
+  }
+
+  @Test
+  public void should_track_peak_heap_usage() {
+    MemoryMonitor monitor = new MemoryMonitor(memoryBean, Collections.<MemoryPoolMXBean>emptyList(), 0);
+    when(memoryBean.getHeapMemoryUsage()).thenReturn(usage(10 * MB), usage(30 * MB), usage(20 * MB));
+
+    monitor.check("stage 1");
+    monitor.check("stage 2");
+    monitor.check("stage 3");
+
+    assertThat(monitor.getPeakHeapUsage()).isEqualTo(30 * MB);
+    assertThat(monitor.getPeakHeapUsageInMegabytes()).isEqualTo(30);
+    verify(memoryBean, never()).gc();
+  }
+
+  @Test
+  public void should_not_fail_when_usage_after_collection_is_under_ceiling() {
+    MemoryMonitor monitor = new MemoryMonitor(memoryBean, Arrays.asList(heapPool, nonHeapPool), 100);
+    when(memoryBean.getHeapMemoryUsage()).thenReturn(usage(150 * MB));
+    when(heapPool.getCollectionUsage()).thenReturn(usage(50 * MB));
+
+    monitor.check("stage");
+
+    verify(memoryBean, never()).gc();
+    assertThat(monitor.getPeakHeapUsage()).isEqualTo(150 * MB);
+  }
+
+  @Test(expected = AnalysisException.class)
+  public void should_fail_when_ceiling_exceeded() {
+    MemoryMonitor monitor = new MemoryMonitor(memoryBean, Arrays.asList(heapPool, nonHeapPool), 100);
+    when(memoryBean.getHeapMemoryUsage()).thenReturn(usage(150 * MB));
+    when(heapPool.getCollectionUsage()).thenReturn(usage(120 * MB));
+
+    monitor.check("stage");
+  }
+
+  @Test
+  public void should_request_garbage_collection_at_most_once_per_interval_without_collection_usage() {
+    MemoryMonitor monitor = new MemoryMonitor(memoryBean, Arrays.asList(heapPool), 100);
+    when(memoryBean.getHeapMemoryUsage()).thenReturn(usage(150 * MB), usage(50 * MB), usage(150 * MB));
+
+    monitor.check("stage 1");
+    monitor.check("stage 2");
+
+    verify(memoryBean, times(1)).gc();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_not_accept_negative_ceiling() {
+    new MemoryMonitor(memoryBean, Collections.<MemoryPoolMXBean>emptyList(), -1);
+  }
+
+  private static MemoryUsage usage(long used) {
+    return new MemoryUsage(0, used, used, -1);
+  }
+
+}
@@ -20,10 +20,14 @@
 package org.sonar.java.ast;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AuditListener;
 import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
 import com.sonar.sslr.squid.SquidAstVisitor;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
@@ -31,7 +35,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.sonar.api.resources.InputFile;
+import org.sonar.java.ast.visitors.DegradedModeVisitor;
 import org.sonar.squid.api.AnalysisException;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
@@ -39,8 +46,12 @@ import org.sonar.sslr.parser.LexerlessGrammar;
 import org.sonar.sslr.parser.ParserAdapter;
 
 import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -54,16 +65,121 @@ public class AstScannerTest {
   public void should_not_fail_whole_analysis_upon_parse_error_and_notify_audit_listeners() {
     FakeAuditListener listener = spy(new FakeAuditListener());
 
-    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()));
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
     scanner.withSquidAstVisitor(listener);
 
     scanner.scan(ImmutableList.of(mockInputFile(new File("src/test/resources/AstScannerParseError.txt"))));
     verify(listener).processRecognitionException(Mockito.any(RecognitionException.class));
   }
 
+  @Test
+  public void should_notify_audit_listeners_in_order_of_files_when_parsing_in_parallel() {
+    RecordingAuditListener listener = new RecordingAuditListener();
+
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
+    scanner.setParallelism(2, new Supplier<Parser<LexerlessGrammar>>() {
+      @Override
+      public Parser<LexerlessGrammar> get() {
+        return new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build());
+      }
+    });
+    scanner.withSquidAstVisitor(listener);
+
+    scanner.scan(ImmutableList.of(
+        mockInputFile(new File("src/test/resources/AstScannerNoParseError.txt")),
+        mockInputFile(new File("src/test/resources/AstScannerParseError.txt")),
+        mockInputFile(new File("src/test/resources/AstScannerNoParseError.txt")),
+        mockInputFile(new File("src/test/resources/AstScannerParseError.txt")),
+        mockInputFile(new File("src/test/resources/AstScannerNoParseError.txt"))));
+    assertThat(listener.events).containsExactly(
+        "visitFile AstScannerNoParseError.txt",
+        "visitFile AstScannerParseError.txt",
+        "processRecognitionException AstScannerParseError.txt",
+        "visitFile AstScannerNoParseError.txt",
+        "visitFile AstScannerParseError.txt",
+        "processRecognitionException AstScannerParseError.txt",
+        "visitFile AstScannerNoParseError.txt");
+  }
+
+  @Test
+  public void should_not_accept_zero_threads() {
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
+
+    thrown.expect(IllegalArgumentException.class);
+    scanner.setParallelism(0, null);
+  }
+
+  @Test
+  public void should_analyze_file_in_degraded_mode_when_parsing_exceeds_time_budget() {
+    Parser<LexerlessGrammar> slowParser = mock(Parser.class);
+    when(slowParser.parse(Mockito.anyString())).thenAnswer(new Answer<AstNode>() {
+      @Override
+      public AstNode answer(InvocationOnMock invocation) throws InterruptedException {
+        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+        return null;
+      }
+    });
+    FakeDegradedModeVisitor degradedModeVisitor = spy(new FakeDegradedModeVisitor());
+    FakeAuditListener listener = spy(new FakeAuditListener());
+
+    AstScanner scanner = new AstScanner(slowParser, Charsets.UTF_8);
+    scanner.setParallelism(1, Suppliers.ofInstance(slowParser));
+    scanner.setFileTimeBudget(100);
+    scanner.withSquidAstVisitor(degradedModeVisitor);
+    scanner.withSquidAstVisitor(listener);
+
+    scanner.scan(ImmutableList.of(mockInputFile(new File("src/test/resources/AstScannerNoParseError.txt"))));
+    verify(degradedModeVisitor).visitFile(null);
+    verify(degradedModeVisitor).leaveFile(null);
+    verify(listener, never()).visitFile(Mockito.any(AstNode.class));
+    verify(listener, never()).processRecognitionException(Mockito.any(RecognitionException.class));
+  }
+
+  @Test
+  public void should_measure_time_budget_from_start_of_parsing() {
+    final Parser<LexerlessGrammar> parser = new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build());
+    Parser<LexerlessGrammar> slowParser = mock(Parser.class);
+    when(slowParser.parse(Mockito.anyString())).thenAnswer(new Answer<AstNode>() {
+      @Override
+      public AstNode answer(InvocationOnMock invocation) throws InterruptedException {
+        String content = (String) invocation.getArguments()[0];
+        if (content.startsWith("{")) {
+          Thread.sleep(600);
+        }
+        return parser.parse(content);
+      }
+    });
+    SquidAstVisitor<LexerlessGrammar> slowVisitor = new SquidAstVisitor<LexerlessGrammar>() {
+      @Override
+      public void visitFile(AstNode node) {
+        try {
+          Thread.sleep(400);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    FakeDegradedModeVisitor degradedModeVisitor = spy(new FakeDegradedModeVisitor());
+    FakeAuditListener listener = spy(new FakeAuditListener());
+
+    AstScanner scanner = new AstScanner(slowParser, Charsets.UTF_8);
+    scanner.setParallelism(2, Suppliers.ofInstance(slowParser));
+    scanner.setFileTimeBudget(300);
+    scanner.withSquidAstVisitor(degradedModeVisitor);
+    scanner.withSquidAstVisitor(slowVisitor);
+    scanner.withSquidAstVisitor(listener);
+
+    // parsing of second file exceeds its budget while first file is visited, so it should not get additional time
+    scanner.scan(ImmutableList.of(
+        mockInputFile(new File("src/test/resources/AstScannerNoParseError.txt")),
+        mockInputFile(new File("src/test/resources/AstScannerParseError.txt"))));
+    verify(degradedModeVisitor).visitFile(null);
+    verify(listener, never()).processRecognitionException(Mockito.any(RecognitionException.class));
+  }
+
   @Test
   public void should_propagate_visitor_exception_when_there_also_is_a_parse_error() {
-    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()));
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
     scanner.withSquidAstVisitor(new SquidAstVisitor<LexerlessGrammar>() {
 
       @Override
@@ -93,7 +209,7 @@ public class AstScannerTest {
 
   @Test
   public void should_propagate_visitor_exception_when_no_parse_error() {
-    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()));
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
     scanner.withSquidAstVisitor(new SquidAstVisitor<LexerlessGrammar>() {
 
       @Override
@@ -133,6 +249,29 @@ public class AstScannerTest {
 
   }
 
+  private static class RecordingAuditListener extends SquidAstVisitor<LexerlessGrammar> implements AuditListener {
+
+    private final List<String> events = Lists.newArrayList();
+
+    @Override
+    public void visitFile(AstNode astNode) {
+      events.add("visitFile " + getContext().getFile().getName());
+    }
+
+    @Override
+    public void processRecognitionException(RecognitionException e) {
+      events.add("processRecognitionException " + getContext().getFile().getName());
+    }
+
+    @Override
+    public void processException(Exception e) {
+    }
+
+  }
+
+  private static class FakeDegradedModeVisitor extends SquidAstVisitor<LexerlessGrammar> implements DegradedModeVisitor {
+  }
+
   private static enum FakeGrammar implements GrammarRuleKey {
     ROOT;
 
@@ -0,0 +1,215 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.resources.InputFile;
+import org.sonar.api.resources.InputFileUtils;
+import org.sonar.java.JavaAstScanner;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.ast.AstScanner;
+import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.java.ast.visitors.SourceFileContent;
+import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.squid.api.AnalysisException;
+import org.sonar.squid.api.CheckMessage;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourceMethod;
+import org.sonar.squid.api.SourcePackage;
+import org.sonar.squid.api.SourceProject;
+import org.sonar.squid.indexer.QueryByType;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AnalysisCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_replay_results_of_unchanged_files() throws Exception {
+    File cacheDirectory = temp.newFolder("cache");
+    List<InputFile> inputFiles = inputFiles(new File("src/test/files/metrics"));
+
+    FileCounter firstCounter = new FileCounter();
+    AstScanner firstScanner = createScanner(cacheDirectory, firstCounter);
+    firstScanner.scan(inputFiles);
+    assertThat(firstCounter.files).isEqualTo(inputFiles.size());
+
+    FileCounter secondCounter = new FileCounter();
+    AstScanner secondScanner = createScanner(cacheDirectory, secondCounter);
+    secondScanner.scan(inputFiles);
+    assertThat(secondCounter.files).isEqualTo(0);
+
+    assertSameResults(firstScanner, secondScanner, SourceFile.class);
+    assertSameResults(firstScanner, secondScanner, SourceMethod.class);
+  }
+
+  @Test
+  public void should_analyse_changed_file() throws Exception {
+    File cacheDirectory = temp.newFolder("cache");
+    File baseDir = temp.newFolder("src");
+    File file = new File(baseDir, "Lines.java");
+    Files.copy(new File("src/test/files/metrics/Lines.java"), file);
+    List<InputFile> inputFiles = InputFileUtils.create(baseDir, ImmutableList.of(file));
+
+    createScanner(cacheDirectory, new FileCounter()).scan(inputFiles);
+
+    Files.append("\n// new line\n", file, Charsets.UTF_8);
+    FileCounter counter = new FileCounter();
+    AstScanner scanner = createScanner(cacheDirectory, counter);
+    scanner.scan(inputFiles);
+    assertThat(counter.files).isEqualTo(1);
+    SourceCode sourceFile = scanner.getIndex().search(new QueryByType(SourceFile.class)).iterator().next();
+    assertThat(sourceFile.getInt(JavaMetric.LINES)).isEqualTo(9);
+  }
+
+  @Test
+  public void should_prune_entries_of_files_no_more_analyzed() throws Exception {
+    File cacheDirectory = temp.newFolder("cache");
+    File bytecodeCache = new File(cacheDirectory, "bytecode/entry");
+    Files.createParentDirs(bytecodeCache);
+    Files.touch(bytecodeCache);
+    List<InputFile> inputFiles = inputFiles(new File("src/test/files/metrics"));
+
+    createScanner(cacheDirectory, new FileCounter()).scan(inputFiles);
+    assertThat(FileUtils.listFiles(cacheDirectory, null, true)).hasSize(inputFiles.size() + 1);
+
+    createScanner(cacheDirectory, new FileCounter()).scan(inputFiles.subList(0, 1));
+    assertThat(FileUtils.listFiles(cacheDirectory, null, true)).hasSize(2);
+    assertThat(bytecodeCache).exists();
+
+    FileCounter counter = new FileCounter();
+    createScanner(cacheDirectory, counter).scan(inputFiles.subList(0, 1));
+    assertThat(counter.files).isEqualTo(0);
+  }
+
+  @Test
+  public void should_restore_data_of_package_once() throws Exception {
+    File cacheDirectory = temp.newFolder("cache");
+    List<InputFile> inputFiles = inputFiles(new File("src/test/files/metrics"));
+
+    createScanner(cacheDirectory, new PackageMessageLogger()).scan(inputFiles);
+    AstScanner scanner = createScanner(cacheDirectory, new PackageMessageLogger());
+    scanner.scan(inputFiles);
+
+    Collection<SourceCode> sourcePackages = scanner.getIndex().search(new QueryByType(SourcePackage.class));
+    assertThat(sourcePackages).hasSize(1);
+    SourceCode sourcePackage = sourcePackages.iterator().next();
+    assertThat(sourcePackage.getCheckMessages()).hasSize(1);
+  }
+
+  @Test(expected = AnalysisException.class)
+  public void should_check_directory_of_restored_package() throws Exception {
+    File cacheDirectory = temp.newFolder("cache");
+    File baseDir = temp.newFolder("src");
+    File file = new File(baseDir, "foo/Foo.java");
+    Files.createParentDirs(file);
+    Files.write("package foo;\nclass Foo {\n}\n", file, Charsets.UTF_8);
+    InputFile inputFile = InputFileUtils.create(baseDir, file);
+    createScanner(cacheDirectory, new FileCounter()).scan(ImmutableList.of(inputFile));
+
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    AnalysisCache cache = new AnalysisCache(cacheDirectory, AnalysisCache.fingerprint(conf, false, Collections.emptyList()));
+    byte[] data = cache.lookup(inputFile, SourceFileContent.read(file, Charsets.UTF_8)).getData();
+    VisitorContext context = new VisitorContext(new SourceProject("Java Project"));
+    context.setInputFile(InputFileUtils.create(new File(baseDir, "foo"), file));
+    CachedSourceFile.read(data).restore(context, Collections.<SquidAstVisitor<LexerlessGrammar>> emptyList());
+  }
+
+  @Test
+  public void fingerprint_should_depend_on_configuration_and_checks() {
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    String fingerprint = AnalysisCache.fingerprint(conf, false, Collections.emptyList());
+    assertThat(AnalysisCache.fingerprint(conf, false, Collections.emptyList())).isEqualTo(fingerprint);
+    assertThat(AnalysisCache.fingerprint(conf, true, Collections.emptyList())).isNotEqualTo(fingerprint);
+    assertThat(AnalysisCache.fingerprint(conf, false, ImmutableList.of(new FileCounter()))).isNotEqualTo(fingerprint);
+
+    conf.setAnalyzePropertyAccessors(false);
+    assertThat(AnalysisCache.fingerprint(conf, false, Collections.emptyList())).isNotEqualTo(fingerprint);
+  }
+
+  private static AstScanner createScanner(File cacheDirectory, SquidAstVisitor<LexerlessGrammar> visitor) {
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    AstScanner scanner = JavaAstScanner.create(conf, visitor);
+    scanner.setCache(new AnalysisCache(cacheDirectory, AnalysisCache.fingerprint(conf, false, Collections.emptyList())));
+    return scanner;
+  }
+
+  private static List<InputFile> inputFiles(File baseDir) {
+    return InputFileUtils.create(baseDir, FileUtils.listFiles(baseDir, new String[] {"java"}, true));
+  }
+
+  private static void assertSameResults(AstScanner expected, AstScanner actual, Class<? extends SourceCode> type) {
+    Collection<SourceCode> expectedSourceCodes = expected.getIndex().search(new QueryByType(type));
+    assertThat(actual.getIndex().search(new QueryByType(type))).hasSize(expectedSourceCodes.size());
+    for (SourceCode expectedSourceCode : expectedSourceCodes) {
+      SourceCode actualSourceCode = actual.getIndex().search(expectedSourceCode.getKey());
+      assertThat(actualSourceCode).as(expectedSourceCode.getKey()).isNotNull();
+      assertThat(actualSourceCode.getStartAtLine()).isEqualTo(expectedSourceCode.getStartAtLine());
+      assertThat(actualSourceCode.getEndAtLine()).isEqualTo(expectedSourceCode.getEndAtLine());
+      for (JavaMetric metric : JavaMetric.values()) {
+        assertThat(actualSourceCode.getDouble(metric)).as(expectedSourceCode.getKey() + " " + metric).isEqualTo(expectedSourceCode.getDouble(metric));
+      }
+    }
+  }
+
+  /**
+   * Logs a message on package, when it has none.
+   */
+  private static class PackageMessageLogger extends SquidAstVisitor<LexerlessGrammar> {
+
+    @Override
+    public void visitFile(AstNode astNode) {
+      SourceCode sourcePackage = getContext().peekSourceCode().getParent(SourcePackage.class);
+      if (sourcePackage.getCheckMessages().isEmpty()) {
+        sourcePackage.log(new CheckMessage(this, "package"));
+      }
+    }
+
+  }
+
+  private static class FileCounter extends SquidAstVisitor<LexerlessGrammar> {
+
+    private int files;
+
+    @Override
+    public void visitFile(AstNode astNode) {
+      files++;
+    }
+
+  }
+
+}
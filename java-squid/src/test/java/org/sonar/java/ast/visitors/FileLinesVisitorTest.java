@@ -47,7 +47,7 @@ public class FileLinesVisitorTest {
     FileLinesContext context = mock(FileLinesContext.class);
     when(fileLinesContextFactory.createFor(Mockito.any(org.sonar.api.resources.Resource.class))).thenReturn(context);
 
-    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new FileLinesVisitor(fileLinesContextFactory, Charsets.UTF_8));
+    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new FileLinesVisitor(fileLinesContextFactory));
     File baseDir = new File("src/test/files/metrics");
     List<InputFile> inputFiles = InputFileUtils.create(baseDir, ImmutableList.of(new File("src/test/files/metrics/LinesOfCode.java")));
     scanner.scan(inputFiles);
@@ -68,7 +68,7 @@ public class FileLinesVisitorTest {
     FileLinesContext context = mock(FileLinesContext.class);
     when(fileLinesContextFactory.createFor(Mockito.any(org.sonar.api.resources.Resource.class))).thenReturn(context);
 
-    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new FileLinesVisitor(fileLinesContextFactory, Charsets.UTF_8));
+    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new FileLinesVisitor(fileLinesContextFactory));
     File baseDir = new File("src/test/files/metrics");
     List<InputFile> inputFiles = InputFileUtils.create(baseDir, ImmutableList.of(new File("src/test/files/metrics/Comments.java")));
     scanner.scan(inputFiles);
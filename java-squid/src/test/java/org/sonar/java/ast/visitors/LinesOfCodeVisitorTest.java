@@ -0,0 +1,49 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LinesOfCodeVisitorTest {
+
+  @Test
+  public void should_count_lines_of_code_without_tokens() {
+    assertThat(LinesOfCodeVisitor.countLinesOfCode("")).isEqualTo(0);
+    assertThat(LinesOfCodeVisitor.countLinesOfCode("class A {\n\n  \t\n}")).isEqualTo(2);
+    assertThat(LinesOfCodeVisitor.countLinesOfCode("class A {\r\n}\r\n")).isEqualTo(2);
+    assertThat(LinesOfCodeVisitor.countLinesOfCode("class A {\r}\r")).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_count_comments() {
+    assertThat(LinesOfCodeVisitor.countLinesOfCode("// comment\nclass A { // comment\n}")).isEqualTo(2);
+    assertThat(LinesOfCodeVisitor.countLinesOfCode("/*\n * comment\n */\nclass A {}")).isEqualTo(1);
+    assertThat(LinesOfCodeVisitor.countLinesOfCode("/* comment */ class A {}\n/** comment */")).isEqualTo(1);
+  }
+
+  @Test
+  public void should_not_start_comments_in_literals() {
+    assertThat(LinesOfCodeVisitor.countLinesOfCode("String s = \"/*\";\nint i;\n")).isEqualTo(2);
+    assertThat(LinesOfCodeVisitor.countLinesOfCode("String s = \"\\\"/*\";\nchar c = '\\'';\nint i;")).isEqualTo(3);
+  }
+
+}
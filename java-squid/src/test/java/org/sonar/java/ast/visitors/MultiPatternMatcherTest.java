@@ -0,0 +1,68 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MultiPatternMatcherTest {
+
+  private final MultiPatternMatcher matcher = new MultiPatternMatcher(ImmutableList.of("TODO", "FIXME", "NOSONAR", "SONAR", "he", "she", "hers"));
+
+  @Test
+  public void should_find_patterns_ignoring_case() {
+    assertThat(find("// todo and Fixme")).isEqualTo(bits(0, 1));
+    assertThat(find("// nothing")).isEqualTo(bits());
+    assertThat(find("")).isEqualTo(bits());
+  }
+
+  @Test
+  public void should_find_overlapping_patterns() {
+    assertThat(find("//NOSONAR")).isEqualTo(bits(2, 3));
+    assertThat(find("ushers")).isEqualTo(bits(4, 5, 6));
+    assertThat(find("TOTODO")).isEqualTo(bits(0));
+  }
+
+  @Test
+  public void empty_pattern_should_match_everything() {
+    BitSet result = new BitSet();
+    assertThat(new MultiPatternMatcher(ImmutableList.of("")).find("", result)).isTrue();
+    assertThat(result).isEqualTo(bits(0));
+  }
+
+  private BitSet find(String text) {
+    BitSet result = new BitSet();
+    assertThat(matcher.find(text, result)).isEqualTo(!result.isEmpty());
+    return result;
+  }
+
+  private static BitSet bits(int... indexes) {
+    BitSet result = new BitSet();
+    for (int index : indexes) {
+      result.set(index);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SourceFileContentTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void lines() {
+    assertLines("", 1);
+    assertLines("foo", 1, "foo");
+    assertLines("foo\n", 2, "foo");
+    assertLines("foo\nbar", 2, "foo", "bar");
+    assertLines("foo\r\nbar\r\n", 3, "foo", "bar");
+    assertLines("foo\rbar\r", 3, "foo", "bar");
+    assertLines("\n\r\n\r", 4, "", "", "");
+  }
+
+  @Test
+  public void line_start_offsets() {
+    SourceFileContent content = new SourceFileContent("a\nbc\r\nd\re");
+    assertThat(content.getLineStartOffset(1)).isEqualTo(0);
+    assertThat(content.getLineStartOffset(2)).isEqualTo(2);
+    assertThat(content.getLineStartOffset(3)).isEqualTo(6);
+    assertThat(content.getLineStartOffset(4)).isEqualTo(8);
+  }
+
+  @Test
+  public void should_be_consistent_with_reading_of_lines_from_file() throws Exception {
+    File file = temp.newFile();
+    Files.write("package foo;\r\n\r\nclass \u00e9 {\n}\n\n", file, Charsets.UTF_8);
+
+    SourceFileContent content = SourceFileContent.read(file, Charsets.UTF_8);
+    assertThat(content.getContent()).isEqualTo(Files.toString(file, Charsets.UTF_8));
+    assertThat(content.getLines()).isEqualTo(Files.readLines(file, Charsets.UTF_8));
+  }
+
+  private static void assertLines(String text, int numberOfLines, String... lines) {
+    SourceFileContent content = new SourceFileContent(text);
+    assertThat(content.getNumberOfLines()).isEqualTo(text.split("(\r)?\n|\r", -1).length).isEqualTo(numberOfLines);
+    assertThat(content.getLines()).containsExactly((Object[]) lines);
+  }
+
+}
@@ -43,7 +43,7 @@ public class SyntaxHighlighterVisitorTest {
   private final Highlightable highlightable = Mockito.mock(Highlightable.class);
   private final Highlightable.HighlightingBuilder highlighting = Mockito.mock(Highlightable.HighlightingBuilder.class);
 
-  private final SyntaxHighlighterVisitor syntaxHighlighterVisitor = new SyntaxHighlighterVisitor(resourcePerspectives, Charsets.UTF_8);
+  private final SyntaxHighlighterVisitor syntaxHighlighterVisitor = new SyntaxHighlighterVisitor(resourcePerspectives);
 
   private List<String> lines;
   private String eol;
@@ -0,0 +1,89 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.squid.SquidAstVisitorContext;
+import org.junit.Test;
+import org.sonar.api.resources.InputFileUtils;
+import org.sonar.java.JavaAstScanner;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.ast.AstScanner;
+import org.sonar.java.model.CompilationUnitTree;
+import org.sonar.java.model.JavaTreeMaker;
+import org.sonar.java.profiling.VisitorsProfiler;
+import org.sonar.java.resolve.SemanticModel;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class VisitorContextTest {
+
+  @Test
+  public void should_build_tree_and_semantic_model_once_per_file() {
+    ArtifactsVisitor first = new ArtifactsVisitor();
+    ArtifactsVisitor second = new ArtifactsVisitor();
+    JavaAstScanner.scanSingleFile(new File("src/test/files/sym/Example.java"), first, second);
+
+    assertThat(first.trees).hasSize(1);
+    assertThat(first.trees.get(0)).isNotNull();
+    assertThat(second.trees.get(0)).isSameAs(first.trees.get(0));
+    assertThat(first.semanticModels.get(0)).isNotNull();
+    assertThat(second.semanticModels.get(0)).isSameAs(first.semanticModels.get(0));
+  }
+
+  @Test
+  public void should_profile_construction_of_tree_and_semantic_model() {
+    VisitorsProfiler profiler = new VisitorsProfiler();
+    File file = new File("src/test/files/sym/Example.java");
+    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new ArtifactsVisitor());
+    scanner.setProfiler(profiler);
+    scanner.scan(Collections.singleton(InputFileUtils.create(file.getParentFile(), file)));
+
+    assertThat(profiler.report())
+        .contains(JavaTreeMaker.class.getName() + " (Tree maker)")
+        .contains(SemanticModel.class.getName() + " (Semantic model)");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_fail_when_visitor_is_not_executed_by_ast_scanner() {
+    VisitorContext.of(mock(SquidAstVisitorContext.class));
+  }
+
+  private static class ArtifactsVisitor extends JavaAstVisitor {
+
+    private final List<CompilationUnitTree> trees = Lists.newArrayList();
+    private final List<SemanticModel> semanticModels = Lists.newArrayList();
+
+    @Override
+    public void visitFile(AstNode astNode) {
+      trees.add(getCompilationUnitTree());
+      semanticModels.add(getSemanticModel());
+    }
+
+  }
+
+}
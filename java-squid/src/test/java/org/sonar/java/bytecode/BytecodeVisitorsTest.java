@@ -215,4 +215,22 @@ public class BytecodeVisitorsTest {
     assertThat(graph.getEdge(sourceFile.getParent(), tagException.getParent()).getUsage()).isEqualTo(SourceCodeEdgeUsage.USES);
   }
 
+  @Test
+  public void parallel_scan_should_give_same_results() {
+    JavaConfiguration conf = new JavaConfiguration(Charset.forName("UTF-8"));
+    conf.setAnalysisThreads(4);
+    JavaSquid squid = new JavaSquid(conf);
+    squid.scanDirectories(
+        Collections.singleton(new File("src/test/files/bytecode/src")),
+        Collections.singleton(new File("src/test/files/bytecode/bin")));
+    SquidIndex parallelIndex = squid.getIndex();
+
+    for (String key : new String[] {"tags/impl/Todo", "tags/impl/Todo.java", "tags/SourceFile", "tags/File", "tags/Content", "tags/Tag", "tags"}) {
+      for (Metric metric : new Metric[] {Metric.RFC, Metric.DIT, Metric.NOC, Metric.LCOM4, Metric.CA, Metric.CE}) {
+        assertThat(parallelIndex.search(key).getInt(metric)).as(key + " " + metric).isEqualTo(index.search(key).getInt(metric));
+      }
+    }
+    assertThat(squid.getGraph().getEdges(squid.getGraph().getVertices())).hasSize(graph.getEdges(graph.getVertices()).size());
+  }
+
 }
@@ -0,0 +1,44 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode;
+
+import org.junit.Test;
+import org.sonar.java.bytecode.asm.AsmClass;
+import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
+import org.sonar.java.bytecode.asm.AsmClassProviderImpl;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VirtualMethodsLinkerTest {
+
+  @Test
+  public void should_resolve_virtual_methods() {
+    AsmClass integerClass = new AsmClassProviderImpl().getClass("java/lang/Integer", DETAIL_LEVEL.STRUCTURE);
+
+    assertThat(VirtualMethodsLinker.resolveVirtual(integerClass, "toString()Ljava/lang/String;").getParent()).isSameAs(integerClass);
+    assertThat(VirtualMethodsLinker.resolveVirtual(integerClass, "getClass()Ljava/lang/Class;").getParent().getInternalName())
+        .isEqualTo("java/lang/Object");
+    assertThat(VirtualMethodsLinker.resolveVirtual(integerClass, "unknown()V")).isNull();
+    assertThat(integerClass.getVirtualMethod("hashCode()I")).isSameAs(integerClass.getMethod("hashCode()I"));
+    assertThat(integerClass.getVirtualMethod("getClass()Ljava/lang/Class;"))
+        .isSameAs(integerClass.getSuperClass().getVirtualMethod("getClass()Ljava/lang/Class;"));
+  }
+
+}
@@ -20,10 +20,12 @@
 package org.sonar.java.bytecode.asm;
 
 import org.junit.Test;
+import org.objectweb.asm.ClassReader;
 import org.sonar.java.bytecode.ClassLoaderBuilder;
 import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collection;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -102,10 +104,64 @@ public class AsmClassProviderImplTest {
     throw new IllegalArgumentException();
   }
 
+  @Test
+  public void should_decorate_class_from_decoded_bytecode_as_from_bytecode() throws Exception {
+    AsmClass integerClass = asmClassProviderImpl.getClass("java/lang/Integer", DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+
+    AsmClassProviderImpl otherProvider = new AsmClassProviderImpl();
+    AsmClass expectedClass = new AsmClass("java/lang/Integer", DETAIL_LEVEL.NOTHING);
+    new ClassReader("java.lang.Integer").accept(new AsmClassVisitor(otherProvider, expectedClass, DETAIL_LEVEL.STRUCTURE_AND_CALLS), 0);
+
+    assertThat(integerClass.getMethods()).hasSize(expectedClass.getMethods().size());
+    for (AsmMethod expectedMethod : expectedClass.getMethods()) {
+      AsmMethod method = integerClass.getMethod(expectedMethod.getKey());
+      assertThat(method.isEmpty()).as(method.getKey()).isEqualTo(expectedMethod.isEmpty());
+      assertThat(method.getOutgoingEdges()).as(method.getKey()).hasSize(expectedMethod.getOutgoingEdges().size());
+    }
+  }
+
   @Test
   public void testPersonalClassLoader() {
     asmClassProviderImpl = new AsmClassProviderImpl(ClassLoaderBuilder.create(new File("src/test/files/bytecode/bin/")));
     assertThat(asmClassProviderImpl.getClass("tags/Line", DETAIL_LEVEL.STRUCTURE_AND_CALLS).getDetailLevel()).isEqualTo(DETAIL_LEVEL.STRUCTURE_AND_CALLS);
   }
 
+  @Test
+  public void should_evict_library_classes() {
+    asmClassProviderImpl = new AsmClassProviderImpl(Thread.currentThread().getContextClassLoader(), 1);
+    AsmClass integerClass = asmClassProviderImpl.getClass("java/lang/Integer", DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    assertThat(asmClassProviderImpl.getMissCount()).isGreaterThan(1);
+    assertThat(asmClassProviderImpl.getEvictionCount()).isGreaterThan(0);
+
+    long hits = asmClassProviderImpl.getHitCount();
+    assertThat(asmClassProviderImpl.getClass("java/lang/Integer", DETAIL_LEVEL.STRUCTURE_AND_CALLS)).isSameAs(integerClass);
+    assertThat(asmClassProviderImpl.getHitCount()).isEqualTo(hits + 1);
+
+    AsmClass numberClass = asmClassProviderImpl.getClass("java/lang/Number", DETAIL_LEVEL.STRUCTURE);
+    assertThat(numberClass).isEqualTo(integerClass.getSuperClass());
+    assertThat(numberClass.getSuperClass().getInternalName()).isEqualTo("java/lang/Object");
+  }
+
+  @Test
+  public void should_return_same_instance_of_evicted_class_still_referenced() {
+    asmClassProviderImpl = new AsmClassProviderImpl(Thread.currentThread().getContextClassLoader(), 1);
+    AsmClass integerClass = asmClassProviderImpl.getClass("java/lang/Integer", DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    assertThat(asmClassProviderImpl.isCached("java/lang/Number")).isFalse();
+
+    long misses = asmClassProviderImpl.getMissCount();
+    AsmClass numberClass = asmClassProviderImpl.getClass("java/lang/Number", DETAIL_LEVEL.STRUCTURE);
+    assertThat(numberClass).isSameAs(integerClass.getSuperClass());
+    assertThat(asmClassProviderImpl.isCached("java/lang/Number")).isTrue();
+    assertThat(asmClassProviderImpl.getMissCount()).isEqualTo(misses);
+  }
+
+  @Test
+  public void should_not_evict_pinned_classes() {
+    asmClassProviderImpl = new AsmClassProviderImpl(Thread.currentThread().getContextClassLoader(), 0);
+    asmClassProviderImpl.pin(Arrays.asList("java/lang/Number"));
+    AsmClass numberClass = asmClassProviderImpl.getClass("java/lang/Number", DETAIL_LEVEL.STRUCTURE);
+    asmClassProviderImpl.getClass("java/lang/Integer", DETAIL_LEVEL.STRUCTURE);
+    assertThat(asmClassProviderImpl.getClass("java/lang/Number", DETAIL_LEVEL.STRUCTURE)).isSameAs(numberClass);
+  }
+
 }
@@ -0,0 +1,76 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import com.google.common.collect.Iterables;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AsmResourceTest {
+
+  @Test
+  public void should_store_edges() {
+    AsmClass asmClass = new AsmClass("Foo");
+    AsmMethod method = new AsmMethod(asmClass, "bar()V");
+    AsmClass usedClass = new AsmClass("Used");
+    AsmMethod calledMethod = new AsmMethod(usedClass, "baz()V");
+
+    for (int i = 0; i < 10; i++) {
+      method.addEdge(usedClass, SourceCodeEdgeUsage.USES, i);
+    }
+    method.addEdge(calledMethod, SourceCodeEdgeUsage.CALLS_METHOD, 42);
+
+    assertThat(method.getOutgoingEdges()).hasSize(11);
+    AsmEdge edge = method.getOutgoingEdges().iterator().next();
+    assertThat(edge.getFrom()).isSameAs(method);
+    assertThat(edge.getTo()).isSameAs(usedClass);
+    assertThat(edge.getUsage()).isEqualTo(SourceCodeEdgeUsage.USES);
+    AsmEdge callEdge = Iterables.getLast(method.getOutgoingEdges());
+    assertThat(callEdge.getTo()).isSameAs(calledMethod);
+    assertThat(callEdge.getTargetAsmClass()).isSameAs(usedClass);
+    assertThat(callEdge.getUsage()).isEqualTo(SourceCodeEdgeUsage.CALLS_METHOD);
+    assertThat(callEdge.getSourceLineNumber()).isEqualTo(42);
+    assertThat(calledMethod.isUsed()).isTrue();
+    assertThat(method.getOutgoingEdges().iterator().next()).isEqualTo(edge);
+
+    method.addEdge(usedClass, SourceCodeEdgeUsage.USES, 43);
+    assertThat(method.getOutgoingEdges()).hasSize(12);
+    assertThat(method.getOutgoingEdges().iterator().next()).isEqualTo(edge);
+
+    method.clearOutogingEdges();
+    assertThat(method.getOutgoingEdges()).isEmpty();
+  }
+
+  @Test
+  public void should_cache_distinct_targets() {
+    AsmClass asmClass = new AsmClass("Foo");
+    AsmClass usedClass = new AsmClass("Used");
+    asmClass.addUsesOfClasses(new AsmClass[] {usedClass, usedClass});
+    assertThat(asmClass.getDistinctUsedAsmClasses()).containsOnly(usedClass);
+    assertThat(asmClass.getDistinctUsedAsmClasses()).isSameAs(asmClass.getDistinctUsedAsmClasses());
+
+    AsmClass otherClass = new AsmClass("Other");
+    asmClass.addUsesOfClasses(new AsmClass[] {otherClass});
+    assertThat(asmClass.getDistinctUsedAsmClasses()).containsOnly(usedClass, otherClass);
+    assertThat(asmClass.getImplementedInterfaces()).isEmpty();
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.asm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BytecodeSummaryCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final File JAR = new File("src/test/files/bytecode/lib/hello.jar");
+  private static final String CLASS = "org/sonar/tests/Hello";
+
+  @Test
+  public void should_load_class_from_stored_summary() throws Exception {
+    File directory = temp.newFolder("cache");
+
+    BytecodeSummaryCache cache = new BytecodeSummaryCache(directory);
+    AsmClass asmClass = load(cache);
+    assertThat(cache.get(JAR, CLASS)).isNotNull();
+    cache.save();
+    assertThat(directory.list()).hasSize(1);
+
+    cache = new BytecodeSummaryCache(directory);
+    assertThat(cache.get(JAR, CLASS)).isNotNull();
+    AsmClass asmClassFromSummary = load(cache);
+    assertThat(asmClassFromSummary.getSuperClass()).isEqualTo(asmClass.getSuperClass());
+    assertThat(asmClassFromSummary.isPublic()).isEqualTo(asmClass.isPublic());
+    assertThat(asmClassFromSummary.getMethods()).hasSize(asmClass.getMethods().size());
+    for (AsmMethod method : asmClass.getMethods()) {
+      AsmMethod methodFromSummary = asmClassFromSummary.getMethod(method.getKey());
+      assertThat(methodFromSummary.isPublic()).isEqualTo(method.isPublic());
+      assertThat(methodFromSummary.isStatic()).isEqualTo(method.isStatic());
+      assertThat(methodFromSummary.isBodyLoaded()).isTrue();
+    }
+  }
+
+  @Test
+  public void should_ignore_corrupted_summaries() throws Exception {
+    File directory = temp.newFolder("cache");
+    DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(directory, BytecodeSummaryCache.checksum(JAR))));
+    try {
+      out.writeInt(1);
+      out.writeInt(1);
+      // class with a corrupted number of interfaces
+      out.writeInt(0);
+      out.writeInt(0);
+      out.writeUTF(CLASS);
+      out.writeBoolean(false);
+      out.writeBoolean(false);
+      out.writeInt(Integer.MAX_VALUE);
+    } finally {
+      out.close();
+    }
+
+    BytecodeSummaryCache cache = new BytecodeSummaryCache(directory);
+    assertThat(cache.get(JAR, CLASS)).isNull();
+    assertThat(load(cache).getDetailLevel()).isEqualTo(DETAIL_LEVEL.STRUCTURE);
+    cache.save();
+    assertThat(directory.list()).hasSize(1);
+    assertThat(new BytecodeSummaryCache(directory).get(JAR, CLASS)).isNotNull();
+  }
+
+  @Test
+  public void should_not_summarize_classes_from_directories() throws Exception {
+    BytecodeSummaryCache cache = new BytecodeSummaryCache(temp.newFolder("cache"));
+    AsmClassProviderImpl classProvider = new AsmClassProviderImpl(ClassLoaderBuilder.create(new File("src/test/files/bytecode/bin/")));
+    classProvider.setSummaryCache(cache);
+    assertThat(classProvider.getClass("tags/Line", DETAIL_LEVEL.STRUCTURE).getDetailLevel()).isEqualTo(DETAIL_LEVEL.STRUCTURE);
+    assertThat(cache.get(new File("src/test/files/bytecode/bin/"), "tags/Line")).isNull();
+  }
+
+  @Test
+  public void should_extract_jar_file_from_url() throws Exception {
+    assertThat(AsmClassProviderImpl.getJarFile(new URL("jar:file:/tmp/a%20b.jar!/java/lang/Object.class"))).isEqualTo(new File("/tmp/a b.jar"));
+    assertThat(AsmClassProviderImpl.getJarFile(new URL("file:/tmp/java/lang/Object.class"))).isNull();
+  }
+
+  @Test
+  public void checksum_should_be_stable() throws Exception {
+    assertThat(BytecodeSummaryCache.checksum(JAR)).hasSize(40);
+    assertThat(BytecodeSummaryCache.checksum(JAR)).isEqualTo(BytecodeSummaryCache.checksum(JAR));
+  }
+
+  private static AsmClass load(BytecodeSummaryCache cache) {
+    SquidClassLoader classLoader = new SquidClassLoader(Arrays.asList(JAR));
+    try {
+      AsmClassProviderImpl classProvider = new AsmClassProviderImpl(classLoader);
+      classProvider.setSummaryCache(cache);
+      return classProvider.getClass(CLASS, DETAIL_LEVEL.STRUCTURE);
+    } finally {
+      classLoader.close();
+    }
+  }
+
+}
@@ -69,6 +69,16 @@ public class JarLoaderTest {
     loader.findResource("META-INF/MANIFEST.MF");
   }
 
+  @Test
+  public void should_list_entries() {
+    JarLoader loader = new JarLoader(new File("src/test/files/bytecode/lib/hello.jar"));
+    assertThat(loader.getEntryNames()).contains("META-INF/MANIFEST.MF", "org/sonar/tests/Hello.class");
+    JarLoader otherLoader = new JarLoader(new File("src/test/files/bytecode/lib/hello.jar"));
+    assertThat(otherLoader.getEntryNames()).isSameAs(loader.getEntryNames());
+    otherLoader.close();
+    loader.close();
+  }
+
   @Test
   public void testLoadBytes() throws Exception {
     File jar = new File("src/test/files/bytecode/lib/hello.jar");
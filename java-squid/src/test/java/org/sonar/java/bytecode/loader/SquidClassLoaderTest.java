@@ -126,4 +126,17 @@ public class SquidClassLoaderTest {
     classLoader.close();
   }
 
+  @Test
+  public void should_search_in_order_of_jars_and_directories() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    File dir = new File("src/test/files/bytecode/bin/");
+    classLoader = new SquidClassLoader(Arrays.asList(jar, dir, jar));
+
+    assertThat(classLoader.findResource("org/sonar/tests/Hello.class").toString()).startsWith("jar:");
+    assertThat(classLoader.findResource("tags/TagName.class").toString()).startsWith("file:");
+    assertThat(Iterators.forEnumeration(classLoader.findResources("org/sonar/tests/Hello.class"))).hasSize(2);
+    assertThat(classLoader.findResource("notfound")).isNull();
+    assertThat(classLoader.findResource("notfound")).isNull();
+  }
+
 }
@@ -0,0 +1,53 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.visitor;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DisjointSetsTest {
+
+  @Test
+  public void union_should_keep_label_of_first_set() {
+    DisjointSets sets = new DisjointSets();
+    for (int i = 0; i < 100; i++) {
+      assertThat(sets.add()).isEqualTo(i);
+    }
+    assertThat(sets.size()).isEqualTo(100);
+
+    sets.union(50, 51);
+    sets.union(50, 52);
+    sets.union(3, 52);
+    assertThat(sets.find(3)).isEqualTo(sets.find(51));
+    assertThat(sets.label(51)).isEqualTo(3);
+    assertThat(sets.setSize(50)).isEqualTo(4);
+
+    sets.union(99, 3);
+    assertThat(sets.label(3)).isEqualTo(99);
+    assertThat(sets.setSize(99)).isEqualTo(5);
+
+    sets.union(50, 99);
+    assertThat(sets.setSize(99)).isEqualTo(5);
+    assertThat(sets.label(0)).isEqualTo(0);
+    assertThat(sets.setSize(0)).isEqualTo(1);
+  }
+
+}
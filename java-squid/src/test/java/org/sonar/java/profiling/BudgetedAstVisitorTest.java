@@ -0,0 +1,126 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.profiling;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.squid.checks.SquidCheck;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.squid.api.CheckMessage;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourceProject;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BudgetedAstVisitorTest {
+
+  private VisitorContext context;
+  private FakeCheck check;
+
+  @Before
+  public void setUp() {
+    context = new VisitorContext(new SourceProject("Java Project"));
+    check = new FakeCheck();
+    check.setContext(context);
+  }
+
+  @Test
+  public void should_keep_issues_of_check_within_budget() {
+    BudgetedAstVisitor visitor = BudgetedAstVisitor.create(check, check, context, TimeUnit.MINUTES.toMillis(1), 0);
+    SourceFile sourceFile = visitFile(visitor);
+
+    assertThat(sourceFile.getCheckMessages()).hasSize(2);
+    assertThat(sourceFile.getInt(JavaMetric.QUARANTINED_CHECKS)).isEqualTo(0);
+    assertThat(visitor.isQuarantined()).isFalse();
+  }
+
+  @Test
+  public void should_drop_issues_of_check_exceeding_budget() {
+    check.slow = true;
+    BudgetedAstVisitor visitor = BudgetedAstVisitor.create(check, check, context, 1, 0);
+    SourceFile sourceFile = visitFile(visitor);
+
+    assertThat(sourceFile.getCheckMessages()).hasSize(1);
+    assertThat(sourceFile.getCheckMessages().iterator().next().getCheck()).isEqualTo("other");
+    assertThat(sourceFile.getInt(JavaMetric.QUARANTINED_CHECKS)).isEqualTo(1);
+    assertThat(visitor.isQuarantined()).isTrue();
+    assertThat(visitor.isDisabled()).isFalse();
+
+    check.slow = false;
+    visitFile(visitor);
+    assertThat(visitor.isQuarantined()).isFalse();
+    assertThat(check.visitedFiles).isEqualTo(2);
+  }
+
+  @Test
+  public void should_disable_check_after_max_overruns() {
+    check.slow = true;
+    BudgetedAstVisitor visitor = BudgetedAstVisitor.create(check, check, context, 1, 1);
+    visitFile(visitor);
+    assertThat(visitor.isDisabled()).isTrue();
+
+    SourceFile sourceFile = visitFile(visitor);
+    assertThat(sourceFile.getCheckMessages()).hasSize(1);
+    assertThat(sourceFile.getInt(JavaMetric.QUARANTINED_CHECKS)).isEqualTo(0);
+    assertThat(visitor.isQuarantined()).isTrue();
+    assertThat(check.visitedFiles).isEqualTo(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_not_accept_zero_budget() {
+    BudgetedAstVisitor.create(check, check, context, 0, 0);
+  }
+
+  private SourceFile visitFile(BudgetedAstVisitor visitor) {
+    context.setFile(new File("Fake.java"));
+    SourceFile sourceFile = new SourceFile("Fake.java");
+    context.addSourceCode(sourceFile);
+    sourceFile.log(new CheckMessage("other", "Issue of other check"));
+    visitor.visitFile(null);
+    visitor.leaveFile(null);
+    return sourceFile;
+  }
+
+  private static class FakeCheck extends SquidCheck<LexerlessGrammar> {
+
+    private boolean slow;
+    private int visitedFiles;
+
+    @Override
+    public void visitFile(AstNode astNode) {
+      visitedFiles++;
+      getContext().createFileViolation(this, "Issue");
+      if (slow) {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        while (System.nanoTime() < end) {
+          // consumes CPU time
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.profiling;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.JavaSquid;
+import org.sonar.java.ast.visitors.LinesOfCodeVisitor;
+import org.sonar.java.bytecode.visitor.LCOM4Visitor;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisitorsProfilerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_sort_entries_by_cpu_time() {
+    VisitorsProfiler profiler = new VisitorsProfiler();
+    VisitorsProfiler.Entry fast = profiler.entry("fast", "kind");
+    VisitorsProfiler.Entry slow = profiler.entry(Integer.valueOf(1), "kind");
+    fast.record(profiler.cpuTime(), profiler.allocatedBytes());
+    slow.record(profiler.cpuTime() - 1000000000L, profiler.allocatedBytes());
+    slow.record(profiler.cpuTime(), profiler.allocatedBytes());
+
+    assertThat(profiler.entry("fast", "kind")).isSameAs(fast);
+    List<VisitorsProfiler.Entry> entries = profiler.getEntries();
+    assertThat(entries).containsExactly(slow, fast);
+    assertThat(slow.getName()).isEqualTo("java.lang.Integer");
+    assertThat(slow.getInvocations()).isEqualTo(2);
+    assertThat(profiler.report()).contains("java.lang.Integer (kind)");
+  }
+
+  @Test
+  public void should_profile_ast_and_bytecode_visitors() throws Exception {
+    File report = new File(temporaryFolder.getRoot(), "profiling/report.json");
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setProfilingReport(report);
+    JavaSquid squid = new JavaSquid(conf);
+    squid.scanDirectories(
+        Collections.singleton(new File("src/test/files/bytecode/src")),
+        Collections.singleton(new File("src/test/files/bytecode/bin")));
+
+    String json = Files.toString(report, Charsets.UTF_8);
+    assertThat(json).contains("{\"name\":\"" + LinesOfCodeVisitor.class.getName() + "\",\"kind\":\"AST visitor\"");
+    assertThat(json).contains("{\"name\":\"" + LCOM4Visitor.class.getName() + "\",\"kind\":\"Bytecode visitor\"");
+  }
+
+}
@@ -60,4 +60,29 @@ public class ScopeTest {
     assertThat(scope.lookup("nonexistent")).isEmpty();
   }
 
+  @Test
+  public void large_scope() {
+    Scope outerScope = new Scope(owner);
+    Symbol outer = new Symbol(0, 0, "outer", null);
+    outerScope.enter(outer);
+    Scope scope = new Scope(outerScope);
+
+    Symbol[] symbols = new Symbol[100];
+    for (int i = 0; i < symbols.length; i++) {
+      symbols[i] = new Symbol(0, 0, "name" + i, null);
+      scope.enter(symbols[i]);
+    }
+    Symbol overloaded = new Symbol(0, 0, "name42", null);
+    scope.enter(overloaded);
+
+    for (int i = 0; i < symbols.length; i++) {
+      if (i != 42) {
+        assertThat(scope.lookup("name" + i)).containsOnly(symbols[i]);
+      }
+    }
+    assertThat(scope.lookup("name42")).containsOnly(symbols[42], overloaded);
+    assertThat(scope.lookup("outer")).containsOnly(outer);
+    assertThat(scope.lookup("nonexistent")).isEmpty();
+  }
+
 }
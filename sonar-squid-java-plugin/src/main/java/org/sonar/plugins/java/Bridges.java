@@ -19,26 +19,45 @@
  */
 package org.sonar.plugins.java;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.checks.CheckFactory;
 import org.sonar.api.checks.NoSonarFilter;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.utils.TimeProfiler;
 import org.sonar.java.JavaSquid;
 import org.sonar.java.api.JavaClass;
 import org.sonar.java.api.JavaMethod;
 import org.sonar.plugins.java.bridges.Bridge;
 import org.sonar.plugins.java.bridges.BridgeFactory;
+import org.sonar.plugins.java.bridges.MeasureBatch;
 import org.sonar.plugins.java.bridges.ResourceIndex;
 import org.sonar.squid.api.*;
 import org.sonar.squid.indexer.QueryByType;
+import org.sonar.squid.measures.Metric;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class Bridges {
 
+  private static final Logger LOG = LoggerFactory.getLogger(Bridges.class);
+
+  private static final int CHUNK_SIZE = 256;
+
   private final JavaSquid squid;
 
   public Bridges(JavaSquid squid) {
@@ -49,21 +68,49 @@ public class Bridges {
     boolean skipPackageDesignAnalysis = project.getConfiguration().getBoolean(
         CoreProperties.DESIGN_SKIP_PACKAGE_DESIGN_PROPERTY,
         CoreProperties.DESIGN_SKIP_PACKAGE_DESIGN_DEFAULT_VALUE);
+    int maxDesignCycles = project.getConfiguration().getInt(
+        JavaSquidPlugin.SQUID_DESIGN_MAX_CYCLES_PROPERTY,
+        JavaSquidPlugin.SQUID_DESIGN_MAX_CYCLES_DEFAULT_VALUE);
+    boolean compactDsm = project.getConfiguration().getBoolean(
+        JavaSquidPlugin.SQUID_DESIGN_COMPACT_DSM_PROPERTY,
+        JavaSquidPlugin.SQUID_DESIGN_COMPACT_DSM_DEFAULT_VALUE);
+    int nbThreads = project.getConfiguration().getInt(
+        JavaSquidPlugin.SQUID_ANALYSIS_THREADS_PROPERTY,
+        JavaSquidPlugin.SQUID_ANALYSIS_THREADS_DEFAULT_VALUE);
 
+    TimeProfiler profiler = new TimeProfiler(LOG).start("Save results of Java analysis");
+    long start = System.nanoTime();
     ResourceIndex resourceIndex = new ResourceIndex().loadSquidResources(squid, context, project);
+    long indexNanos = System.nanoTime() - start;
+
+    MeasureBatch measures = new MeasureBatch(context);
     List<Bridge> bridges = BridgeFactory.create(
         squid.isBytecodeScanned(),
         skipPackageDesignAnalysis,
+        maxDesignCycles,
+        compactDsm,
         context,
+        measures,
         checkFactory,
         resourceIndex,
         squid,
         noSonarFilter);
     saveProject(resourceIndex, bridges);
     savePackages(resourceIndex, bridges);
-    saveFiles(resourceIndex, bridges);
-    saveClasses(resourceIndex, bridges);
-    saveMethods(resourceIndex, bridges);
+    if (squid.isStreamingMode()) {
+      saveFilesInStreamingMode(resourceIndex, bridges);
+    } else if (nbThreads > 1) {
+      BridgesFactory bridgesFactory = new BridgesFactory(skipPackageDesignAnalysis, maxDesignCycles, compactDsm, context, checkFactory, resourceIndex, noSonarFilter);
+      saveInParallel(resourceIndex, bridges, measures, bridgesFactory, nbThreads);
+    } else {
+      saveFiles(resourceIndex, bridges);
+      saveClasses(resourceIndex, bridges);
+      saveMethods(resourceIndex, bridges);
+    }
+    squid.getMemoryMonitor().check("saving results of Java analysis");
+    profiler.stop();
+    LOG.debug("Resources indexed in {} ms, {} measures saved in {} ms",
+        new Object[] {TimeUnit.NANOSECONDS.toMillis(indexNanos), measures.getSavedCount(), TimeUnit.NANOSECONDS.toMillis(measures.getSaveNanos())});
   }
 
   private void saveProject(ResourceIndex resourceIndex, List<Bridge> bridges) {
@@ -87,9 +134,53 @@ public class Bridges {
   private void saveFiles(ResourceIndex resourceIndex, List<Bridge> bridges) {
     Collection<SourceCode> squidFiles = squid.search(new QueryByType(SourceFile.class));
     for (SourceCode squidFile : squidFiles) {
-      Resource sonarFile = resourceIndex.get(squidFile);
-      for (Bridge bridge : bridges) {
-        bridge.onFile((SourceFile) squidFile, sonarFile);
+      saveFile(resourceIndex, bridges, squidFile);
+    }
+  }
+
+  private static void saveFile(ResourceIndex resourceIndex, List<Bridge> bridges, SourceCode squidFile) {
+    Resource sonarFile = resourceIndex.get(squidFile);
+    for (Bridge bridge : bridges) {
+      bridge.onFile((SourceFile) squidFile, sonarFile);
+    }
+  }
+
+  /**
+   * Saves each file together with its classes and methods, and then releases data, which is not needed anymore,
+   * so that memory is freed progressively instead of at the end of the analysis.
+   */
+  private void saveFilesInStreamingMode(ResourceIndex resourceIndex, List<Bridge> bridges) {
+    Collection<SourceCode> squidFiles = squid.search(new QueryByType(SourceFile.class));
+    for (SourceCode squidFile : squidFiles) {
+      saveFile(resourceIndex, bridges, squidFile);
+      saveChildren(squidFile, resourceIndex, bridges);
+      compact(squidFile);
+      squid.getMemoryMonitor().check("saving results of file " + squidFile.getKey());
+    }
+  }
+
+  private void saveChildren(SourceCode parent, ResourceIndex resourceIndex, List<Bridge> bridges) {
+    if (parent.hasChildren()) {
+      for (SourceCode child : parent.getChildren()) {
+        if (child instanceof SourceClass) {
+          saveClass(resourceIndex, bridges, child);
+        } else if (child instanceof SourceMethod) {
+          saveMethod(resourceIndex, bridges, child);
+        }
+        saveChildren(child, resourceIndex, bridges);
+      }
+    }
+  }
+
+  private static void compact(SourceCode squidCode) {
+    Set<CheckMessage> messages = squidCode.getCheckMessages();
+    if (messages != null) {
+      messages.clear();
+    }
+    squidCode.removeMeasure(Metric.LCOM4_BLOCKS);
+    if (squidCode.hasChildren()) {
+      for (SourceCode child : squidCode.getChildren()) {
+        compact(child);
       }
     }
   }
@@ -97,12 +188,16 @@ public class Bridges {
   private void saveClasses(ResourceIndex resourceIndex, List<Bridge> bridges) {
     Collection<SourceCode> squidClasses = squid.search(new QueryByType(SourceClass.class));
     for (SourceCode squidClass : squidClasses) {
-      Resource sonarClass = resourceIndex.get(squidClass);
-      // can be null with anonymous classes
-      if (sonarClass != null) {
-        for (Bridge bridge : bridges) {
-          bridge.onClass((SourceClass) squidClass, (JavaClass) sonarClass);
-        }
+      saveClass(resourceIndex, bridges, squidClass);
+    }
+  }
+
+  private static void saveClass(ResourceIndex resourceIndex, List<Bridge> bridges, SourceCode squidClass) {
+    Resource sonarClass = resourceIndex.get(squidClass);
+    // can be null with anonymous classes
+    if (sonarClass != null) {
+      for (Bridge bridge : bridges) {
+        bridge.onClass((SourceClass) squidClass, (JavaClass) sonarClass);
       }
     }
   }
@@ -110,13 +205,157 @@ public class Bridges {
   private void saveMethods(ResourceIndex resourceIndex, List<Bridge> bridges) {
     Collection<SourceCode> squidMethods = squid.search(new QueryByType(SourceMethod.class));
     for (SourceCode squidMethod : squidMethods) {
-      JavaMethod sonarMethod = (JavaMethod) resourceIndex.get(squidMethod);
-      if (sonarMethod != null) {
-        for (Bridge bridge : bridges) {
-          bridge.onMethod((SourceMethod) squidMethod, sonarMethod);
+      saveMethod(resourceIndex, bridges, squidMethod);
+    }
+  }
+
+  private static void saveMethod(ResourceIndex resourceIndex, List<Bridge> bridges, SourceCode squidMethod) {
+    JavaMethod sonarMethod = (JavaMethod) resourceIndex.get(squidMethod);
+    if (sonarMethod != null) {
+      for (Bridge bridge : bridges) {
+        bridge.onMethod((SourceMethod) squidMethod, sonarMethod);
+      }
+    }
+  }
+
+  /**
+   * Bridges, which {@link Bridge#canRunInParallel() can run in parallel}, are executed on chunks of files, classes and methods
+   * by a pool of threads, with their own instances of bridges, which record measures.
+   * Calling thread is the single writer: for each chunk in order, it moves recorded measures to the batch, which saves them,
+   * and executes the other bridges, so that results do not depend on the number of threads.
+   */
+  private void saveInParallel(ResourceIndex resourceIndex, List<Bridge> bridges, MeasureBatch measures, final BridgesFactory bridgesFactory, int nbThreads) {
+    List<Bridge> sequentialBridges = Lists.newArrayList();
+    for (Bridge bridge : bridges) {
+      if (!bridge.canRunInParallel()) {
+        sequentialBridges.add(bridge);
+      }
+    }
+    ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+      @Override
+      protected Worker initialValue() {
+        return new Worker(bridgesFactory);
+      }
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(nbThreads, new ThreadFactoryBuilder()
+      .setNameFormat("Java bridges %d")
+      .setDaemon(true)
+      .build());
+    try {
+      for (Level level : Level.values()) {
+        saveInParallel(level, resourceIndex, sequentialBridges, measures, executor, workers);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void saveInParallel(final Level level, final ResourceIndex resourceIndex, List<Bridge> sequentialBridges, MeasureBatch measures,
+      ExecutorService executor, final ThreadLocal<Worker> workers) {
+    List<SourceCode> squidCodes = Lists.newArrayList(squid.search(new QueryByType(level.type)));
+    List<List<SourceCode>> chunks = Lists.partition(squidCodes, CHUNK_SIZE);
+    List<Future<MeasureBatch>> futures = Lists.newArrayListWithCapacity(chunks.size());
+    for (final List<SourceCode> chunk : chunks) {
+      futures.add(executor.submit(new Callable<MeasureBatch>() {
+        public MeasureBatch call() {
+          Worker worker = workers.get();
+          for (SourceCode squidCode : chunk) {
+            level.save(resourceIndex, worker.bridges, squidCode);
+          }
+          MeasureBatch result = MeasureBatch.recorder();
+          worker.recorder.moveTo(result);
+          return result;
+        }
+      }));
+    }
+    for (int i = 0; i < chunks.size(); i++) {
+      get(futures.get(i)).moveTo(measures);
+      for (SourceCode squidCode : chunks.get(i)) {
+        level.save(resourceIndex, sequentialBridges, squidCode);
+      }
+    }
+  }
+
+  private static <T> T get(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private enum Level {
+    FILE(SourceFile.class) {
+      @Override
+      void save(ResourceIndex resourceIndex, List<Bridge> bridges, SourceCode squidCode) {
+        saveFile(resourceIndex, bridges, squidCode);
+      }
+    },
+    CLASS(SourceClass.class) {
+      @Override
+      void save(ResourceIndex resourceIndex, List<Bridge> bridges, SourceCode squidCode) {
+        saveClass(resourceIndex, bridges, squidCode);
+      }
+    },
+    METHOD(SourceMethod.class) {
+      @Override
+      void save(ResourceIndex resourceIndex, List<Bridge> bridges, SourceCode squidCode) {
+        saveMethod(resourceIndex, bridges, squidCode);
+      }
+    };
+
+    private final Class<? extends SourceCode> type;
+
+    private Level(Class<? extends SourceCode> type) {
+      this.type = type;
+    }
+
+    abstract void save(ResourceIndex resourceIndex, List<Bridge> bridges, SourceCode squidCode);
+  }
+
+  /**
+   * Bridges of a thread of the pool, which can run in parallel, and recorder of their measures.
+   */
+  private static final class Worker {
+    private final MeasureBatch recorder = MeasureBatch.recorder();
+    private final List<Bridge> bridges = Lists.newArrayList();
+
+    private Worker(BridgesFactory bridgesFactory) {
+      for (Bridge bridge : bridgesFactory.create(recorder)) {
+        if (bridge.canRunInParallel()) {
+          bridges.add(bridge);
         }
       }
     }
   }
 
+  private final class BridgesFactory {
+    private final boolean skipPackageDesignAnalysis;
+    private final int maxDesignCycles;
+    private final boolean compactDsm;
+    private final SensorContext context;
+    private final CheckFactory checkFactory;
+    private final ResourceIndex resourceIndex;
+    private final NoSonarFilter noSonarFilter;
+
+    private BridgesFactory(boolean skipPackageDesignAnalysis, int maxDesignCycles, boolean compactDsm, SensorContext context, CheckFactory checkFactory,
+        ResourceIndex resourceIndex, NoSonarFilter noSonarFilter) {
+      this.skipPackageDesignAnalysis = skipPackageDesignAnalysis;
+      this.maxDesignCycles = maxDesignCycles;
+      this.compactDsm = compactDsm;
+      this.context = context;
+      this.checkFactory = checkFactory;
+      this.resourceIndex = resourceIndex;
+      this.noSonarFilter = noSonarFilter;
+    }
+
+    private List<Bridge> create(MeasureBatch measures) {
+      return BridgeFactory.create(squid.isBytecodeScanned(), skipPackageDesignAnalysis, maxDesignCycles, compactDsm, context, measures, checkFactory,
+          resourceIndex, squid, noSonarFilter);
+    }
+  }
+
 }
@@ -0,0 +1,50 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java;
+
+import com.google.common.collect.ImmutableList;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.Metrics;
+
+import java.util.List;
+
+public final class JavaSquidMetrics implements Metrics {
+
+  public static final String DEGRADED_FILES_KEY = "java_degraded_files";
+  public static final Metric DEGRADED_FILES = new Metric(DEGRADED_FILES_KEY, "Degraded files",
+      "Files, whose parsing exceeded time budget and for which only basic metrics were computed",
+      Metric.ValueType.INT, Metric.DIRECTION_WORST, false, CoreMetrics.DOMAIN_GENERAL);
+
+  public static final String QUARANTINED_CHECKS_KEY = "java_quarantined_checks";
+  public static final Metric QUARANTINED_CHECKS = new Metric(QUARANTINED_CHECKS_KEY, "Quarantined checks",
+      "Number of times a rule exceeded its time budget on a file, so that its issues on this file were dropped",
+      Metric.ValueType.INT, Metric.DIRECTION_WORST, false, CoreMetrics.DOMAIN_GENERAL);
+
+  public static final String PEAK_HEAP_USAGE_KEY = "java_peak_heap_usage";
+  public static final Metric PEAK_HEAP_USAGE = new Metric(PEAK_HEAP_USAGE_KEY, "Peak heap usage",
+      "Peak usage of heap in megabytes during Java analysis",
+      Metric.ValueType.INT, Metric.DIRECTION_WORST, false, CoreMetrics.DOMAIN_GENERAL);
+
+  public List<Metric> getMetrics() {
+    return ImmutableList.of(DEGRADED_FILES, QUARANTINED_CHECKS, PEAK_HEAP_USAGE);
+  }
+
+}
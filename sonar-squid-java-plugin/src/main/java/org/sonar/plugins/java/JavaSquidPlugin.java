@@ -42,6 +42,34 @@ public class JavaSquidPlugin extends SonarPlugin {
   public static final String FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION = "sonar.squid.fieldsToExcludeFromLcom4Computation";
   public static final String FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION_DEFAULT_VALUE = "LOG, logger";
 
+  public static final String SQUID_ANALYSIS_THREADS_PROPERTY = "sonar.squid.analyse.threads";
+  public static final int SQUID_ANALYSIS_THREADS_DEFAULT_VALUE = 1;
+
+  public static final String SQUID_FILE_TIME_BUDGET_PROPERTY = "sonar.squid.analyse.fileTimeBudget";
+  public static final int SQUID_FILE_TIME_BUDGET_DEFAULT_VALUE = 0;
+
+  public static final String SQUID_CHECK_TIME_BUDGET_PROPERTY = "sonar.squid.analyse.checkTimeBudget";
+  public static final int SQUID_CHECK_TIME_BUDGET_DEFAULT_VALUE = 0;
+
+  public static final String SQUID_CHECK_MAX_OVERRUNS_PROPERTY = "sonar.squid.analyse.checkTimeBudget.maxOverruns";
+  public static final int SQUID_CHECK_MAX_OVERRUNS_DEFAULT_VALUE = 0;
+
+  public static final String SQUID_CACHE_DIRECTORY_PROPERTY = "sonar.squid.analyse.cache.directory";
+
+  public static final String SQUID_STREAMING_MODE_PROPERTY = "sonar.squid.analyse.streaming";
+  public static final boolean SQUID_STREAMING_MODE_DEFAULT_VALUE = false;
+
+  public static final String SQUID_MEMORY_CEILING_PROPERTY = "sonar.squid.analyse.memoryCeiling";
+  public static final int SQUID_MEMORY_CEILING_DEFAULT_VALUE = 0;
+
+  public static final String SQUID_DESIGN_MAX_CYCLES_PROPERTY = "sonar.squid.analyse.design.maxCycles";
+  public static final int SQUID_DESIGN_MAX_CYCLES_DEFAULT_VALUE = 10000;
+
+  public static final String SQUID_DESIGN_COMPACT_DSM_PROPERTY = "sonar.squid.analyse.design.compactMatrix";
+  public static final boolean SQUID_DESIGN_COMPACT_DSM_DEFAULT_VALUE = false;
+
+  public static final String SQUID_PROFILING_REPORT_PROPERTY = "sonar.squid.analyse.profiling.report";
+
   public List<?> getExtensions() {
     return ImmutableList.of(
       PropertyDefinition.builder(JavaSquidPlugin.SQUID_ANALYSE_ACCESSORS_PROPERTY)
@@ -63,6 +91,97 @@ public class JavaSquidPlugin extends SonarPlugin {
           "All field names to exclude from LCOM4 computation must be separated by a comma.")
         .onQualifiers(Qualifiers.PROJECT)
         .build(),
+      PropertyDefinition.builder(JavaSquidPlugin.SQUID_ANALYSIS_THREADS_PROPERTY)
+        .defaultValue(JavaSquidPlugin.SQUID_ANALYSIS_THREADS_DEFAULT_VALUE + "")
+        .category(CoreProperties.CATEGORY_JAVA)
+        .name("Number of threads for source analysis")
+        .description("Number of threads used to parse source files, to load bytecode and to compute measures of files, classes and methods. " +
+          "Visitors and checks are still executed one file after another, and measures are saved by a single thread in a fixed order, " +
+          "so results do not depend on this value.")
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(JavaSquidPlugin.SQUID_FILE_TIME_BUDGET_PROPERTY)
+        .defaultValue(JavaSquidPlugin.SQUID_FILE_TIME_BUDGET_DEFAULT_VALUE + "")
+        .category(CoreProperties.CATEGORY_JAVA)
+        .name("Time budget for parsing of a file")
+        .description("Maximal time in seconds to parse a source file. Zero means no limit. " +
+          "Files, which exceed this budget, are analyzed in degraded mode: only lines and lines of code are computed and rules are not executed.")
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(JavaSquidPlugin.SQUID_CHECK_TIME_BUDGET_PROPERTY)
+        .defaultValue(JavaSquidPlugin.SQUID_CHECK_TIME_BUDGET_DEFAULT_VALUE + "")
+        .category(CoreProperties.CATEGORY_JAVA)
+        .name("Time budget of a rule on a file")
+        .description("Maximal CPU time in milliseconds, which a rule can spend on a source file. Zero means no limit. " +
+          "Issues of a rule on a file, for which it exceeds this budget, are dropped. Such files are logged and counted in measure of quarantined checks.")
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(JavaSquidPlugin.SQUID_CHECK_MAX_OVERRUNS_PROPERTY)
+        .defaultValue(JavaSquidPlugin.SQUID_CHECK_MAX_OVERRUNS_DEFAULT_VALUE + "")
+        .category(CoreProperties.CATEGORY_JAVA)
+        .name("Maximal number of time budget overruns of a rule")
+        .description("Number of source files, on which a rule can exceed its time budget before it is disabled for the rest of analysis. " +
+          "Zero means that rules are never disabled.")
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(JavaSquidPlugin.SQUID_CACHE_DIRECTORY_PROPERTY)
+        .category(CoreProperties.CATEGORY_JAVA)
+        .name("Analysis cache directory")
+        .description("Directory to keep results of analysis of source files between analyses, " +
+          "so that files, which were not changed since previous analysis with the same rules, are not analyzed again, " +
+          "and summaries of classes from libraries, so that their bytecode is not parsed again. " +
+          "Relative path is resolved against project base directory. Cache is disabled when not set.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(JavaSquidPlugin.SQUID_STREAMING_MODE_PROPERTY)
+        .defaultValue(JavaSquidPlugin.SQUID_STREAMING_MODE_DEFAULT_VALUE + "")
+        .category(CoreProperties.CATEGORY_JAVA)
+        .name("Streaming mode")
+        .description("Flag whether issues and LCOM4 blocks of each file should be released from memory as soon as the file is saved. " +
+          "Does not lower peak heap usage, which is reached while files are analyzed, before any of them is saved.")
+        .type(PropertyType.BOOLEAN)
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(JavaSquidPlugin.SQUID_MEMORY_CEILING_PROPERTY)
+        .defaultValue(JavaSquidPlugin.SQUID_MEMORY_CEILING_DEFAULT_VALUE + "")
+        .category(CoreProperties.CATEGORY_JAVA)
+        .name("Memory ceiling")
+        .description("Maximal amount of heap in megabytes, which can be used by analysis. " +
+          "Analysis fails with an explicit message when it is exceeded. Zero means no limit. " +
+          "In any case peak usage of heap is reported at the end of analysis and saved as a measure of the project.")
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(JavaSquidPlugin.SQUID_PROFILING_REPORT_PROPERTY)
+        .category(CoreProperties.CATEGORY_JAVA)
+        .name("Profiling report")
+        .description("File to write CPU time, number of invocations and allocated memory of each visitor and check in JSON. " +
+          "These measures are also logged at the end of analysis. Relative path is resolved against project base directory. " +
+          "Measurement is disabled when not set, because it slows down analysis.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(JavaSquidPlugin.SQUID_DESIGN_MAX_CYCLES_PROPERTY)
+        .defaultValue(JavaSquidPlugin.SQUID_DESIGN_MAX_CYCLES_DEFAULT_VALUE + "")
+        .category(CoreProperties.CATEGORY_JAVA)
+        .name("Maximal number of cycles in design analysis")
+        .description("Maximal number of cycles to enumerate between packages or files, which depend on each other. " +
+          "When it is reached, feedback edges are approximated and numbers of cycles and tangles are not exact anymore. Zero means no limit.")
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(JavaSquidPlugin.SQUID_DESIGN_COMPACT_DSM_PROPERTY)
+        .defaultValue(JavaSquidPlugin.SQUID_DESIGN_COMPACT_DSM_DEFAULT_VALUE + "")
+        .category(CoreProperties.CATEGORY_JAVA)
+        .name("Compact dependency matrix")
+        .description("Flag whether dependency matrices should only list cells, which are not empty, instead of all cells of each row. " +
+          "Reduces size of matrices of big packages, but requires a viewer, which supports this encoding.")
+        .type(PropertyType.BOOLEAN)
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
       PropertyDefinition.builder(CoreProperties.DESIGN_SKIP_DESIGN_PROPERTY)
         .defaultValue(CoreProperties.DESIGN_SKIP_DESIGN_DEFAULT_VALUE + "")
         .category(CoreProperties.CATEGORY_JAVA)
@@ -76,6 +195,7 @@ public class JavaSquidPlugin extends SonarPlugin {
       JavaSonarWayProfile.class,
       JavaSonarWayWithFindbugsProfile.class,
       SonarComponents.class,
+      JavaSquidMetrics.class,
       JavaSquidSensor.class,
       ChidamberKemererDistributionBuilder.class,
       ClassesDecorator.class,
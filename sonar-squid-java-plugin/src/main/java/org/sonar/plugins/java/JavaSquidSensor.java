@@ -35,6 +35,7 @@ import org.sonar.api.resources.Java;
 import org.sonar.api.resources.Project;
 import org.sonar.java.JavaConfiguration;
 import org.sonar.java.JavaSquid;
+import org.sonar.java.MemoryMonitor;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.api.JavaUtils;
 import org.sonar.java.checks.CheckList;
@@ -45,6 +46,7 @@ import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Phase(name = Phase.Name.PRE)
 @DependsUpon(JavaUtils.BARRIER_BEFORE_SQUID)
@@ -79,6 +81,9 @@ public class JavaSquidSensor implements Sensor {
     squid.scan(sourceFiles, getBytecodeFiles(project));
 
     new Bridges(squid).save(context, project, annotationCheckFactory, noSonarFilter);
+    MemoryMonitor memoryMonitor = squid.getMemoryMonitor();
+    memoryMonitor.logPeakHeapUsage();
+    context.saveMeasure(JavaSquidMetrics.PEAK_HEAP_USAGE, (double) memoryMonitor.getPeakHeapUsageInMegabytes());
   }
 
   private List<InputFile> getSourceFiles(Project project) {
@@ -99,10 +104,42 @@ public class JavaSquidSensor implements Sensor {
     String fieldNamesToExcludeFromLcom4Computation = project.getConfiguration().getString(
         JavaSquidPlugin.FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION,
         JavaSquidPlugin.FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION_DEFAULT_VALUE);
+    int analysisThreads = project.getConfiguration().getInt(
+        JavaSquidPlugin.SQUID_ANALYSIS_THREADS_PROPERTY,
+        JavaSquidPlugin.SQUID_ANALYSIS_THREADS_DEFAULT_VALUE);
+    boolean streamingMode = project.getConfiguration().getBoolean(
+        JavaSquidPlugin.SQUID_STREAMING_MODE_PROPERTY,
+        JavaSquidPlugin.SQUID_STREAMING_MODE_DEFAULT_VALUE);
+    int memoryCeiling = project.getConfiguration().getInt(
+        JavaSquidPlugin.SQUID_MEMORY_CEILING_PROPERTY,
+        JavaSquidPlugin.SQUID_MEMORY_CEILING_DEFAULT_VALUE);
+    int fileTimeBudget = project.getConfiguration().getInt(
+        JavaSquidPlugin.SQUID_FILE_TIME_BUDGET_PROPERTY,
+        JavaSquidPlugin.SQUID_FILE_TIME_BUDGET_DEFAULT_VALUE);
+    int checkTimeBudget = project.getConfiguration().getInt(
+        JavaSquidPlugin.SQUID_CHECK_TIME_BUDGET_PROPERTY,
+        JavaSquidPlugin.SQUID_CHECK_TIME_BUDGET_DEFAULT_VALUE);
+    int checkMaxOverruns = project.getConfiguration().getInt(
+        JavaSquidPlugin.SQUID_CHECK_MAX_OVERRUNS_PROPERTY,
+        JavaSquidPlugin.SQUID_CHECK_MAX_OVERRUNS_DEFAULT_VALUE);
     Charset charset = project.getFileSystem().getSourceCharset();
 
     JavaConfiguration conf = new JavaConfiguration(charset);
     conf.setAnalyzePropertyAccessors(analyzePropertyAccessors);
+    conf.setAnalysisThreads(analysisThreads);
+    conf.setFileTimeBudget(TimeUnit.SECONDS.toMillis(fileTimeBudget));
+    conf.setCheckTimeBudget(checkTimeBudget);
+    conf.setCheckMaxOverruns(checkMaxOverruns);
+    conf.setStreamingMode(streamingMode);
+    conf.setMemoryCeiling(memoryCeiling);
+    String cacheDirectory = project.getConfiguration().getString(JavaSquidPlugin.SQUID_CACHE_DIRECTORY_PROPERTY);
+    if (StringUtils.isNotBlank(cacheDirectory)) {
+      conf.setCacheDirectory(project.getFileSystem().resolvePath(cacheDirectory));
+    }
+    String profilingReport = project.getConfiguration().getString(JavaSquidPlugin.SQUID_PROFILING_REPORT_PROPERTY);
+    if (StringUtils.isNotBlank(profilingReport)) {
+      conf.setProfilingReport(project.getFileSystem().resolvePath(profilingReport));
+    }
     for (String fieldName : StringUtils.split(fieldNamesToExcludeFromLcom4Computation, ',')) {
       if (StringUtils.isNotBlank(fieldName)) {
         conf.addFieldToExcludeFromLcom4Calculation(fieldName);
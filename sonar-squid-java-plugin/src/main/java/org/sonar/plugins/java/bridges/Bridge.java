@@ -38,6 +38,7 @@ public abstract class Bridge {
   ResourceIndex resourceIndex;
   SensorContext context;
   CheckFactory checkFactory;
+  MeasureBatch measures;
 
   protected Bridge(boolean needsBytecode) {
     this.needsBytecode = needsBytecode;
@@ -47,6 +48,14 @@ public abstract class Bridge {
     return needsBytecode;
   }
 
+  /**
+   * Whether this bridge only saves measures of files, classes and methods, so that instances of this bridge
+   * can compute them for several resources in parallel.
+   */
+  public boolean canRunInParallel() {
+    return false;
+  }
+
   protected final void setSquid(JavaSquid squid) {
     this.squid = squid;
   }
@@ -63,6 +72,10 @@ public abstract class Bridge {
     this.context = context;
   }
 
+  protected final void setMeasureBatch(MeasureBatch measures) {
+    this.measures = measures;
+  }
+
   public void onProject(SourceProject squidProject, Project sonarProject) {
 
   }
@@ -34,7 +34,7 @@ public final class BridgeFactory {
     // only static methods
   }
 
-  private static List<Bridge> create(NoSonarFilter noSonarFilter, boolean skipPackageDesignAnalysis) {
+  private static List<Bridge> create(NoSonarFilter noSonarFilter, boolean skipPackageDesignAnalysis, int maxDesignCycles, boolean compactDsm) {
     ArrayList<Bridge> result = Lists.newArrayList(
         new CopyBasicMeasuresBridge(),
         new PackagesBridge(),
@@ -45,18 +45,19 @@ public final class BridgeFactory {
         new Lcom4BlocksBridge(),
         new ChecksBridge());
     if (!skipPackageDesignAnalysis) {
-      result.add(new DesignBridge());
+      result.add(new DesignBridge(maxDesignCycles, compactDsm));
     }
     return result;
   }
 
-  public static List<Bridge> create(boolean bytecodeScanned, boolean skipPackageDesignAnalysis, SensorContext context, CheckFactory checkFactory,
-      ResourceIndex resourceIndex, JavaSquid squid, NoSonarFilter noSonarFilter) {
+  public static List<Bridge> create(boolean bytecodeScanned, boolean skipPackageDesignAnalysis, int maxDesignCycles, boolean compactDsm,
+      SensorContext context, MeasureBatch measures, CheckFactory checkFactory, ResourceIndex resourceIndex, JavaSquid squid, NoSonarFilter noSonarFilter) {
     List<Bridge> result = new ArrayList<Bridge>();
-    for (Bridge bridge : create(noSonarFilter, skipPackageDesignAnalysis)) {
+    for (Bridge bridge : create(noSonarFilter, skipPackageDesignAnalysis, maxDesignCycles, compactDsm)) {
       bridge.setCheckFactory(checkFactory);
       if (!bridge.needsBytecode() || bytecodeScanned) {
         bridge.setContext(context);
+        bridge.setMeasureBatch(measures);
         bridge.setSquid(squid);
         bridge.setResourceIndex(resourceIndex);
         result.add(bridge);
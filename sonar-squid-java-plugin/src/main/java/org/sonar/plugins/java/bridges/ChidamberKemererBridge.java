@@ -30,12 +30,17 @@ public class ChidamberKemererBridge extends Bridge {
     super(true);
   }
 
+  @Override
+  public boolean canRunInParallel() {
+    return true;
+  }
+
   @Override
   public final void onFile(SourceFile squidFile, Resource sonarFile) {
-    context.saveMeasure(sonarFile, CoreMetrics.DEPTH_IN_TREE, squidFile.getDouble(Metric.DIT));
-    context.saveMeasure(sonarFile, CoreMetrics.NUMBER_OF_CHILDREN, squidFile.getDouble(Metric.NOC));
-    context.saveMeasure(sonarFile, CoreMetrics.RFC, squidFile.getDouble(Metric.RFC));
-    context.saveMeasure(sonarFile, CoreMetrics.LCOM4, getLcom4(squidFile));
+    measures.save(sonarFile, CoreMetrics.DEPTH_IN_TREE, squidFile.getDouble(Metric.DIT));
+    measures.save(sonarFile, CoreMetrics.NUMBER_OF_CHILDREN, squidFile.getDouble(Metric.NOC));
+    measures.save(sonarFile, CoreMetrics.RFC, squidFile.getDouble(Metric.RFC));
+    measures.save(sonarFile, CoreMetrics.LCOM4, getLcom4(squidFile));
   }
 
   static double getLcom4(SourceFile squidFile) {
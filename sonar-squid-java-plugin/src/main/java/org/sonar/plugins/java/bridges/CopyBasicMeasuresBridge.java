@@ -20,15 +20,18 @@
 package org.sonar.plugins.java.bridges;
 
 import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.utils.ParsingUtils;
 import org.sonar.java.api.JavaClass;
 import org.sonar.java.api.JavaMethod;
 import org.sonar.java.ast.api.JavaMetric;
+import org.sonar.plugins.java.JavaSquidMetrics;
 import org.sonar.squid.api.SourceClass;
 import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourceFile;
 import org.sonar.squid.api.SourceMethod;
+import org.sonar.squid.api.SourceProject;
 import org.sonar.squid.measures.Metric;
 import org.sonar.squid.measures.MetricDef;
 
@@ -38,11 +41,28 @@ public final class CopyBasicMeasuresBridge extends Bridge {
     super(false);
   }
 
+  @Override
+  public boolean canRunInParallel() {
+    return true;
+  }
+
+  @Override
+  public void onProject(SourceProject squidProject, Project sonarProject) {
+    copy(squidProject, sonarProject, JavaMetric.DEGRADED_FILES, JavaSquidMetrics.DEGRADED_FILES);
+    copy(squidProject, sonarProject, JavaMetric.QUARANTINED_CHECKS, JavaSquidMetrics.QUARANTINED_CHECKS);
+  }
+
   @Override
   public void onFile(SourceFile squidFile, Resource sonarResource) {
     copyStandard(squidFile, sonarResource);
     copy(squidFile, sonarResource, JavaMetric.FILES, CoreMetrics.FILES);
-    context.saveMeasure(sonarResource, CoreMetrics.PUBLIC_DOCUMENTED_API_DENSITY, ParsingUtils.scaleValue(squidFile.getDouble(Metric.PUBLIC_DOCUMENTED_API_DENSITY) * 100, 2));
+    if (squidFile.getInt(JavaMetric.DEGRADED_FILES) > 0) {
+      copy(squidFile, sonarResource, JavaMetric.DEGRADED_FILES, JavaSquidMetrics.DEGRADED_FILES);
+    }
+    if (squidFile.getInt(JavaMetric.QUARANTINED_CHECKS) > 0) {
+      copy(squidFile, sonarResource, JavaMetric.QUARANTINED_CHECKS, JavaSquidMetrics.QUARANTINED_CHECKS);
+    }
+    measures.save(sonarResource, CoreMetrics.PUBLIC_DOCUMENTED_API_DENSITY, ParsingUtils.scaleValue(squidFile.getDouble(Metric.PUBLIC_DOCUMENTED_API_DENSITY) * 100, 2));
   }
 
   @Override
@@ -65,7 +85,7 @@ public final class CopyBasicMeasuresBridge extends Bridge {
   }
 
   private void copy(SourceCode squidResource, Resource sonarResource, MetricDef squidMetric, org.sonar.api.measures.Metric sonarMetric) {
-    context.saveMeasure(sonarResource, sonarMetric, squidResource.getDouble(squidMetric));
+    measures.save(sonarResource, sonarMetric, squidResource.getDouble(squidMetric));
   }
 
 }
@@ -0,0 +1,268 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.sonar.graph.Cycle;
+import org.sonar.graph.CycleDetector;
+import org.sonar.graph.DirectedGraphAccessor;
+import org.sonar.graph.Edge;
+import org.sonar.graph.IncrementalCyclesAndFESSolver;
+import org.sonar.graph.MinimumFeedbackEdgeSetSolver;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cycles and feedback edges of a subset of vertices of a graph.
+ * <p>
+ * Vertices are first split into strongly connected components, because a cycle can't span several of them, and cycles are searched
+ * only in components with more than one vertex, by the same iterations as {@link IncrementalCyclesAndFESSolver}.
+ * When at least {@code maxCycles} cycles of a component are enumerated, search stops there and its feedback edges
+ * are approximated by the heuristic of Eades, Lin and Smyth, which is quadratic in number of vertices of the component.
+ * </p>
+ */
+final class CycleAnalysis<V> {
+
+  private static final int MAX_SEARCH_DEPTH_AT_FIRST = 3;
+  private static final int MAX_CYCLES_BY_ITERATION = 100;
+
+  private final DirectedGraphAccessor<V, ? extends Edge<V>> graph;
+  private final int maxCycles;
+  private final boolean globalFeedbackEdgeSet;
+
+  private int cycles;
+  private final Set<Edge> feedbackEdges = Sets.newHashSet();
+  private int tangles;
+  private int components;
+  private int approximatedComponents;
+
+  private long componentsNanos;
+  private long cyclesNanos;
+  private long approximationNanos;
+
+  /**
+   * @param maxCycles maximal number of cycles to enumerate in a component, zero or less means no limit
+   * @param globalFeedbackEdgeSet whether feedback edges of components, which are not approximated, are computed
+   * by a single {@link MinimumFeedbackEdgeSetSolver} on all their cycles rather than by component
+   */
+  CycleAnalysis(DirectedGraphAccessor<V, ? extends Edge<V>> graph, int maxCycles, boolean globalFeedbackEdgeSet) {
+    this.graph = graph;
+    this.maxCycles = maxCycles;
+    this.globalFeedbackEdgeSet = globalFeedbackEdgeSet;
+  }
+
+  CycleAnalysis<V> analyze(Collection<V> vertices) {
+    long start = System.nanoTime();
+    List<List<V>> stronglyConnectedComponents = StronglyConnectedComponents.find(graph, vertices);
+    componentsNanos += System.nanoTime() - start;
+    Set<Cycle> solvedCycles = Sets.newHashSet();
+    for (List<V> component : stronglyConnectedComponents) {
+      components++;
+      start = System.nanoTime();
+      Set<Cycle> componentCycles = Sets.newHashSet();
+      MinimumFeedbackEdgeSetSolver solver = searchCycles(component, componentCycles);
+      cycles += componentCycles.size();
+      cyclesNanos += System.nanoTime() - start;
+      if (solver == null) {
+        start = System.nanoTime();
+        approximatedComponents++;
+        for (Edge edge : approximateFeedbackEdges(component)) {
+          feedbackEdges.add(edge);
+          tangles += edge.getWeight();
+        }
+        approximationNanos += System.nanoTime() - start;
+      } else if (globalFeedbackEdgeSet) {
+        solvedCycles.addAll(componentCycles);
+      } else {
+        feedbackEdges.addAll(solver.getEdges());
+        tangles += solver.getWeightOfFeedbackEdgeSet();
+      }
+    }
+    if (!solvedCycles.isEmpty()) {
+      start = System.nanoTime();
+      MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(solvedCycles);
+      feedbackEdges.addAll(solver.getEdges());
+      tangles += solver.getWeightOfFeedbackEdgeSet();
+      cyclesNanos += System.nanoTime() - start;
+    }
+    return this;
+  }
+
+  /**
+   * Iterates as {@link IncrementalCyclesAndFESSolver}: cycles are searched again without the feedback edges of the ones already found,
+   * until no more cycle is found, or until {@code maxCycles} cycles are found.
+   *
+   * @return solver of found cycles, or null if search was stopped by the limit
+   */
+  private MinimumFeedbackEdgeSetSolver searchCycles(List<V> component, Set<Cycle> componentCycles) {
+    CycleDetector<V> detector = new CycleDetector<V>(graph, component);
+    detector.detectCyclesWithMaxSearchDepth(MAX_SEARCH_DEPTH_AT_FIRST);
+    componentCycles.addAll(detector.getCycles());
+    while (maxCycles <= 0 || componentCycles.size() < maxCycles) {
+      MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(componentCycles);
+      detector = new CycleDetector<V>(graph, component, solver.getEdges());
+      detector.detectCyclesWithUpperLimit(MAX_CYCLES_BY_ITERATION);
+      if (detector.getCycles().isEmpty()) {
+        return solver;
+      }
+      componentCycles.addAll(detector.getCycles());
+    }
+    return null;
+  }
+
+  /**
+   * Orders vertices so that sinks are at the end, sources are at the beginning, and otherwise the vertex with the highest difference
+   * between weights of outgoing and incoming edges comes first. Edges, which go backward in this order, break all cycles.
+   */
+  private List<Edge> approximateFeedbackEdges(List<V> component) {
+    Map<V, Degrees> remaining = Maps.newLinkedHashMap();
+    for (V vertex : component) {
+      remaining.put(vertex, new Degrees());
+    }
+    for (V vertex : component) {
+      for (Edge<V> edge : graph.getOutgoingEdges(vertex)) {
+        Degrees to = remaining.get(edge.getTo());
+        if (to != null && !edge.getTo().equals(vertex)) {
+          remaining.get(vertex).addOutgoing(edge.getWeight());
+          to.addIncoming(edge.getWeight());
+        }
+      }
+    }
+
+    List<V> head = Lists.newArrayList();
+    LinkedList<V> tail = Lists.newLinkedList();
+    while (!remaining.isEmpty()) {
+      V next = null;
+      boolean sink = false;
+      int maxDelta = Integer.MIN_VALUE;
+      for (Map.Entry<V, Degrees> entry : remaining.entrySet()) {
+        Degrees degrees = entry.getValue();
+        if (degrees.outgoing == 0 || degrees.incoming == 0) {
+          next = entry.getKey();
+          sink = degrees.outgoing == 0;
+          break;
+        }
+        if (degrees.delta() > maxDelta) {
+          maxDelta = degrees.delta();
+          next = entry.getKey();
+        }
+      }
+      if (sink) {
+        tail.addFirst(next);
+      } else {
+        head.add(next);
+      }
+      remove(next, remaining);
+    }
+    head.addAll(tail);
+
+    Map<V, Integer> positions = Maps.newHashMap();
+    for (V vertex : head) {
+      positions.put(vertex, positions.size());
+    }
+    List<Edge> result = Lists.newArrayList();
+    for (V vertex : component) {
+      for (Edge<V> edge : graph.getOutgoingEdges(vertex)) {
+        Integer to = positions.get(edge.getTo());
+        if (to != null && to < positions.get(vertex)) {
+          result.add(edge);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void remove(V vertex, Map<V, Degrees> remaining) {
+    remaining.remove(vertex);
+    for (Edge<V> edge : graph.getOutgoingEdges(vertex)) {
+      Degrees to = remaining.get(edge.getTo());
+      if (to != null) {
+        to.removeIncoming(edge.getWeight());
+      }
+    }
+    for (Edge<V> edge : graph.getIncomingEdges(vertex)) {
+      Degrees from = remaining.get(edge.getFrom());
+      if (from != null) {
+        from.removeOutgoing(edge.getWeight());
+      }
+    }
+  }
+
+  int getCycles() {
+    return cycles;
+  }
+
+  Set<Edge> getFeedbackEdges() {
+    return feedbackEdges;
+  }
+
+  int getTangles() {
+    return tangles;
+  }
+
+  int getApproximatedComponents() {
+    return approximatedComponents;
+  }
+
+  String getTimings() {
+    return components + " strongly connected components found in " + TimeUnit.NANOSECONDS.toMillis(componentsNanos) + " ms, "
+      + "cycles searched in " + TimeUnit.NANOSECONDS.toMillis(cyclesNanos) + " ms, "
+      + approximatedComponents + " components approximated in " + TimeUnit.NANOSECONDS.toMillis(approximationNanos) + " ms";
+  }
+
+  private static final class Degrees {
+    private int incoming;
+    private int outgoing;
+    private int incomingWeight;
+    private int outgoingWeight;
+
+    private void addIncoming(int weight) {
+      incoming++;
+      incomingWeight += weight;
+    }
+
+    private void addOutgoing(int weight) {
+      outgoing++;
+      outgoingWeight += weight;
+    }
+
+    private void removeIncoming(int weight) {
+      incoming--;
+      incomingWeight -= weight;
+    }
+
+    private void removeOutgoing(int weight) {
+      outgoing--;
+      outgoingWeight -= weight;
+    }
+
+    private int delta() {
+      return outgoingWeight - incomingWeight;
+    }
+  }
+
+}
@@ -32,7 +32,9 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.ActiveRule;
 import org.sonar.api.rules.Violation;
 import org.sonar.api.utils.TimeProfiler;
-import org.sonar.graph.*;
+import org.sonar.graph.Dsm;
+import org.sonar.graph.DsmTopologicalSorter;
+import org.sonar.graph.Edge;
 import org.sonar.java.JavaSquid;
 import org.sonar.java.checks.CycleBetweenPackagesCheck;
 import org.sonar.squid.api.SourceCode;
@@ -43,6 +45,7 @@ import org.sonar.squid.api.SourceProject;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class DesignBridge extends Bridge {
 
@@ -53,8 +56,18 @@ public class DesignBridge extends Bridge {
    */
   private DependencyIndex dependencyIndex = new DependencyIndex();
 
-  protected DesignBridge() {
+  private final int maxCycles;
+  private final boolean compactDsm;
+  private DsmSerializer dsmSerializer;
+
+  /**
+   * @param maxCycles maximal number of cycles to enumerate in a strongly connected component of packages or files, zero means no limit
+   * @param compactDsm whether DSM should list only cells, which are not empty, see {@link DsmSerializer}
+   */
+  protected DesignBridge(int maxCycles, boolean compactDsm) {
     super(true);
+    this.maxCycles = maxCycles;
+    this.compactDsm = compactDsm;
   }
 
   @Override
@@ -66,22 +79,25 @@ public class DesignBridge extends Bridge {
 
       savePackageDependencies(squidPackages);
 
-      IncrementalCyclesAndFESSolver<SourceCode> cyclesAndFESSolver = new IncrementalCyclesAndFESSolver<SourceCode>(squid, squidPackages);
-      LOG.debug("{} cycles", cyclesAndFESSolver.getCycles().size());
+      CycleAnalysis<SourceCode> cycleAnalysis = new CycleAnalysis<SourceCode>(squid, maxCycles, false).analyze(squidPackages);
+      LOG.debug("{} cycles", cycleAnalysis.getCycles());
+      warnAboutApproximation(cycleAnalysis, "packages of project");
 
-      Set<Edge> feedbackEdges = cyclesAndFESSolver.getFeedbackEdgeSet();
+      Set<Edge> feedbackEdges = cycleAnalysis.getFeedbackEdges();
       LOG.debug("{} feedback edges", feedbackEdges.size());
-      int tangles = cyclesAndFESSolver.getWeightOfFeedbackEdgeSet();
+      int tangles = cycleAnalysis.getTangles();
 
       saveViolations(feedbackEdges);
-      savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_CYCLES, cyclesAndFESSolver.getCycles().size());
+      savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_CYCLES, cycleAnalysis.getCycles());
       savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_FEEDBACK_EDGES, feedbackEdges.size());
       savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_TANGLES, tangles);
       savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_EDGES_WEIGHT, getEdgesWeight(squidPackages));
 
+      long start = System.nanoTime();
       String dsmJson = serializeDsm(squid, squidPackages, feedbackEdges);
       Measure dsmMeasure = new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson).setPersistenceMode(PersistenceMode.DATABASE);
-      context.saveMeasure(sonarProject, dsmMeasure);
+      measures.save(sonarProject, dsmMeasure);
+      LOG.debug("Packages of project: {}, DSM computed in {} ms", cycleAnalysis.getTimings(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
       profiler.stop();
     }
@@ -89,7 +105,7 @@ public class DesignBridge extends Bridge {
 
   private void savePositiveMeasure(Resource sonarResource, Metric metric, double value) {
     if (value >= 0.0) {
-      context.saveMeasure(sonarResource, metric, value);
+      measures.save(sonarResource, metric, value);
     }
   }
 
@@ -100,20 +116,27 @@ public class DesignBridge extends Bridge {
 
       saveFileDependencies(squidFiles);
 
-      IncrementalCyclesAndFESSolver<SourceCode> cycleDetector = new IncrementalCyclesAndFESSolver<SourceCode>(squid, squidFiles);
-      Set<Cycle> cycles = cycleDetector.getCycles();
-
-      MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(cycles);
-      Set<Edge> feedbackEdges = solver.getEdges();
-      int tangles = solver.getWeightOfFeedbackEdgeSet();
+      CycleAnalysis<SourceCode> cycleAnalysis = new CycleAnalysis<SourceCode>(squid, maxCycles, true).analyze(squidFiles);
+      warnAboutApproximation(cycleAnalysis, "files of package " + squidPackage.getKey());
+      Set<Edge> feedbackEdges = cycleAnalysis.getFeedbackEdges();
+      int tangles = cycleAnalysis.getTangles();
 
-      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_CYCLES, cycles.size());
+      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_CYCLES, cycleAnalysis.getCycles());
       savePositiveMeasure(sonarPackage, CoreMetrics.FILE_FEEDBACK_EDGES, feedbackEdges.size());
       savePositiveMeasure(sonarPackage, CoreMetrics.FILE_TANGLES, tangles);
       savePositiveMeasure(sonarPackage, CoreMetrics.FILE_EDGES_WEIGHT, getEdgesWeight(squidFiles));
 
+      long start = System.nanoTime();
       String dsmJson = serializeDsm(squid, squidFiles, feedbackEdges);
-      context.saveMeasure(sonarPackage, new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson));
+      measures.save(sonarPackage, new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson));
+      LOG.debug("Files of package {}: {}, DSM computed in {} ms",
+          new Object[] {squidPackage.getKey(), cycleAnalysis.getTimings(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+    }
+  }
+
+  private void warnAboutApproximation(CycleAnalysis<SourceCode> cycleAnalysis, String subject) {
+    if (cycleAnalysis.getApproximatedComponents() > 0) {
+      LOG.warn("At least " + maxCycles + " cycles between " + subject + ": feedback edges are approximated");
     }
   }
 
@@ -129,7 +152,10 @@ public class DesignBridge extends Bridge {
   private String serializeDsm(JavaSquid squid, Set<SourceCode> squidSources, Set<Edge> feedbackEdges) {
     Dsm<SourceCode> dsm = new Dsm<SourceCode>(squid, squidSources, feedbackEdges);
     DsmTopologicalSorter.sort(dsm);
-    return DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex);
+    if (dsmSerializer == null) {
+      dsmSerializer = new DsmSerializer(dependencyIndex, resourceIndex, compactDsm);
+    }
+    return dsmSerializer.serialize(dsm);
   }
 
   /**
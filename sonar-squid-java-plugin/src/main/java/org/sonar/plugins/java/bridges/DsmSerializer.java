@@ -24,38 +24,41 @@ import org.sonar.graph.Dsm;
 import org.sonar.graph.DsmCell;
 import org.sonar.squid.api.SourceCode;
 
+/**
+ * Serializes a DSM in JSON, with a buffer, which is reused from one DSM to the next one.
+ * <p>
+ * By default each row contains all cells of the matrix: <code>{"i":id,"n":"name","q":"qualifier","v":[{},{"i":dependencyId,"w":weight},...]}</code>.
+ * Compact encoding only lists the cells, which are not empty, with their column: <code>"c":[[x,dependencyId,weight],...]</code> instead of <code>"v"</code>.
+ * </p>
+ */
 public final class DsmSerializer {
 
-  private Dsm dsm;
-  private StringBuilder json;
-  private DependencyIndex dependencyIndex;
-  private ResourceIndex resourceIndex;
+  private final DependencyIndex dependencyIndex;
+  private final ResourceIndex resourceIndex;
+  private final boolean compact;
+  private final MeasureDataBuffer buffer = new MeasureDataBuffer();
 
-  private DsmSerializer(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex) {
-    this.dsm = dsm;
-    this.json = new StringBuilder();
+  public DsmSerializer(DependencyIndex dependencyIndex, ResourceIndex resourceIndex, boolean compact) {
     this.dependencyIndex = dependencyIndex;
     this.resourceIndex = resourceIndex;
+    this.compact = compact;
   }
 
-  private String serialize() {
+  public String serialize(Dsm<SourceCode> dsm) {
+    StringBuilder json = buffer.start();
     json.append('[');
-    serializeRows();
-    json.append(']');
-    return json.toString();
-  }
-
-  private void serializeRows() {
     for (int y = 0; y < dsm.getDimension(); y++) {
       if (y > 0) {
         json.append(',');
       }
-      serializeRow(y);
+      serializeRow(dsm, y, json);
     }
+    json.append(']');
+    return buffer.finish();
   }
 
-  private void serializeRow(int y) {
-    SourceCode squidResource = (SourceCode) dsm.getVertex(y);
+  private void serializeRow(Dsm<SourceCode> dsm, int y, StringBuilder json) {
+    SourceCode squidResource = dsm.getVertex(y);
     Resource sonarResource = resourceIndex.get(squidResource);
 
     json.append("{");
@@ -66,31 +69,56 @@ public final class DsmSerializer {
       json.append(sonarResource.getName());
       json.append("\",\"q\":\"");
       json.append(sonarResource.getQualifier());
-      json.append("\",\"v\":[");
-      for (int x = 0; x < dsm.getDimension(); x++) {
-        if (x > 0) {
-          json.append(',');
-        }
-        serializeCell(y, x);
+      if (compact) {
+        json.append("\",\"c\":[");
+        serializeCompactCells(dsm, y, json);
+      } else {
+        json.append("\",\"v\":[");
+        serializeCells(dsm, y, json);
       }
       json.append("]");
     }
     json.append("}");
   }
 
-  private void serializeCell(int y, int x) {
-    DsmCell cell = dsm.getCell(x, y);
-    json.append('{');
-    if (cell.getEdge() != null && cell.getWeight() > 0) {
-      json.append("\"i\":");
-      json.append(dependencyIndex.get(cell.getEdge()).getId());
-      json.append(",\"w\":");
-      json.append(cell.getWeight());
+  private void serializeCells(Dsm<SourceCode> dsm, int y, StringBuilder json) {
+    for (int x = 0; x < dsm.getDimension(); x++) {
+      if (x > 0) {
+        json.append(',');
+      }
+      DsmCell cell = dsm.getCell(x, y);
+      json.append('{');
+      if (isNotEmpty(cell)) {
+        json.append("\"i\":");
+        json.append(dependencyIndex.get(cell.getEdge()).getId());
+        json.append(",\"w\":");
+        json.append(cell.getWeight());
+      }
+      json.append('}');
+    }
+  }
+
+  private void serializeCompactCells(Dsm<SourceCode> dsm, int y, StringBuilder json) {
+    boolean first = true;
+    for (int x = 0; x < dsm.getDimension(); x++) {
+      DsmCell cell = dsm.getCell(x, y);
+      if (isNotEmpty(cell)) {
+        if (!first) {
+          json.append(',');
+        }
+        first = false;
+        json.append('[');
+        json.append(x);
+        json.append(',');
+        json.append(dependencyIndex.get(cell.getEdge()).getId());
+        json.append(',');
+        json.append(cell.getWeight());
+        json.append(']');
+      }
     }
-    json.append('}');
   }
 
-  public static String serialize(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex) {
-    return new DsmSerializer(dsm, dependencyIndex, resourceIndex).serialize();
+  private static boolean isNotEmpty(DsmCell cell) {
+    return cell.getEdge() != null && cell.getWeight() > 0;
   }
 }
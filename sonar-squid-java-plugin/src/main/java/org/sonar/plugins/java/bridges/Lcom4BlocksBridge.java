@@ -19,32 +19,34 @@
  */
 package org.sonar.plugins.java.bridges;
 
-import com.google.common.collect.Lists;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Resource;
-import org.sonar.java.bytecode.asm.AsmField;
-import org.sonar.java.bytecode.asm.AsmMethod;
-import org.sonar.java.bytecode.asm.AsmResource;
+import org.sonar.java.bytecode.visitor.Lcom4Blocks;
 import org.sonar.squid.api.SourceFile;
 import org.sonar.squid.measures.Metric;
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.List;
-import java.util.Set;
 
 public class Lcom4BlocksBridge extends Bridge {
 
+  private final MeasureDataBuffer buffer = new MeasureDataBuffer();
+
   protected Lcom4BlocksBridge() {
     super(true);
   }
 
+  @Override
+  public boolean canRunInParallel() {
+    return true;
+  }
+
   @Override
   public void onFile(SourceFile squidFile, Resource sonarFile) {
-    List<Set<AsmResource>> blocks = (List<Set<AsmResource>>) squidFile.getData(Metric.LCOM4_BLOCKS);
+    Lcom4Blocks blocks = (Lcom4Blocks) squidFile.getData(Metric.LCOM4_BLOCKS);
 
     // This measure includes AsmResource objects and it is used only by this bridge, so
     // it can be removed from memory.
@@ -53,89 +55,96 @@ public class Lcom4BlocksBridge extends Bridge {
     if (blocks != null && !blocks.isEmpty()) {
       Measure measure = new Measure(CoreMetrics.LCOM4_BLOCKS, serialize(blocks));
       measure.setPersistenceMode(PersistenceMode.DATABASE);
-      context.saveMeasure(sonarFile, measure);
+      measures.save(sonarFile, measure);
     }
   }
 
-  protected String serialize(List<Set<AsmResource>> blocks) {
-    Collections.sort(blocks, new SetsComparator());
+  /**
+   * Serializes blocks from the smallest to the biggest one, from names of their members, so without materialization of blocks.
+   */
+  protected String serialize(Lcom4Blocks blocks) {
+    Integer[] sortedBlocks = new Integer[blocks.size()];
+    for (int i = 0; i < sortedBlocks.length; i++) {
+      sortedBlocks[i] = i;
+    }
+    Arrays.sort(sortedBlocks, new BlocksComparator(blocks));
 
-    StringBuilder sb = new StringBuilder();
+    StringBuilder sb = buffer.start();
     sb.append('[');
-
-    for (int indexBlock = 0; indexBlock < blocks.size(); indexBlock++) {
-      blocks.get(indexBlock);
-      Set<AsmResource> block = blocks.get(indexBlock);
-      if (!block.isEmpty()) {
-        if (indexBlock > 0) {
+    int indexBlock = 0;
+    for (int block : sortedBlocks) {
+      if (blocks.getBlockSize(block) > 0) {
+        if (indexBlock++ > 0) {
           sb.append(',');
         }
         sb.append('[');
-        serializeBlock(block, sb);
+        serializeBlock(blocks, block, sb);
         sb.append(']');
       }
     }
     sb.append(']');
-    return sb.toString();
+    return buffer.finish();
   }
 
-  private void serializeBlock(Set<AsmResource> block, StringBuilder sb) {
-    List<AsmResource> sortedResources = sortResourcesInBlock(block);
+  private void serializeBlock(Lcom4Blocks blocks, int block, StringBuilder sb) {
     int indexResource = 0;
-    for (AsmResource resource : sortedResources) {
+    for (int member : sortMembersInBlock(blocks, block)) {
       if (indexResource++ > 0) {
         sb.append(',');
       }
-      serializeResource(resource, sb);
+      serializeMember(blocks, block, member, sb);
     }
   }
 
-  private void serializeResource(AsmResource resource, StringBuilder sb) {
+  private void serializeMember(Lcom4Blocks blocks, int block, int member, StringBuilder sb) {
     sb.append("{\"q\":\"");
-    sb.append(toQualifier(resource));
+    sb.append(blocks.isField(block, member) ? Qualifiers.FIELD : Qualifiers.METHOD);
     sb.append("\",\"n\":\"");
-    sb.append(resource.toString());
+    sb.append(blocks.getName(block, member));
     sb.append("\"}");
   }
 
-  protected List<AsmResource> sortResourcesInBlock(Set<AsmResource> block) {
-    List<AsmResource> result = Lists.newArrayList();
-    result.addAll(block);
-    Collections.sort(result, new ResourcesComparator());
+  /**
+   * Fields come first, then methods, each ordered by name.
+   */
+  private static Integer[] sortMembersInBlock(Lcom4Blocks blocks, int block) {
+    Integer[] result = new Integer[blocks.getBlockSize(block)];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = i;
+    }
+    Arrays.sort(result, new MembersComparator(blocks, block));
     return result;
   }
 
-  private static class SetsComparator implements Comparator<Set> {
-    public int compare(Set set1, Set set2) {
-      return set1.size() - set2.size();
-    }
-  }
+  private static class BlocksComparator implements Comparator<Integer> {
+    private final Lcom4Blocks blocks;
 
-  private static class ResourcesComparator implements Comparator<AsmResource> {
-    public int compare(AsmResource asmResource1, AsmResource asmResource2) {
-      int result = compareType(asmResource1, asmResource2);
-      if (result == 0) {
-        result = asmResource1.toString().compareTo(asmResource2.toString());
-      }
-      return result;
+    BlocksComparator(Lcom4Blocks blocks) {
+      this.blocks = blocks;
     }
 
-    private int compareType(AsmResource asmResource1, AsmResource asmResource2) {
-      if (asmResource1 instanceof AsmField) {
-        return (asmResource2 instanceof AsmField) ? 0 : -1;
-      }
-      return (asmResource2 instanceof AsmMethod) ? 0 : 1;
+    public int compare(Integer block1, Integer block2) {
+      return blocks.getBlockSize(block1) - blocks.getBlockSize(block2);
     }
   }
 
-  private static String toQualifier(AsmResource asmResource) {
-    if (asmResource instanceof AsmField) {
-      return Qualifiers.FIELD;
+  private static class MembersComparator implements Comparator<Integer> {
+    private final Lcom4Blocks blocks;
+    private final int block;
+
+    MembersComparator(Lcom4Blocks blocks, int block) {
+      this.blocks = blocks;
+      this.block = block;
     }
-    if (asmResource instanceof AsmMethod) {
-      return Qualifiers.METHOD;
+
+    public int compare(Integer member1, Integer member2) {
+      boolean field1 = blocks.isField(block, member1);
+      boolean field2 = blocks.isField(block, member2);
+      if (field1 != field2) {
+        return field1 ? -1 : 1;
+      }
+      return blocks.getName(block, member1).compareTo(blocks.getName(block, member2));
     }
-    throw new IllegalArgumentException("Wrong ASM resource: " + asmResource.getClass());
   }
 
 }
@@ -0,0 +1,106 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Resource;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves measures of bridges and measures time spent to save them.
+ * A {@link #recorder() recorder} only collects measures, grouped by resource, which are then {@link #moveTo(MeasureBatch) moved} to the batch,
+ * which saves them, so that measures computed in parallel are saved in a deterministic order.
+ * Not thread-safe.
+ */
+public final class MeasureBatch {
+
+  @Nullable
+  private final SensorContext context;
+  private final Map<Resource, List<Measure>> recorded = Maps.newLinkedHashMap();
+
+  private long savedCount;
+  private long saveNanos;
+
+  public MeasureBatch(SensorContext context) {
+    this.context = context;
+  }
+
+  private MeasureBatch() {
+    this.context = null;
+  }
+
+  public static MeasureBatch recorder() {
+    return new MeasureBatch();
+  }
+
+  public void save(Resource resource, Metric metric, double value) {
+    save(resource, new Measure(metric, value));
+  }
+
+  public void save(Resource resource, Measure measure) {
+    if (context == null) {
+      List<Measure> measures = recorded.get(resource);
+      if (measures == null) {
+        measures = Lists.newArrayList();
+        recorded.put(resource, measures);
+      }
+      measures.add(measure);
+    } else {
+      long start = System.nanoTime();
+      context.saveMeasure(resource, measure);
+      saveNanos += System.nanoTime() - start;
+      savedCount++;
+    }
+  }
+
+  /**
+   * Moves all recorded measures to the given batch, in their order.
+   */
+  public void moveTo(MeasureBatch target) {
+    Preconditions.checkState(context == null, "Only measures of a recorder can be moved");
+    for (Map.Entry<Resource, List<Measure>> entry : recorded.entrySet()) {
+      for (Measure measure : entry.getValue()) {
+        target.save(entry.getKey(), measure);
+      }
+    }
+    recorded.clear();
+  }
+
+  public long getSavedCount() {
+    return savedCount;
+  }
+
+  /**
+   * Returns time spent to save measures, in nanoseconds.
+   */
+  public long getSaveNanos() {
+    return saveNanos;
+  }
+
+}
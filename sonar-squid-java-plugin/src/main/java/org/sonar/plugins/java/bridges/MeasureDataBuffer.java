@@ -0,0 +1,60 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+/**
+ * Buffer to build data of measures, which is reused from one measure to the next one, so that big measures
+ * do not reallocate their buffer while growing. Buffer is released when it exceeds {@link #MAX_RETAINED_CAPACITY},
+ * so that a single huge measure doesn't keep memory for the rest of the analysis.
+ * Not thread-safe.
+ */
+final class MeasureDataBuffer {
+
+  static final int INITIAL_CAPACITY = 1024;
+  static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+  private StringBuilder sb = new StringBuilder(INITIAL_CAPACITY);
+
+  /**
+   * Returns empty buffer to append data of a new measure.
+   */
+  StringBuilder start() {
+    sb.setLength(0);
+    return sb;
+  }
+
+  /**
+   * Returns content of buffer.
+   */
+  String finish() {
+    String result = sb.toString();
+    if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+      sb = new StringBuilder(INITIAL_CAPACITY);
+    } else {
+      sb.setLength(0);
+    }
+    return result;
+  }
+
+  int capacity() {
+    return sb.capacity();
+  }
+
+}
@@ -32,14 +32,19 @@ public class PackagesBridge extends Bridge {
     super(false);
   }
 
+  @Override
+  public boolean canRunInParallel() {
+    return true;
+  }
+
   @Override
   public void onProject(SourceProject squidProject, Project sonarProject) {
-    context.saveMeasure(sonarProject, CoreMetrics.PACKAGES, squidProject.getDouble(JavaMetric.PACKAGES));
+    measures.save(sonarProject, CoreMetrics.PACKAGES, squidProject.getDouble(JavaMetric.PACKAGES));
   }
 
   @Override
   public void onPackage(SourcePackage squidPackage, Resource sonarPackage) {
-    context.saveMeasure(sonarPackage, CoreMetrics.PACKAGES, squidPackage.getDouble(JavaMetric.PACKAGES));
+    measures.save(sonarPackage, CoreMetrics.PACKAGES, squidPackage.getDouble(JavaMetric.PACKAGES));
   }
 
 }
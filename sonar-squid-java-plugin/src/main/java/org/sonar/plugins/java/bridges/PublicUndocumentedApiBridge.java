@@ -35,6 +35,11 @@ public final class PublicUndocumentedApiBridge extends Bridge {
     super(false);
   }
 
+  @Override
+  public boolean canRunInParallel() {
+    return true;
+  }
+
   @Override
   public void onFile(SourceFile squidFile, Resource sonarFile) {
     copyValue(squidFile, sonarFile);
@@ -52,7 +57,7 @@ public final class PublicUndocumentedApiBridge extends Bridge {
 
   private void copyValue(SourceCode squidResource, Resource sonarResource) {
     double undocumentedApi = squidResource.getDouble(Metric.PUBLIC_API) - squidResource.getInt(Metric.PUBLIC_DOC_API);
-    context.saveMeasure(sonarResource, CoreMetrics.PUBLIC_UNDOCUMENTED_API, undocumentedApi);
+    measures.save(sonarResource, CoreMetrics.PUBLIC_UNDOCUMENTED_API, undocumentedApi);
   }
 
 }
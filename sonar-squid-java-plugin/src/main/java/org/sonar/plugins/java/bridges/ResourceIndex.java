@@ -61,9 +61,9 @@ public final class ResourceIndex extends HashMap<SourceCode, Resource> {
     for (SourceCode squidPackage : packages) {
       JavaPackage sonarPackage = SquidUtils.convertJavaPackageKeyFromSquidFormat(squidPackage.getKey());
       context.index(sonarPackage);
-      // resource is reloaded to get the id:
-      put(squidPackage, context.getResource(sonarPackage));
+      put(squidPackage, sonarPackage);
     }
+    reloadResourcesWithoutId(packages, context);
   }
 
   private void loadSquidFiles(SquidIndex squid, SensorContext context) {
@@ -72,8 +72,21 @@ public final class ResourceIndex extends HashMap<SourceCode, Resource> {
       JavaFile sonarFile = SquidUtils.convertJavaFileKeyFromSquidFormat(squidFile.getKey());
       JavaPackage sonarPackage = (JavaPackage) get(squidFile.getParent(SourcePackage.class));
       context.index(sonarFile, sonarPackage);
-      // resource is reloaded to get the id:
-      put(squidFile, context.getResource(sonarFile));
+      put(squidFile, sonarFile);
+    }
+    reloadResourcesWithoutId(files, context);
+  }
+
+  /**
+   * Resources are reloaded to get their ids, once all resources of the same level are indexed.
+   * Resources, which got their id during indexing, are not reloaded.
+   */
+  private void reloadResourcesWithoutId(Collection<SourceCode> squidResources, SensorContext context) {
+    for (SourceCode squidResource : squidResources) {
+      Resource sonarResource = get(squidResource);
+      if (sonarResource.getId() == null) {
+        put(squidResource, context.getResource(sonarResource));
+      }
     }
   }
 
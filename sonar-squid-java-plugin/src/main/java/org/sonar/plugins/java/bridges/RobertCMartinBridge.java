@@ -31,16 +31,21 @@ public class RobertCMartinBridge extends Bridge {
     super(true);
   }
 
+  @Override
+  public boolean canRunInParallel() {
+    return true;
+  }
+
   @Override
   public void onPackage(SourcePackage squidPackage, Resource sonarPackage) {
-    context.saveMeasure(sonarPackage, CoreMetrics.AFFERENT_COUPLINGS, squidPackage.getDouble(Metric.CA));
-    context.saveMeasure(sonarPackage, CoreMetrics.EFFERENT_COUPLINGS, squidPackage.getDouble(Metric.CE));
+    measures.save(sonarPackage, CoreMetrics.AFFERENT_COUPLINGS, squidPackage.getDouble(Metric.CA));
+    measures.save(sonarPackage, CoreMetrics.EFFERENT_COUPLINGS, squidPackage.getDouble(Metric.CE));
   }
 
   @Override
   public void onFile(SourceFile squidFile, Resource sonarFile) {
-    context.saveMeasure(sonarFile, CoreMetrics.AFFERENT_COUPLINGS, squidFile.getDouble(Metric.CA));
-    context.saveMeasure(sonarFile, CoreMetrics.EFFERENT_COUPLINGS, squidFile.getDouble(Metric.CE));
+    measures.save(sonarFile, CoreMetrics.AFFERENT_COUPLINGS, squidFile.getDouble(Metric.CA));
+    measures.save(sonarFile, CoreMetrics.EFFERENT_COUPLINGS, squidFile.getDouble(Metric.CE));
   }
 
 }
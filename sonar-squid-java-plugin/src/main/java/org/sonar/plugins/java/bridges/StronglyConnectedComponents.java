@@ -0,0 +1,119 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.sonar.graph.DirectedGraphAccessor;
+import org.sonar.graph.Edge;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Strongly connected components of a subset of vertices of a graph, found by the algorithm of Tarjan,
+ * which is linear in number of vertices and edges. Recursion is replaced by an explicit stack, so that depth of graph is not limited by the stack of thread.
+ */
+final class StronglyConnectedComponents {
+
+  private StronglyConnectedComponents() {
+  }
+
+  /**
+   * Returns components with more than one vertex, i.e. the ones, which contain cycles. Edges to vertices, which are not in given collection, are ignored.
+   */
+  static <V> List<List<V>> find(DirectedGraphAccessor<V, ? extends Edge<V>> graph, Collection<V> vertices) {
+    Set<V> vertexSet = Sets.newHashSet(vertices);
+    Map<V, Integer> indexes = Maps.newHashMap();
+    LinkedList<V> stack = Lists.newLinkedList();
+    Set<V> onStack = Sets.newHashSet();
+    LinkedList<Frame<V>> callStack = Lists.newLinkedList();
+    List<List<V>> result = Lists.newArrayList();
+
+    for (V root : vertices) {
+      if (indexes.containsKey(root)) {
+        continue;
+      }
+      callStack.push(enter(graph, root, indexes, stack, onStack));
+      while (!callStack.isEmpty()) {
+        Frame<V> frame = callStack.peek();
+        if (frame.successors.hasNext()) {
+          V successor = frame.successors.next().getTo();
+          if (vertexSet.contains(successor)) {
+            Integer successorIndex = indexes.get(successor);
+            if (successorIndex == null) {
+              callStack.push(enter(graph, successor, indexes, stack, onStack));
+            } else if (onStack.contains(successor)) {
+              frame.lowLink = Math.min(frame.lowLink, successorIndex);
+            }
+          }
+        } else {
+          callStack.pop();
+          if (frame.lowLink == frame.index) {
+            List<V> component = new ArrayList<V>();
+            V vertex;
+            do {
+              vertex = stack.pop();
+              onStack.remove(vertex);
+              component.add(vertex);
+            } while (!vertex.equals(frame.vertex));
+            if (component.size() > 1) {
+              result.add(component);
+            }
+          }
+          if (!callStack.isEmpty()) {
+            Frame<V> caller = callStack.peek();
+            caller.lowLink = Math.min(caller.lowLink, frame.lowLink);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static <V> Frame<V> enter(DirectedGraphAccessor<V, ? extends Edge<V>> graph, V vertex, Map<V, Integer> indexes, LinkedList<V> stack, Set<V> onStack) {
+    int index = indexes.size();
+    indexes.put(vertex, index);
+    stack.push(vertex);
+    onStack.add(vertex);
+    return new Frame<V>(vertex, index, graph.getOutgoingEdges(vertex).iterator());
+  }
+
+  private static final class Frame<V> {
+    private final V vertex;
+    private final int index;
+    private final Iterator<? extends Edge<V>> successors;
+    private int lowLink;
+
+    private Frame(V vertex, int index, Iterator<? extends Edge<V>> successors) {
+      this.vertex = vertex;
+      this.index = index;
+      this.successors = successors;
+      this.lowLink = index;
+    }
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.checks.CheckFactory;
+import org.sonar.api.checks.NoSonarFilter;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.JavaSquid;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BridgesTest {
+
+  @Test
+  public void should_save_same_measures_in_parallel() {
+    List<String> sequentialMeasures = save(1);
+    List<String> parallelMeasures = save(4);
+
+    assertThat(sequentialMeasures).isNotEmpty();
+    assertThat(parallelMeasures).isEqualTo(sequentialMeasures);
+  }
+
+  /**
+   * Analyses sources and bytecode of this plugin and saves results with given number of threads.
+   *
+   * @return sorted descriptions of saved measures
+   */
+  private static List<String> save(int nbThreads) {
+    JavaSquid squid = new JavaSquid(new JavaConfiguration(Charsets.UTF_8));
+    squid.scanDirectories(ImmutableList.of(new File("src/main/java")), ImmutableList.of(new File("target/classes")));
+
+    BaseConfiguration configuration = new BaseConfiguration();
+    configuration.setProperty(JavaSquidPlugin.SQUID_ANALYSIS_THREADS_PROPERTY, nbThreads);
+    Project project = mock(Project.class);
+    when(project.getConfiguration()).thenReturn(configuration);
+
+    final List<String> measures = Lists.newArrayList();
+    SensorContext context = mock(SensorContext.class);
+    when(context.getResource(any(Resource.class))).thenAnswer(new Answer<Resource>() {
+      public Resource answer(InvocationOnMock invocation) {
+        return (Resource) invocation.getArguments()[0];
+      }
+    });
+    when(context.saveMeasure(any(Resource.class), any(Measure.class))).thenAnswer(new Answer<Measure>() {
+      public Measure answer(InvocationOnMock invocation) {
+        Resource resource = (Resource) invocation.getArguments()[0];
+        Measure measure = (Measure) invocation.getArguments()[1];
+        measures.add(resource.getKey() + " " + measure.getMetricKey() + " " + measure.getValue() + " " + measure.getData());
+        return measure;
+      }
+    });
+
+    new Bridges(squid).save(context, project, mock(CheckFactory.class), mock(NoSonarFilter.class));
+    Collections.sort(measures);
+    return measures;
+  }
+
+}
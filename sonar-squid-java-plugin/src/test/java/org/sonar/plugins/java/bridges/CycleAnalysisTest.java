@@ -0,0 +1,129 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.sonar.graph.DirectedGraph;
+import org.sonar.graph.Edge;
+import org.sonar.graph.IncrementalCyclesAndFESSolver;
+import org.sonar.graph.MinimumFeedbackEdgeSetSolver;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CycleAnalysisTest {
+
+  @Test
+  public void should_find_non_trivial_strongly_connected_components() {
+    DirectedGraph<String, StringEdge> graph = graph("a>b", "b>c", "c>a", "c>d", "d>e", "e>d", "f>a");
+
+    List<List<String>> components = StronglyConnectedComponents.find(graph, ImmutableList.of("a", "b", "c", "d", "e", "f"));
+    assertThat(components).hasSize(2);
+    assertThat(components.get(0)).containsOnly("d", "e");
+    assertThat(components.get(1)).containsOnly("a", "b", "c");
+
+    // edges to other vertices are ignored
+    assertThat(StronglyConnectedComponents.find(graph, ImmutableList.of("a", "b", "d", "e"))).hasSize(1);
+  }
+
+  @Test
+  public void should_solve_each_component() {
+    DirectedGraph<String, StringEdge> graph = graph("a>b", "b>a", "b>c", "c>d", "d>c", "d>e");
+
+    CycleAnalysis<String> analysis = new CycleAnalysis<String>(graph, 0, false).analyze(ImmutableList.of("a", "b", "c", "d", "e"));
+    assertThat(analysis.getCycles()).isEqualTo(2);
+    assertThat(analysis.getFeedbackEdges()).hasSize(2);
+    assertThat(analysis.getTangles()).isEqualTo(2);
+    assertThat(analysis.getApproximatedComponents()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_give_same_results_as_incremental_solver() {
+    DirectedGraph<String, StringEdge> graph = graph("a>b", "b>c", "c>a", "b>a", "c>d", "d>e", "e>d", "e>f", "f>d", "g>a");
+    List<String> vertices = ImmutableList.of("a", "b", "c", "d", "e", "f", "g");
+    IncrementalCyclesAndFESSolver<String> incrementalSolver = new IncrementalCyclesAndFESSolver<String>(graph, vertices);
+
+    CycleAnalysis<String> analysis = new CycleAnalysis<String>(graph, 0, false).analyze(vertices);
+    assertThat(analysis.getCycles()).isEqualTo(incrementalSolver.getCycles().size());
+    assertThat(analysis.getFeedbackEdges()).isEqualTo(incrementalSolver.getFeedbackEdgeSet());
+    assertThat(analysis.getTangles()).isEqualTo(incrementalSolver.getWeightOfFeedbackEdgeSet());
+
+    // as feedback edges between files
+    MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(incrementalSolver.getCycles());
+    analysis = new CycleAnalysis<String>(graph, 0, true).analyze(vertices);
+    assertThat(analysis.getCycles()).isEqualTo(incrementalSolver.getCycles().size());
+    assertThat(analysis.getFeedbackEdges()).isEqualTo(solver.getEdges());
+    assertThat(analysis.getTangles()).isEqualTo(solver.getWeightOfFeedbackEdgeSet());
+  }
+
+  @Test
+  public void should_approximate_feedback_edges_above_max_cycles() {
+    // every pair of vertices is a cycle
+    String[] vertices = {"a", "b", "c", "d", "e", "f"};
+    DirectedGraph<String, StringEdge> graph = new DirectedGraph<String, StringEdge>();
+    for (String from : vertices) {
+      for (String to : vertices) {
+        if (!from.equals(to)) {
+          graph.addEdge(new StringEdge(from, to));
+        }
+      }
+    }
+
+    CycleAnalysis<String> analysis = new CycleAnalysis<String>(graph, 10, false).analyze(ImmutableList.copyOf(vertices));
+    assertThat(analysis.getApproximatedComponents()).isEqualTo(1);
+    assertThat(analysis.getCycles()).isGreaterThanOrEqualTo(10);
+    // vertices are ordered, so that half of edges go backward
+    assertThat(analysis.getFeedbackEdges()).hasSize(15);
+    assertThat(analysis.getTangles()).isEqualTo(15);
+  }
+
+  private static DirectedGraph<String, StringEdge> graph(String... edges) {
+    DirectedGraph<String, StringEdge> graph = new DirectedGraph<String, StringEdge>();
+    for (String edge : edges) {
+      graph.addEdge(new StringEdge(edge.substring(0, 1), edge.substring(2)));
+    }
+    return graph;
+  }
+
+  private static final class StringEdge implements Edge<String> {
+    private final String from;
+    private final String to;
+
+    private StringEdge(String from, String to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    public int getWeight() {
+      return 1;
+    }
+
+    public String getFrom() {
+      return from;
+    }
+
+    public String getTo() {
+      return to;
+    }
+  }
+
+}
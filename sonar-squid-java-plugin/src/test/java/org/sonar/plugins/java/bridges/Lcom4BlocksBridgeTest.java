@@ -0,0 +1,64 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.sonar.java.bytecode.asm.AsmClass;
+import org.sonar.java.bytecode.asm.AsmField;
+import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.asm.AsmResource;
+import org.sonar.java.bytecode.visitor.Lcom4Blocks;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class Lcom4BlocksBridgeTest {
+
+  @Test
+  public void should_serialize_blocks_by_size() {
+    AsmClass asmClass = new AsmClass("Foo");
+    List<AsmResource> members = ImmutableList.<AsmResource>of(new AsmMethod(asmClass, "b()V"), new AsmField(asmClass, "x"), new AsmMethod(asmClass, "a()V"),
+        new AsmMethod(asmClass, "c()V"), new AsmField(asmClass, "y"));
+    Lcom4Blocks blocks = new Lcom4Blocks(members, new int[][] {{0, 1, 2}, {3, 4}});
+
+    Lcom4BlocksBridge bridge = new Lcom4BlocksBridge();
+    String expected = "[[{\"q\":\"FLD\",\"n\":\"y\"},{\"q\":\"MET\",\"n\":\"c()V\"}],"
+      + "[{\"q\":\"FLD\",\"n\":\"x\"},{\"q\":\"MET\",\"n\":\"a()V\"},{\"q\":\"MET\",\"n\":\"b()V\"}]]";
+    assertThat(bridge.serialize(blocks)).isEqualTo(expected);
+
+    // buffer is reused
+    assertThat(bridge.serialize(blocks)).isEqualTo(expected);
+  }
+
+  @Test
+  public void should_release_big_buffer() {
+    MeasureDataBuffer buffer = new MeasureDataBuffer();
+    StringBuilder sb = buffer.start();
+    for (int i = 0; i <= MeasureDataBuffer.MAX_RETAINED_CAPACITY; i++) {
+      sb.append('x');
+    }
+    assertThat(buffer.finish()).hasSize(MeasureDataBuffer.MAX_RETAINED_CAPACITY + 1);
+    assertThat(buffer.capacity()).isEqualTo(MeasureDataBuffer.INITIAL_CAPACITY);
+    assertThat(buffer.start().length()).isEqualTo(0);
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.resources.Resource;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class MeasureBatchTest {
+
+  @Test
+  public void should_save_measures_immediately() {
+    SensorContext context = mock(SensorContext.class);
+    Resource foo = new JavaFile("Foo");
+    MeasureBatch batch = new MeasureBatch(context);
+
+    batch.save(foo, CoreMetrics.LINES, 1);
+    verify(context).saveMeasure(eq(foo), argThat(new IsMeasure(CoreMetrics.LINES.getKey(), 1)));
+    batch.save(foo, new Measure(CoreMetrics.NCLOC, 2.0));
+    verify(context).saveMeasure(eq(foo), argThat(new IsMeasure(CoreMetrics.NCLOC.getKey(), 2)));
+    assertThat(batch.getSavedCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void recorder_should_move_measures_grouped_by_resource() {
+    SensorContext context = mock(SensorContext.class);
+    Resource foo = new JavaFile("Foo");
+    Resource bar = new JavaFile("Bar");
+    MeasureBatch recorder = MeasureBatch.recorder();
+    recorder.save(foo, CoreMetrics.LINES, 1);
+    recorder.save(bar, CoreMetrics.LINES, 2);
+    recorder.save(foo, CoreMetrics.NCLOC, 3);
+
+    MeasureBatch batch = new MeasureBatch(context);
+    recorder.moveTo(batch);
+    recorder.moveTo(batch);
+
+    assertThat(batch.getSavedCount()).isEqualTo(3);
+    InOrder inOrder = inOrder(context);
+    inOrder.verify(context).saveMeasure(eq(foo), argThat(new IsMeasure(CoreMetrics.LINES.getKey(), 1)));
+    inOrder.verify(context).saveMeasure(eq(foo), argThat(new IsMeasure(CoreMetrics.NCLOC.getKey(), 3)));
+    inOrder.verify(context).saveMeasure(eq(bar), argThat(new IsMeasure(CoreMetrics.LINES.getKey(), 2)));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_not_move_measures_of_batch() {
+    new MeasureBatch(mock(SensorContext.class)).moveTo(MeasureBatch.recorder());
+  }
+
+  private static class IsMeasure extends ArgumentMatcher<Measure> {
+    private final String metricKey;
+    private final double value;
+
+    IsMeasure(String metricKey, double value) {
+      this.metricKey = metricKey;
+      this.value = value;
+    }
+
+    @Override
+    public boolean matches(Object argument) {
+      Measure measure = (Measure) argument;
+      return metricKey.equals(measure.getMetricKey()) && measure.getValue() == value;
+    }
+  }
+
+}